@@ -87,3 +87,34 @@ CREATE TABLE `t_rating` (
   CONSTRAINT `fk_rating_music` FOREIGN KEY (`music_id`) REFERENCES `t_music` (`id`) ON DELETE CASCADE,
   CONSTRAINT `chk_score` CHECK (`score` >= 1 AND `score` <= 5)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='评分表';
+
+-- 曲库变更记录表（搜索索引快照加载后只回放快照之后的变更，定期清理过期记录）
+-- 不引用 t_music 的外键：删除音乐同样需要记录
+CREATE TABLE `t_music_change` (
+  `seq` BIGINT NOT NULL AUTO_INCREMENT COMMENT '变更序号',
+  `music_id` BIGINT NOT NULL COMMENT '音乐ID',
+  `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '变更时间',
+  PRIMARY KEY (`seq`),
+  KEY `idx_create_time` (`create_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='曲库变更记录表';
+
+-- 播放次数写回批次记录表（同一批次重试时主键冲突，保证增量只写入一次，定期清理过期记录）
+CREATE TABLE `t_play_count_flush` (
+  `batch_id` VARCHAR(64) NOT NULL COMMENT '批次ID',
+  `music_count` INT NOT NULL COMMENT '批次包含的音乐数量',
+  `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP COMMENT '写入时间',
+  PRIMARY KEY (`batch_id`),
+  KEY `idx_create_time` (`create_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='播放次数写回批次记录表';
+
+-- 游标分页索引（按 (排序时间, id) 定位，避免深分页的 OFFSET 扫描）
+ALTER TABLE `t_music` ADD KEY `idx_status_create_time` (`status`, `create_time`, `id`);
+ALTER TABLE `t_favorite` ADD KEY `idx_user_create_time` (`user_id`, `create_time`, `id`);
+ALTER TABLE `t_play_history` ADD KEY `idx_user_play_time` (`user_id`, `play_time`, `id`);
+ALTER TABLE `t_play_history` ADD KEY `idx_user_music_play_time` (`user_id`, `music_id`, `play_time`);
+
+-- 搜索全文索引（music.search.strategy=fulltext 时使用）
+-- ngram 解析器默认按2个字切分（ngram_token_size=2，需在my.cnf中配置，修改后需重建索引）；
+-- 默认停用词表包含 a、i 等单字母，ngram 模式下含停用词的切分会被丢弃，创建索引前在当前会话关闭停用词
+SET SESSION innodb_ft_enable_stopword = OFF;
+ALTER TABLE `t_music` ADD FULLTEXT INDEX `ft_music_search` (`music_name`, `artist`, `album`) WITH PARSER ngram;
@@ -0,0 +1,129 @@
+-- 搜索策略基准测试：对比 LIKE '%词%'（music.search.strategy=like）与 FULLTEXT ngram（music.search.strategy=fulltext）
+-- 在独立的 t_music_bench 表上生成100万条合成数据，不影响业务表；执行前需已导入 Datebase.sql
+-- 用法：mysql -u root -p music_db < SearchBenchmark.sql
+-- 输出每种查询执行 @runs 次的平均耗时（毫秒）与结果数量，两种策略的结果数量应一致
+
+SET SESSION cte_max_recursion_depth = 1000000;
+SET SESSION innodb_ft_enable_stopword = OFF;
+
+DROP TABLE IF EXISTS `t_music_bench`;
+CREATE TABLE `t_music_bench` LIKE `t_music`;
+ALTER TABLE `t_music_bench` DROP INDEX `ft_music_search`;
+
+-- 名称、艺术家、专辑由常见词随机组合，约一半为中文、一半为英文
+INSERT INTO `t_music_bench` (music_name, artist, album, duration, file_uuid, file_path, file_size,
+                             status, play_count, upload_user_id, create_time)
+WITH RECURSIVE seq (n) AS (
+    SELECT 1
+    UNION ALL
+    SELECT n + 1 FROM seq WHERE n < 1000000
+)
+SELECT
+    IF(n % 2 = 0,
+       CONCAT(ELT(1 + FLOOR(RAND() * 12), '晴天', '夜曲', '稻香', '江南', '长城', '海阔天空', '后来', '十年', '小幸运', '光年之外', '起风了', '平凡之路'),
+              ELT(1 + FLOOR(RAND() * 6), '', '（Live）', '伴奏', '的夏天', '之歌', '2.0')),
+       CONCAT(ELT(1 + FLOOR(RAND() * 12), 'Shape of', 'Love', 'Blinding', 'Perfect', 'Someone', 'Bad', 'Happy', 'Hello', 'Stay', 'Believer', 'Faded', 'Yellow'),
+              ' ', ELT(1 + FLOOR(RAND() * 6), 'You', 'Story', 'Lights', 'Like You', 'Guy', 'Days'))),
+    IF(n % 2 = 0,
+       CONCAT(ELT(1 + FLOOR(RAND() * 10), '周', '林', '陈', '王', '李', '张', '刘', '杨', '黄', '吴'),
+              ELT(1 + FLOOR(RAND() * 10), '杰伦', '俊杰', '奕迅', '菲', '荣浩', '学友', '德华', '千嬅', '霄', '青峰')),
+       CONCAT(ELT(1 + FLOOR(RAND() * 8), 'Ed', 'Taylor', 'Billie', 'Bruno', 'Adele', 'Justin', 'Lady', 'Alan'),
+              ' ', ELT(1 + FLOOR(RAND() * 8), 'Sheeran', 'Swift', 'Eilish', 'Mars', 'Adkins', 'Bieber', 'Gaga', 'Walker'))),
+    CONCAT(IF(n % 2 = 0, '专辑', 'Album '), n % 50000),
+    180 + n % 120,
+    UUID(),
+    CONCAT('/bench/', n, '.mp3'),
+    4000000,
+    IF(n % 10 = 0, 0, 1),
+    FLOOR(RAND() * 100000),
+    1,
+    NOW() - INTERVAL n MINUTE
+FROM seq;
+
+ANALYZE TABLE `t_music_bench`;
+
+-- 全文索引单独创建，记录建索引耗时
+SET @start = NOW(6);
+ALTER TABLE `t_music_bench` ADD FULLTEXT INDEX `ft_music_search` (`music_name`, `artist`, `album`) WITH PARSER ngram;
+SELECT 'create fulltext index' AS step, TIMESTAMPDIFF(MICROSECOND, @start, NOW(6)) / 1000 AS ms;
+
+DROP PROCEDURE IF EXISTS `bench_search`;
+DELIMITER //
+CREATE PROCEDURE `bench_search`(IN keyword VARCHAR(100), IN runs INT)
+BEGIN
+    DECLARE i INT DEFAULT 0;
+    DECLARE like_count BIGINT;
+    DECLARE fulltext_count BIGINT;
+    DECLARE like_ms DOUBLE;
+    DECLARE fulltext_ms DOUBLE;
+    DECLARE phrase VARCHAR(110) DEFAULT CONCAT('"', REPLACE(keyword, '"', ' '), '"');
+
+    -- 与 searchMusic 的第一页（PageHelper LIMIT 20）一致
+    SET @start = NOW(6);
+    SET i = 0;
+    WHILE i < runs DO
+        SELECT COUNT(*) INTO like_count FROM (
+            SELECT id FROM t_music_bench
+            WHERE status = 1
+              AND (music_name LIKE CONCAT('%', keyword, '%')
+                OR artist LIKE CONCAT('%', keyword, '%')
+                OR album LIKE CONCAT('%', keyword, '%'))
+            ORDER BY create_time DESC
+            LIMIT 20) t;
+        SET i = i + 1;
+    END WHILE;
+    SET like_ms = TIMESTAMPDIFF(MICROSECOND, @start, NOW(6)) / 1000 / runs;
+
+    SET @start = NOW(6);
+    SET i = 0;
+    WHILE i < runs DO
+        SELECT COUNT(*) INTO fulltext_count FROM (
+            SELECT id FROM t_music_bench
+            WHERE MATCH(music_name, artist, album) AGAINST(phrase IN BOOLEAN MODE)
+              AND (music_name LIKE CONCAT('%', keyword, '%')
+                OR artist LIKE CONCAT('%', keyword, '%')
+                OR album LIKE CONCAT('%', keyword, '%'))
+              AND status = 1
+            ORDER BY create_time DESC
+            LIMIT 20) t;
+        SET i = i + 1;
+    END WHILE;
+    SET fulltext_ms = TIMESTAMPDIFF(MICROSECOND, @start, NOW(6)) / 1000 / runs;
+
+    -- 总数（countSearchMusicLimited 不设上限时的情况）
+    SELECT keyword,
+           like_ms AS like_page_ms,
+           fulltext_ms AS fulltext_page_ms,
+           (SELECT COUNT(*) FROM t_music_bench
+            WHERE status = 1
+              AND (music_name LIKE CONCAT('%', keyword, '%')
+                OR artist LIKE CONCAT('%', keyword, '%')
+                OR album LIKE CONCAT('%', keyword, '%'))) AS like_total,
+           (SELECT COUNT(*) FROM t_music_bench
+            WHERE MATCH(music_name, artist, album) AGAINST(phrase IN BOOLEAN MODE)
+              AND (music_name LIKE CONCAT('%', keyword, '%')
+                OR artist LIKE CONCAT('%', keyword, '%')
+                OR album LIKE CONCAT('%', keyword, '%'))
+              AND status = 1) AS fulltext_total;
+END //
+DELIMITER ;
+
+-- 常见词（命中多）、少见词（命中少）、不存在的词
+CALL bench_search('晴天', 5);
+CALL bench_search('周杰伦', 5);
+CALL bench_search('专辑4999', 5);
+CALL bench_search('Sheeran', 5);
+CALL bench_search('Blinding Lights', 5);
+CALL bench_search('不存在的歌', 5);
+
+-- 执行计划：LIKE 为全表扫描（type=ALL），FULLTEXT 使用 ft_music_search（type=fulltext）
+EXPLAIN SELECT id FROM t_music_bench
+WHERE status = 1 AND (music_name LIKE '%周杰伦%' OR artist LIKE '%周杰伦%' OR album LIKE '%周杰伦%')
+ORDER BY create_time DESC LIMIT 20;
+EXPLAIN SELECT id FROM t_music_bench
+WHERE MATCH(music_name, artist, album) AGAINST('"周杰伦"' IN BOOLEAN MODE)
+  AND (music_name LIKE '%周杰伦%' OR artist LIKE '%周杰伦%' OR album LIKE '%周杰伦%') AND status = 1
+ORDER BY create_time DESC LIMIT 20;
+
+DROP PROCEDURE IF EXISTS `bench_search`;
+-- 测试完成后可删除：DROP TABLE `t_music_bench`;
@@ -35,6 +35,16 @@ export function searchMusic(data) {
   return post(`${MUSIC_BASE_URL}/search`, data)
 }
 
+/**
+ * 搜索联想（输入时调用）
+ * @param {string} prefix - 已输入的内容（支持拼音、首字母）
+ * @param {number} [size] - 最多返回数量
+ * @returns {Promise<{code: number, message: string, data: Array<{text: string, type: string}>}>}
+ */
+export function suggestMusic(prefix, size) {
+  return get(`${MUSIC_BASE_URL}/suggest`, { prefix, size })
+}
+
 /**
  * 获取音乐详情
  * @param {number} musicId - 音乐 ID
@@ -96,6 +106,7 @@ export function getPlayHistory(params) {
 export default {
   getMusicList,
   searchMusic,
+  suggestMusic,
   getMusicDetail,
   getMusicPlayUrl,
   favoriteMusic,
@@ -70,6 +70,28 @@ public class Constants {
         public static final Integer OFFLINE = 2;
     }
 
+    /**
+     * 搜索排序方式
+     */
+    public static class SearchSort {
+        /** 按创建时间倒序 */
+        public static final String TIME = "time";
+        /** 按相关度（文本匹配度、热度、评分、新鲜度） */
+        public static final String RELEVANCE = "relevance";
+    }
+
+    /**
+     * 搜索分面维度
+     */
+    public static class SearchFacet {
+        /** 艺术家 */
+        public static final String ARTIST = "artist";
+        /** 专辑 */
+        public static final String ALBUM = "album";
+        /** 状态 */
+        public static final String STATUS = "status";
+    }
+
     /**
      * 文件类型
      */
@@ -1,7 +1,11 @@
 package com.music.common;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.music.vo.FacetVO;
+
 import java.io.Serializable;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 分页结果类
@@ -48,6 +52,24 @@ public class PageResult<T> implements Serializable {
      */
     private Boolean hasNext;
 
+    /**
+     * 下一页游标（游标分页时返回，没有下一页时为null）
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
+
+    /**
+     * 总数是否为截断值（仅截断时返回true，此时total表示"至少total条"，前端可显示为"1000+"）
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Boolean totalCapped;
+
+    /**
+     * 分面统计（仅搜索请求指定facets时返回，维度名称 -> 按数量倒序排列的取值）
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Map<String, List<FacetVO>> facets;
+
     /**
      * 无参构造函数
      */
@@ -107,6 +129,45 @@ public class PageResult<T> implements Serializable {
         return new PageResult<>(0L, page, size, List.of());
     }
 
+    /**
+     * 静态工厂方法 - 创建总数可能被截断的分页结果
+     *
+     * @param total  总记录数（截断时为统计上限）
+     * @param capped 总数是否被截断
+     * @param page   当前页码
+     * @param size   每页数量
+     * @param list   数据列表
+     * @return 分页结果对象
+     */
+    public static <T> PageResult<T> ofCapped(Long total, boolean capped, Integer page, Integer size, List<T> list) {
+        PageResult<T> result = new PageResult<>(total, page, size, list);
+        if (capped) {
+            result.totalCapped = true;
+            if (list.size() >= size) {
+                // 截断时上限之后仍有数据
+                result.hasNext = true;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 静态工厂方法 - 创建游标分页结果（不统计总数）
+     *
+     * @param size       每页数量
+     * @param list       数据列表
+     * @param nextCursor 下一页游标，没有下一页时为null
+     * @return 分页结果对象
+     */
+    public static <T> PageResult<T> ofCursor(Integer size, List<T> list, String nextCursor) {
+        PageResult<T> result = new PageResult<>();
+        result.size = size;
+        result.list = list;
+        result.nextCursor = nextCursor;
+        result.hasNext = nextCursor != null;
+        return result;
+    }
+
     /**
      * 计算总页数
      *
@@ -207,6 +268,30 @@ public class PageResult<T> implements Serializable {
         this.hasNext = hasNext;
     }
 
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public Boolean getTotalCapped() {
+        return totalCapped;
+    }
+
+    public void setTotalCapped(Boolean totalCapped) {
+        this.totalCapped = totalCapped;
+    }
+
+    public Map<String, List<FacetVO>> getFacets() {
+        return facets;
+    }
+
+    public void setFacets(Map<String, List<FacetVO>> facets) {
+        this.facets = facets;
+    }
+
     /**
      * 更新导航标志
      */
@@ -227,6 +312,8 @@ public class PageResult<T> implements Serializable {
                 ", listSize=" + (list != null ? list.size() : 0) +
                 ", hasPrevious=" + hasPrevious +
                 ", hasNext=" + hasNext +
+                ", nextCursor='" + nextCursor + '\'' +
+                ", totalCapped=" + totalCapped +
                 '}';
     }
 }
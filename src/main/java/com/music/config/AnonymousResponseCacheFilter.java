@@ -0,0 +1,250 @@
+package com.music.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.music.service.CatalogVersionService;
+import com.music.util.LocalCache;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 游客响应字节缓存
+ * 游客（无Authorization请求头）访问音乐列表、音乐详情和单曲数据时，响应内容对所有人相同，
+ * 这里缓存最终编码好的响应字节（原始和gzip两份），命中时直接写入输出流，不再组装VO和执行JSON序列化。
+ * <p>
+ * 缓存键 = 请求路径 + 排序后的查询参数 + 曲库版本号（单曲数据不随曲库版本变化，只依靠较短的过期时间）；
+ * 只缓存HTTP 200且业务码为200的响应，同时保存ETag、Cache-Control等响应头，命中时同样支持 If-None-Match 返回304。
+ * 该过滤器位于Spring Security过滤器链之后，命中缓存的请求仍经过鉴权和安全响应头处理。
+ */
+@Slf4j
+@Component
+public class AnonymousResponseCacheFilter extends OncePerRequestFilter {
+
+    private static final String GZIP = "gzip";
+
+    private static final String[] CACHED_HEADERS = {
+            HttpHeaders.ETAG, HttpHeaders.CACHE_CONTROL, HttpHeaders.VARY
+    };
+
+    private final CatalogVersionService catalogVersionService;
+    private final ObjectMapper objectMapper;
+    private final LocalCache<String, CachedResponse> cache;
+
+    @Value("${cache.response.enabled:true}")
+    private boolean enabled;
+
+    public AnonymousResponseCacheFilter(CatalogVersionService catalogVersionService,
+                                        ObjectMapper objectMapper,
+                                        @Value("${cache.response.max-size:2000}") int maxSize,
+                                        @Value("${cache.response.expire-seconds:5}") long expireSeconds) {
+        this.catalogVersionService = catalogVersionService;
+        this.objectMapper = objectMapper;
+        this.cache = new LocalCache<>(maxSize, expireSeconds * 1000);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!enabled || !HttpMethod.GET.matches(request.getMethod())
+                || StringUtils.hasText(request.getHeader(HttpHeaders.AUTHORIZATION))) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !path.equals("/music/list")
+                && !path.startsWith("/music/detail/")
+                && !path.startsWith("/rate/music/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+
+        String key;
+        try {
+            key = buildKey(request);
+        } catch (Exception e) {
+            // 曲库版本读取失败时不使用缓存
+            log.debug("游客响应缓存不可用: {}", e.getMessage());
+            chain.doFilter(request, response);
+            return;
+        }
+
+        // 命中时可能返回gzip内容，未命中时同样声明，保证代理按编码区分缓存
+        mergeVary(response, HttpHeaders.ACCEPT_ENCODING);
+
+        CachedResponse cached = cache.get(key);
+        if (cached != null) {
+            write(request, response, cached);
+            return;
+        }
+
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        try {
+            chain.doFilter(request, wrapper);
+            // 下游用 setHeader 覆盖了 Vary 时补回 Accept-Encoding，缓存的响应头同样包含它
+            mergeVary(wrapper, HttpHeaders.ACCEPT_ENCODING);
+            cached = capture(wrapper);
+            if (cached != null) {
+                cache.put(key, cached);
+            }
+        } finally {
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    /**
+     * 获取缓存状态
+     *
+     * @return 条目数、命中/未命中次数等
+     */
+    public Map<String, Object> stats() {
+        return cache.stats();
+    }
+
+    private String buildKey(HttpServletRequest request) {
+        StringBuilder key = new StringBuilder(request.getRequestURI());
+        Map<String, String[]> params = new TreeMap<>(request.getParameterMap());
+        char separator = '?';
+        for (Map.Entry<String, String[]> entry : params.entrySet()) {
+            for (String value : entry.getValue()) {
+                key.append(separator).append(entry.getKey()).append('=').append(value);
+                separator = '&';
+            }
+        }
+        if (request.getRequestURI().startsWith(request.getContextPath() + "/music/")) {
+            key.append('#').append(catalogVersionService.getVersion());
+        }
+        return key.toString();
+    }
+
+    /**
+     * 从响应中提取可缓存的内容，不满足条件时返回null
+     */
+    private CachedResponse capture(ContentCachingResponseWrapper wrapper) throws IOException {
+        byte[] body = wrapper.getContentAsByteArray();
+        if (wrapper.getStatus() != HttpServletResponse.SC_OK || body.length == 0
+                || objectMapper.readTree(body).path("code").asInt() != 200) {
+            return null;
+        }
+
+        String[] headers = new String[CACHED_HEADERS.length];
+        for (int i = 0; i < CACHED_HEADERS.length; i++) {
+            Collection<String> values = wrapper.getHeaders(CACHED_HEADERS[i]);
+            headers[i] = values.isEmpty() ? null : String.join(", ", values);
+        }
+        byte[] gzipped = gzip(body);
+        return new CachedResponse(wrapper.getContentType(), headers, body,
+                gzipped.length < body.length ? gzipped : null);
+    }
+
+    private void write(HttpServletRequest request, HttpServletResponse response, CachedResponse cached)
+            throws IOException {
+
+        for (int i = 0; i < CACHED_HEADERS.length; i++) {
+            if (cached.headers[i] == null) {
+                continue;
+            }
+            if (HttpHeaders.VARY.equals(CACHED_HEADERS[i])) {
+                mergeVary(response, cached.headers[i]);
+            } else {
+                response.setHeader(CACHED_HEADERS[i], cached.headers[i]);
+            }
+        }
+
+        String etag = cached.headers[0];
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (etag != null && ifNoneMatch != null && matches(ifNoneMatch, etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        byte[] body = cached.body;
+        String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (cached.gzipBody != null && acceptEncoding != null && acceptEncoding.contains(GZIP)) {
+            body = cached.gzipBody;
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, GZIP);
+        }
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(cached.contentType);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    /**
+     * 把字段合并进已有的 Vary 响应头（忽略大小写去重），不覆盖已声明的字段
+     */
+    private static void mergeVary(HttpServletResponse response, String value) {
+        Set<String> lowerCase = new LinkedHashSet<>();
+        StringBuilder merged = new StringBuilder();
+        for (String header : response.getHeaders(HttpHeaders.VARY)) {
+            appendVary(merged, lowerCase, header);
+        }
+        appendVary(merged, lowerCase, value);
+        response.setHeader(HttpHeaders.VARY, merged.toString());
+    }
+
+    private static void appendVary(StringBuilder merged, Set<String> lowerCase, String header) {
+        for (String field : header.split(",")) {
+            String trimmed = field.trim();
+            if (!trimmed.isEmpty() && lowerCase.add(trimmed.toLowerCase(Locale.ROOT))) {
+                if (merged.length() > 0) {
+                    merged.append(", ");
+                }
+                merged.append(trimmed);
+            }
+        }
+    }
+
+    private static boolean matches(String ifNoneMatch, String etag) {
+        String opaque = etag.startsWith("W/") ? etag.substring(2) : etag;
+        return Arrays.stream(ifNoneMatch.split(","))
+                .map(String::trim)
+                .map(tag -> tag.startsWith("W/") ? tag.substring(2) : tag)
+                .anyMatch(tag -> tag.equals("*") || tag.equals(opaque));
+    }
+
+    private static byte[] gzip(byte[] body) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(body);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * 已编码的响应
+     */
+    private static final class CachedResponse {
+        private final String contentType;
+        private final String[] headers;
+        private final byte[] body;
+        /** gzip压缩后的响应体，压缩后不更小时为null */
+        private final byte[] gzipBody;
+
+        private CachedResponse(String contentType, String[] headers, byte[] body, byte[] gzipBody) {
+            this.contentType = contentType;
+            this.headers = headers;
+            this.body = body;
+            this.gzipBody = gzipBody;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.music.config;
+
+import com.music.service.CacheService;
+import com.music.service.MusicService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * 启动缓存预热
+ * 在应用就绪之前执行（ApplicationRunner全部完成后才会发布ApplicationReadyEvent，
+ * 就绪探针 /actuator/health/readiness 此时才变为UP），滚动发布时新节点以热缓存接收流量。
+ * 可选：停机时把本地L1写入快照文件，下次启动时先恢复快照。
+ * 预热失败只记录日志，不阻止应用启动。
+ */
+@Slf4j
+@Component
+public class CacheWarmUpRunner implements ApplicationRunner {
+
+    private final CacheService cacheService;
+    private final MusicService musicService;
+
+    @Value("${cache.warm-up.enabled:true}")
+    private boolean warmUpEnabled;
+
+    @Value("${cache.warm-up.top-n:200}")
+    private int topN;
+
+    @Value("${cache.warm-up.list-pages:3}")
+    private int listPages;
+
+    @Value("${cache.warm-up.list-page-size:10}")
+    private int listPageSize;
+
+    @Value("${cache.snapshot.enabled:false}")
+    private boolean snapshotEnabled;
+
+    @Value("${cache.snapshot.path:./data/cache-snapshot.json}")
+    private String snapshotPath;
+
+    public CacheWarmUpRunner(CacheService cacheService, MusicService musicService) {
+        this.cacheService = cacheService;
+        this.musicService = musicService;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        long start = System.currentTimeMillis();
+
+        // 1. 恢复本地缓存快照
+        if (snapshotEnabled) {
+            try {
+                int restored = cacheService.restoreSnapshot(snapshotFile());
+                log.info("本地缓存快照恢复完成: entries={}", restored);
+            } catch (Exception e) {
+                log.warn("本地缓存快照恢复失败: {}", e.getMessage());
+            }
+        }
+
+        if (!warmUpEnabled) {
+            return;
+        }
+
+        // 2. 预热热门音乐详情
+        try {
+            int count = musicService.warmUpMusicDetails(topN);
+            log.info("热门音乐详情预热完成: count={}", count);
+        } catch (Exception e) {
+            log.warn("热门音乐详情预热失败: {}", e.getMessage());
+        }
+
+        // 3. 预热列表前几页
+        try {
+            musicService.warmUpMusicList(listPages, listPageSize);
+            log.info("音乐列表预热完成: pages={}, size={}", listPages, listPageSize);
+        } catch (Exception e) {
+            log.warn("音乐列表预热失败: {}", e.getMessage());
+        }
+
+        log.info("缓存预热结束: cost={}ms", System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 停机时写入本地缓存快照
+     */
+    @EventListener(ContextClosedEvent.class)
+    public void onContextClosed() {
+        if (!snapshotEnabled) {
+            return;
+        }
+        try {
+            int written = cacheService.writeSnapshot(snapshotFile());
+            log.info("本地缓存快照已写入: entries={}", written);
+        } catch (Exception e) {
+            log.warn("本地缓存快照写入失败: {}", e.getMessage());
+        }
+    }
+
+    private Path snapshotFile() {
+        return Paths.get(snapshotPath);
+    }
+}
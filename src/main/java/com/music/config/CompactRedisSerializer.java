@@ -0,0 +1,80 @@
+package com.music.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * Redis值序列化器
+ * 写入时可选JSON或Smile（二进制JSON，属性名和重复的类名以回溯引用编码，日期写为数字）；
+ * 读取时根据Smile数据头（":)\n"）自动识别格式，因此切换为Smile后已有的JSON缓存仍可正常读取。
+ * <p>
+ * 迁移步骤：先以json格式发布新版本（所有节点都能读取两种格式），再把 cache.redis.format 改为smile。
+ */
+public class CompactRedisSerializer implements RedisSerializer<Object> {
+
+    public static final String FORMAT_SMILE = "smile";
+
+    private static final byte[] SMILE_HEADER = {':', ')', '\n'};
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final ObjectMapper jsonMapper;
+
+    private final ObjectMapper smileMapper;
+
+    private final boolean writeSmile;
+
+    /**
+     * 构造函数
+     *
+     * @param writeSmile 是否以Smile格式写入（false时写入JSON，与原有格式一致）
+     */
+    public CompactRedisSerializer(boolean writeSmile) {
+        this.writeSmile = writeSmile;
+        this.jsonMapper = RedisConfig.createObjectMapper();
+
+        SmileFactory smileFactory = SmileFactory.builder()
+                .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+                .build();
+        this.smileMapper = RedisConfig.configureObjectMapper(new ObjectMapper(smileFactory));
+    }
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return EMPTY;
+        }
+        try {
+            return (writeSmile ? smileMapper : jsonMapper).writeValueAsBytes(value);
+        } catch (Exception e) {
+            throw new SerializationException("缓存值序列化失败: " + e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length == 0) {
+            return null;
+        }
+        try {
+            return (isSmile(bytes) ? smileMapper : jsonMapper).readValue(bytes, Object.class);
+        } catch (Exception e) {
+            throw new SerializationException("缓存值反序列化失败: " + e.getMessage(), e);
+        }
+    }
+
+    private static boolean isSmile(byte[] bytes) {
+        if (bytes.length < SMILE_HEADER.length) {
+            return false;
+        }
+        for (int i = 0; i < SMILE_HEADER.length; i++) {
+            if (bytes[i] != SMILE_HEADER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,18 +1,30 @@
 package com.music.config;
 
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.jsontype.BasicPolymorphicTypeValidator;
+import com.fasterxml.jackson.databind.jsontype.PolymorphicTypeValidator;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
-import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 @Configuration
 public class RedisConfig {
 
+    /**
+     * 缓存值写入格式：json 或 smile（读取时两种格式都支持）
+     */
+    @Value("${cache.redis.format:json}")
+    private String redisFormat;
+
     @Bean
     public RedisTemplate<String, Object> redisTemplate(RedisConnectionFactory connectionFactory) {
         RedisTemplate<String, Object> template = new RedisTemplate<>();
@@ -23,19 +35,86 @@ public class RedisConfig {
         template.setKeySerializer(stringSerializer);
         template.setHashKeySerializer(stringSerializer);
 
+        // 值序列化器：按配置写入JSON或Smile，读取时根据数据头自动识别，兼容已有的JSON缓存
+        CompactRedisSerializer valueSerializer = new CompactRedisSerializer(
+                CompactRedisSerializer.FORMAT_SMILE.equalsIgnoreCase(redisFormat));
+
+        template.setValueSerializer(valueSerializer);
+        template.setHashValueSerializer(valueSerializer);
+
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    /**
+     * 创建缓存值使用的 ObjectMapper（Redis值序列化和本地缓存快照共用）
+     * 不注册为Bean，避免替换Spring MVC使用的默认 ObjectMapper
+     */
+    public static ObjectMapper createObjectMapper() {
+        ObjectMapper objectMapper = configureObjectMapper(new ObjectMapper());
+        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        return objectMapper;
+    }
+
+    /**
+     * 缓存值 ObjectMapper 的公共配置（JSON和Smile共用）
+     *
+     * @param objectMapper 待配置的 ObjectMapper
+     * @return 配置后的 ObjectMapper
+     */
+    static ObjectMapper configureObjectMapper(ObjectMapper objectMapper) {
         // 配置 ObjectMapper 支持 Java 8 日期时间
-        ObjectMapper objectMapper = new ObjectMapper();
         objectMapper.registerModule(new JavaTimeModule());
-        objectMapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        objectMapper.disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
 
-        // 使用自定义的 ObjectMapper 创建序列化器
-        GenericJackson2JsonRedisSerializer jsonSerializer =
-                new GenericJackson2JsonRedisSerializer(objectMapper);
+        // 写入类型信息，读取时还原为原始类型（否则会被反序列化为 LinkedHashMap），仅允许项目类和JDK类型
+        BasicPolymorphicTypeValidator typeValidator = BasicPolymorphicTypeValidator.builder()
+                .allowIfSubType("com.music.")
+                .allowIfSubType("java.")
+                .allowIfSubTypeIsArray()
+                .build();
+        objectMapper.setDefaultTyping(new CacheTypeResolverBuilder(typeValidator)
+                .init(JsonTypeInfo.Id.CLASS, null)
+                .inclusion(JsonTypeInfo.As.PROPERTY));
+        return objectMapper;
+    }
 
-        template.setValueSerializer(jsonSerializer);
-        template.setHashValueSerializer(jsonSerializer);
+    /**
+     * 缓存值的类型信息规则：在 NON_FINAL 的基础上，final 类型（Long、LocalDateTime、long[]、final 的项目类等）也写入类型信息
+     * 缓存值以 Object 读取，final 类型不带类型信息时会被还原为 Integer、List 或 LinkedHashMap；
+     * 写出的格式与原先的 DefaultTyping.EVERYTHING 一致，已有缓存无需清理
+     */
+    static final class CacheTypeResolverBuilder extends ObjectMapper.DefaultTypeResolverBuilder {
 
-        template.afterPropertiesSet();
-        return template;
+        CacheTypeResolverBuilder(PolymorphicTypeValidator typeValidator) {
+            super(ObjectMapper.DefaultTyping.NON_FINAL, typeValidator);
+        }
+
+        @Override
+        public boolean useForType(JavaType type) {
+            if (super.useForType(type)) {
+                return true;
+            }
+            while (type.isArrayType()) {
+                type = type.getContentType();
+            }
+            return type.isFinal();
+        }
+    }
+
+    /**
+     * Redis消息监听容器（用于跨节点的缓存失效通知）
+     */
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(RedisConnectionFactory connectionFactory) {
+        // Redis不可用时不阻塞应用启动，订阅与断线重连由 RedisListenerGuard 负责
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer() {
+            @Override
+            public boolean isAutoStartup() {
+                return false;
+            }
+        };
+        container.setConnectionFactory(connectionFactory);
+        return container;
     }
 }
@@ -0,0 +1,47 @@
+package com.music.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Redis订阅守护
+ * 应用启动完成后开始订阅，订阅失败（如Redis不可用）时定期重试，避免影响应用启动
+ */
+@Slf4j
+@Component
+public class RedisListenerGuard {
+
+    private final RedisMessageListenerContainer listenerContainer;
+
+    public RedisListenerGuard(RedisMessageListenerContainer listenerContainer) {
+        this.listenerContainer = listenerContainer;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        ensureListening();
+    }
+
+    /**
+     * 检查订阅状态，未在监听时重新订阅
+     */
+    @Scheduled(fixedDelayString = "${cache.listener.retry-millis:10000}")
+    public void ensureListening() {
+        if (listenerContainer.isListening()) {
+            return;
+        }
+        try {
+            if (listenerContainer.isRunning()) {
+                listenerContainer.stop();
+            }
+            listenerContainer.start();
+            log.info("Redis消息订阅已启动");
+        } catch (Exception e) {
+            log.warn("Redis消息订阅启动失败，稍后重试: {}", e.getMessage());
+        }
+    }
+}
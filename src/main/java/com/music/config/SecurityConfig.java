@@ -83,12 +83,14 @@ public class SecurityConfig {
                 .authorizeHttpRequests(auth -> auth
                         .requestMatchers("/auth/**").permitAll()
                         .requestMatchers("/music/list", "/music/search", "/music/detail/**").permitAll()
+                        .requestMatchers("/music/list/cursor", "/music/search/cursor", "/music/suggest").permitAll()
                         .requestMatchers("/user/**").hasAuthority("user")
                         .requestMatchers("/actor/**").hasAuthority("actor")
                         .requestMatchers("/admin/**").hasAuthority("admin")
                         .requestMatchers("/rate/music/**").permitAll()
                         .requestMatchers("/rate/artist/**").permitAll()
                         .requestMatchers("/files/**").permitAll()
+                        .requestMatchers("/actuator/health/**").permitAll()
                         .anyRequest().authenticated()
                 )
                 .addFilterBefore(jwtFilter(), UsernamePasswordAuthenticationFilter.class);
@@ -4,12 +4,21 @@ package com.music.controller;
 import com.music.common.Constants;
 import com.music.common.PageResult;
 import com.music.common.Result;
+import com.music.config.AnonymousResponseCacheFilter;
 import com.music.entity.User;
 import com.music.mapper.UserMapper;
+import com.music.service.CacheService;
+import com.music.service.MusicIdFilterService;
+import com.music.service.MusicSearchCacheService;
+import com.music.service.MusicSearchIndexService;
 import com.music.service.MusicService;
 import com.music.vo.MusicVO;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 
 @RestController
 @RequestMapping("/admin")
@@ -18,11 +27,25 @@ public class AdminController {
     private final long userId = 0L;
     private final UserMapper userMapper;
     private final MusicService musicService;
+    private final CacheService cacheService;
+    private final MusicIdFilterService musicIdFilterService;
+    private final AnonymousResponseCacheFilter responseCacheFilter;
+    private final MusicSearchIndexService musicSearchIndexService;
+    private final MusicSearchCacheService musicSearchCacheService;
 
 
-    public AdminController(UserMapper userMapper, MusicService musicService) {
+    public AdminController(UserMapper userMapper, MusicService musicService, CacheService cacheService,
+                           MusicIdFilterService musicIdFilterService,
+                           AnonymousResponseCacheFilter responseCacheFilter,
+                           MusicSearchIndexService musicSearchIndexService,
+                           MusicSearchCacheService musicSearchCacheService) {
         this.userMapper = userMapper;
         this.musicService = musicService;
+        this.cacheService = cacheService;
+        this.musicIdFilterService = musicIdFilterService;
+        this.responseCacheFilter = responseCacheFilter;
+        this.musicSearchIndexService = musicSearchIndexService;
+        this.musicSearchCacheService = musicSearchCacheService;
     }
 
 
@@ -67,4 +90,23 @@ public class AdminController {
         musicService.deleteMusic(musicId, userId);
         return Result.success();
     }
+    /**
+     * 缓存命中统计
+     */
+    @GetMapping("/cache/stats")
+    public Result<Map<String, Object>> cacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>(cacheService.stats());
+        stats.put("musicIdFilter", musicIdFilterService.stats());
+        stats.put("anonymousResponse", responseCacheFilter.stats());
+        stats.put("searchIndex", musicSearchIndexService.stats());
+        stats.put("searchResult", musicSearchCacheService.stats());
+        return Result.success(stats);
+    }
+    /**
+     * 当前热点key
+     */
+    @GetMapping("/cache/hot-keys")
+    public Result<List<Map<String, Object>>> hotKeys() {
+        return Result.success(musicService.getHotKeys());
+    }
 }
\ No newline at end of file
@@ -6,9 +6,14 @@ import com.music.dto.MusicSearchDTO;
 import com.music.service.MusicService;
 import com.music.util.JwtUtil;
 import com.music.vo.MusicDetailVO;
+import com.music.vo.MusicSuggestVO;
 import com.music.vo.MusicVO;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -18,6 +23,12 @@ public class MusicController {
     private final MusicService musicService;
     private final JwtUtil jwtUtil;
 
+    /**
+     * 游客请求的缓存时间（秒），允许反向代理在此期间直接返回
+     */
+    @Value("${cache.http.anonymous-max-age-seconds:30}")
+    private int anonymousMaxAge;
+
     public MusicController(MusicService musicService, JwtUtil jwtUtil) {
         this.musicService = musicService;
         this.jwtUtil = jwtUtil;
@@ -30,12 +41,29 @@ public class MusicController {
     public Result<PageResult<MusicVO>> list(@RequestParam Integer page,
                                             @RequestParam Integer size,
                                             @RequestParam(required = false) Integer status,
-                                            @RequestHeader(value = "Authorization", required = false) String authorization) {
+                                            @RequestHeader(value = "Authorization", required = false) String authorization,
+                                            ServletWebRequest webRequest) {
 
         Long userId = extractUserId(authorization);
+        if (checkNotModified(webRequest, musicService.getMusicListETag(page, size, status, userId), userId)) {
+            return null;
+        }
         return Result.success(musicService.getMusicList(page, size, status, userId));
     }
 
+    /**
+     * 音乐列表（游标分页，适用于无限滚动）
+     */
+    @GetMapping("/list/cursor")
+    public Result<PageResult<MusicVO>> listByCursor(@RequestParam(required = false) String cursor,
+                                                    @RequestParam(required = false) Integer size,
+                                                    @RequestParam(required = false) Integer status,
+                                                    @RequestHeader(value = "Authorization", required = false) String authorization) {
+
+        Long userId = extractUserId(authorization);
+        return Result.success(musicService.getMusicListByCursor(cursor, size, status, userId));
+    }
+
     /**
      * 音乐搜索
      */
@@ -47,14 +75,39 @@ public class MusicController {
         return Result.success(musicService.searchMusic(dto, userId));
     }
 
+    /**
+     * 音乐搜索（游标分页）
+     */
+    @PostMapping("/search/cursor")
+    public Result<PageResult<MusicVO>> searchByCursor(@RequestBody MusicSearchDTO dto,
+                                                      @RequestHeader(value = "Authorization", required = false) String authorization) {
+
+        Long userId = extractUserId(authorization);
+        return Result.success(musicService.searchMusicByCursor(dto, userId));
+    }
+
+    /**
+     * 输入联想（搜索框每次输入时调用）
+     */
+    @GetMapping("/suggest")
+    public Result<List<MusicSuggestVO>> suggest(@RequestParam String prefix,
+                                                @RequestParam(required = false) Integer size) {
+
+        return Result.success(musicService.suggest(prefix, size));
+    }
+
     /**
      * 音乐详情
      */
     @GetMapping("/detail/{musicId}")
     public Result<MusicDetailVO> detail(@PathVariable Long musicId,
-                                        @RequestHeader(value = "Authorization", required = false) String authorization) {
+                                        @RequestHeader(value = "Authorization", required = false) String authorization,
+                                        ServletWebRequest webRequest) {
 
         Long userId = extractUserId(authorization);
+        if (checkNotModified(webRequest, musicService.getMusicDetailETag(musicId, userId), userId)) {
+            return null;
+        }
         return Result.success(musicService.getMusicDetail(musicId, userId));
     }
 
@@ -105,6 +158,18 @@ public class MusicController {
         return Result.success(musicService.getFavoriteList(userId, page, size));
     }
 
+    /**
+     * 收藏列表（游标分页）
+     */
+    @GetMapping("/favorite/cursor")
+    public Result<PageResult<MusicVO>> favoriteListByCursor(@RequestParam(required = false) String cursor,
+                                                            @RequestParam(required = false) Integer size,
+                                                            @RequestHeader("Authorization") String authorization) {
+
+        Long userId = jwtUtil.getUserIdFromToken(jwtUtil.extractToken(authorization));
+        return Result.success(musicService.getFavoriteListByCursor(userId, cursor, size));
+    }
+
     /**
      * 播放历史
      */
@@ -117,6 +182,34 @@ public class MusicController {
         return Result.success(musicService.getPlayHistory(userId, page, size));
     }
 
+    /**
+     * 播放历史（游标分页）
+     */
+    @GetMapping("/history/cursor")
+    public Result<PageResult<MusicVO>> historyByCursor(@RequestParam(required = false) String cursor,
+                                                       @RequestParam(required = false) Integer size,
+                                                       @RequestHeader("Authorization") String authorization) {
+
+        Long userId = jwtUtil.getUserIdFromToken(jwtUtil.extractToken(authorization));
+        return Result.success(musicService.getPlayHistoryByCursor(userId, cursor, size));
+    }
+
+    /**
+     * 工具方法：设置缓存相关响应头，并根据 If-None-Match 判断是否返回 304
+     * 游客请求允许公共缓存；登录用户的响应包含收藏状态，只允许客户端缓存且每次需校验
+     */
+    private boolean checkNotModified(ServletWebRequest webRequest, String etag, Long userId) {
+        if (etag == null) {
+            return false;
+        }
+        // 追加而不是覆盖：游客响应缓存过滤器已声明 Vary: Accept-Encoding
+        webRequest.getResponse().addHeader(HttpHeaders.VARY, HttpHeaders.AUTHORIZATION);
+        webRequest.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, userId == null
+                ? "public, max-age=" + anonymousMaxAge
+                : "private, no-cache");
+        return webRequest.checkNotModified(etag);
+    }
+
     /**
      * 工具方法：游客返回 null
      */
@@ -14,4 +14,14 @@ public class MusicSearchDTO {
     private Integer status;
     private Integer page = 1;
     private Integer size = 20;
+    /** 总数统计上限（为空时精确统计，超过上限时返回截断的总数） */
+    private Integer countLimit;
+    /** 游标（仅游标分页搜索使用，为空表示第一页） */
+    private String cursor;
+    /** 是否对keyword做模糊匹配（拼音、首字母、错别字容错），需要搜索索引可用 */
+    private Boolean fuzzy;
+    /** 排序方式：time（默认，按创建时间倒序）/ relevance（按相关度，需要搜索索引可用，游标分页不支持） */
+    private String sort;
+    /** 是否返回艺术家、专辑、状态的分面统计（需要搜索索引可用，游标分页不支持） */
+    private Boolean facets;
 }
@@ -5,6 +5,7 @@ import com.music.entity.Music;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -47,6 +48,14 @@ public interface FavoriteMapper {
      */
     Favorite findByUserIdAndMusicId(@Param("userId") Long userId, @Param("musicId") Long musicId);
 
+    /**
+     * 查询用户收藏的全部音乐ID
+     *
+     * @param userId 用户ID
+     * @return 音乐ID列表
+     */
+    List<Long> findMusicIdsByUserId(@Param("userId") Long userId);
+
     /**
      * 根据用户ID查询收藏的音乐列表
      *
@@ -55,6 +64,20 @@ public interface FavoriteMapper {
      */
     List<Music> findMusicByUserId(@Param("userId") Long userId);
 
+    /**
+     * 根据用户ID查询收藏记录（游标分页，按收藏时间、收藏ID倒序）
+     *
+     * @param userId     用户ID
+     * @param cursorTime 游标时间（null表示第一页）
+     * @param cursorId   游标收藏ID
+     * @param limit      查询条数
+     * @return 收藏记录列表
+     */
+    List<Favorite> findByUserIdAfterCursor(@Param("userId") Long userId,
+                                           @Param("cursorTime") LocalDateTime cursorTime,
+                                           @Param("cursorId") Long cursorId,
+                                           @Param("limit") Integer limit);
+
     /**
      * 统计用户收藏数量
      *
@@ -63,6 +86,14 @@ public interface FavoriteMapper {
      */
     Long countByUserId(@Param("userId") Long userId);
 
+    /**
+     * 查询收藏了该音乐的用户ID
+     *
+     * @param musicId 音乐ID
+     * @return 用户ID列表
+     */
+    List<Long> findUserIdsByMusicId(@Param("musicId") Long musicId);
+
     /**
      * 统计音乐被收藏数量
      *
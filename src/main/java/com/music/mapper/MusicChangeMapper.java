@@ -0,0 +1,48 @@
+package com.music.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 曲库变更记录Mapper
+ * 每次音乐新增、修改、审核、删除、评分时记录一条，搜索索引快照据此只回放快照之后的变更
+ */
+@Mapper
+public interface MusicChangeMapper {
+
+    /**
+     * 记录变更（与业务写入在同一事务中）
+     *
+     * @param musicId 音乐ID
+     * @return 影响行数
+     */
+    int insert(@Param("musicId") Long musicId);
+
+    /**
+     * 当前最大变更序号
+     *
+     * @return 最大序号，没有记录时返回null
+     */
+    Long selectMaxSeq();
+
+    /**
+     * 查询序号大于seq或在since之后记录的变更涉及的音乐ID
+     *
+     * @param seq   快照的变更序号
+     * @param since 快照创建时间减去安全余量（覆盖序号较小但提交较晚的事务）
+     * @return 去重后的音乐ID（升序）
+     */
+    List<Long> selectChangedSince(@Param("seq") long seq, @Param("since") LocalDateTime since);
+
+    /**
+     * 删除过期的变更记录
+     *
+     * @param before 删除该时间之前的记录
+     * @param limit  单次最多删除的行数
+     * @return 删除行数
+     */
+    int deleteBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
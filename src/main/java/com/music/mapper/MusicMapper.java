@@ -3,8 +3,12 @@ package com.music.mapper;
 import com.music.entity.Music;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 音乐Mapper接口
@@ -44,11 +48,19 @@ public interface MusicMapper {
      */
     Music findById(@Param("id") Long id);
 
+    /**
+     * 根据ID批量查询音乐（不保证顺序）
+     *
+     * @param ids 音乐ID集合（不能为空）
+     * @return 音乐列表（只包含列表字段）
+     */
+    List<Music> findByIds(@Param("ids") Collection<Long> ids);
+
     /**
      * 根据状态查询音乐列表
      *
      * @param status 状态（null表示查询所有）
-     * @return 音乐列表
+     * @return 音乐列表（只包含列表字段）
      */
     List<Music> findByStatus(@Param("status") Integer status);
 
@@ -60,7 +72,7 @@ public interface MusicMapper {
      * @param artist    艺术家
      * @param album     专辑
      * @param status    状态
-     * @return 音乐列表
+     * @return 音乐列表（只包含列表字段）
      */
     List<Music> searchMusic(@Param("keyword") String keyword,
                             @Param("musicName") String musicName,
@@ -68,6 +80,42 @@ public interface MusicMapper {
                             @Param("album") String album,
                             @Param("status") Integer status);
 
+    /**
+     * 根据状态查询音乐列表（游标分页，按创建时间、ID倒序）
+     *
+     * @param status     状态（null表示查询所有）
+     * @param cursorTime 游标时间（null表示第一页）
+     * @param cursorId   游标ID
+     * @param limit      查询条数
+     * @return 音乐列表（只包含列表字段）
+     */
+    List<Music> findByStatusAfterCursor(@Param("status") Integer status,
+                                        @Param("cursorTime") LocalDateTime cursorTime,
+                                        @Param("cursorId") Long cursorId,
+                                        @Param("limit") Integer limit);
+
+    /**
+     * 搜索音乐（游标分页，按创建时间、ID倒序）
+     *
+     * @param keyword    关键词
+     * @param musicName  音乐名
+     * @param artist     艺术家
+     * @param album      专辑
+     * @param status     状态
+     * @param cursorTime 游标时间（null表示第一页）
+     * @param cursorId   游标ID
+     * @param limit      查询条数
+     * @return 音乐列表（只包含列表字段）
+     */
+    List<Music> searchMusicAfterCursor(@Param("keyword") String keyword,
+                                       @Param("musicName") String musicName,
+                                       @Param("artist") String artist,
+                                       @Param("album") String album,
+                                       @Param("status") Integer status,
+                                       @Param("cursorTime") LocalDateTime cursorTime,
+                                       @Param("cursorId") Long cursorId,
+                                       @Param("limit") Integer limit);
+
     /**
      * 根据上传用户ID查询音乐列表
      *
@@ -94,6 +142,37 @@ public interface MusicMapper {
      */
     int updatePlayCount(@Param("id") Long id, @Param("playCount") Long playCount);
 
+    /**
+     * 批量累加播放次数（一条UPDATE语句）
+     *
+     * @param deltas 音乐ID -> 增量
+     * @return 影响行数
+     */
+    int incrementPlayCounts(@Param("deltas") Map<Long, Long> deltas);
+
+    /**
+     * 查询播放次数最多的音乐
+     *
+     * @param status 状态
+     * @param limit  查询条数
+     * @return 音乐列表（按播放次数倒序）
+     */
+    List<Music> findTopByPlayCount(@Param("status") Integer status, @Param("limit") Integer limit);
+
+    /**
+     * 流式遍历所有音乐ID（逐行回调，不把结果集整体加载到内存）
+     *
+     * @param handler 结果处理器
+     */
+    void scanAllIds(ResultHandler<Long> handler);
+
+    /**
+     * 流式遍历所有音乐的搜索字段（ID、名称、艺术家、专辑、状态、播放量、创建时间），用于构建搜索索引和联想索引
+     *
+     * @param handler 结果处理器
+     */
+    void scanSearchFields(ResultHandler<Music> handler);
+
     /**
      * 统计音乐数量
      *
@@ -101,4 +180,99 @@ public interface MusicMapper {
      * @return 音乐数量
      */
     Long countMusic(@Param("status") Integer status);
+
+    /**
+     * 按状态分组统计音乐数量
+     *
+     * @return 每行包含status和cnt
+     */
+    List<Map<String, Object>> countGroupByStatus();
+
+    /**
+     * 按状态分组统计某个用户上传的音乐数量
+     *
+     * @param uploadUserId 上传用户ID
+     * @return 每行包含status和cnt
+     */
+    List<Map<String, Object>> countByUploadUserIdGroupByStatus(@Param("uploadUserId") Long uploadUserId);
+
+    /**
+     * 统计搜索结果数量（最多统计到limit条）
+     *
+     * @param keyword   关键词
+     * @param musicName 音乐名
+     * @param artist    艺术家
+     * @param album     专辑
+     * @param status    状态
+     * @param limit     统计上限
+     * @return 搜索结果数量，不超过limit
+     */
+    Long countSearchMusicLimited(@Param("keyword") String keyword,
+                                 @Param("musicName") String musicName,
+                                 @Param("artist") String artist,
+                                 @Param("album") String album,
+                                 @Param("status") Integer status,
+                                 @Param("limit") Integer limit);
+
+    /**
+     * 搜索音乐（关键词通过FULLTEXT ngram索引查找）
+     *
+     * @param phrase    关键词的全文检索短语（BOOLEAN MODE）
+     * @param keyword   关键词（用于LIKE校验）
+     * @param musicName 音乐名
+     * @param artist    艺术家
+     * @param album     专辑
+     * @param status    状态
+     * @return 音乐列表（只包含列表字段）
+     */
+    List<Music> searchMusicFulltext(@Param("phrase") String phrase,
+                                    @Param("keyword") String keyword,
+                                    @Param("musicName") String musicName,
+                                    @Param("artist") String artist,
+                                    @Param("album") String album,
+                                    @Param("status") Integer status);
+
+    /**
+     * 搜索音乐（关键词通过FULLTEXT ngram索引查找，游标分页，按创建时间、ID倒序）
+     *
+     * @param phrase     关键词的全文检索短语（BOOLEAN MODE）
+     * @param keyword    关键词（用于LIKE校验）
+     * @param musicName  音乐名
+     * @param artist     艺术家
+     * @param album      专辑
+     * @param status     状态
+     * @param cursorTime 游标时间（null表示第一页）
+     * @param cursorId   游标ID
+     * @param limit      查询条数
+     * @return 音乐列表（只包含列表字段）
+     */
+    List<Music> searchMusicFulltextAfterCursor(@Param("phrase") String phrase,
+                                               @Param("keyword") String keyword,
+                                               @Param("musicName") String musicName,
+                                               @Param("artist") String artist,
+                                               @Param("album") String album,
+                                               @Param("status") Integer status,
+                                               @Param("cursorTime") LocalDateTime cursorTime,
+                                               @Param("cursorId") Long cursorId,
+                                               @Param("limit") Integer limit);
+
+    /**
+     * 统计搜索结果数量（关键词通过FULLTEXT ngram索引查找，最多统计到limit条）
+     *
+     * @param phrase    关键词的全文检索短语（BOOLEAN MODE）
+     * @param keyword   关键词（用于LIKE校验）
+     * @param musicName 音乐名
+     * @param artist    艺术家
+     * @param album     专辑
+     * @param status    状态
+     * @param limit     统计上限
+     * @return 搜索结果数量，不超过limit
+     */
+    Long countSearchMusicFulltextLimited(@Param("phrase") String phrase,
+                                         @Param("keyword") String keyword,
+                                         @Param("musicName") String musicName,
+                                         @Param("artist") String artist,
+                                         @Param("album") String album,
+                                         @Param("status") Integer status,
+                                         @Param("limit") Integer limit);
 }
@@ -0,0 +1,32 @@
+package com.music.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+
+/**
+ * 播放次数写回批次记录Mapper
+ * 批次ID为主键，同一批次重试时插入失败，保证播放次数增量只写入一次
+ */
+@Mapper
+public interface PlayCountFlushMapper {
+
+    /**
+     * 写入批次记录（已存在时忽略）
+     *
+     * @param batchId    批次ID
+     * @param musicCount 批次包含的音乐数量
+     * @return 影响行数，0表示批次已写入过
+     */
+    int insertIgnore(@Param("batchId") String batchId, @Param("musicCount") int musicCount);
+
+    /**
+     * 删除过期的批次记录
+     *
+     * @param before 删除该时间之前的记录
+     * @param limit  单次最多删除的行数
+     * @return 删除行数
+     */
+    int deleteBefore(@Param("before") LocalDateTime before, @Param("limit") int limit);
+}
@@ -5,6 +5,7 @@ import com.music.entity.PlayHistory;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -45,6 +46,20 @@ public interface PlayHistoryMapper {
      */
     List<Music> findMusicByUserId(@Param("userId") Long userId);
 
+    /**
+     * 查询用户每首音乐最近一次的播放记录（游标分页，按播放时间、历史ID倒序）
+     *
+     * @param userId     用户ID
+     * @param cursorTime 游标时间（null表示第一页）
+     * @param cursorId   游标历史ID
+     * @param limit      查询条数
+     * @return 播放记录列表
+     */
+    List<PlayHistory> findLatestByUserIdAfterCursor(@Param("userId") Long userId,
+                                                    @Param("cursorTime") LocalDateTime cursorTime,
+                                                    @Param("cursorId") Long cursorId,
+                                                    @Param("limit") Integer limit);
+
     /**
      * 统计用户播放次数
      *
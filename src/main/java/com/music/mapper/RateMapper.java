@@ -3,6 +3,7 @@ package com.music.mapper;
 import com.music.vo.MusicStatsVO;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
 
 import java.math.BigDecimal;
 import java.util.List;
@@ -24,4 +25,10 @@ public interface RateMapper {
 
     // 6. 查询艺人名下所有歌曲的评分情况
     List<MusicStatsVO> selectMusicStatsByArtist(@Param("artistId") Long artistId);
+
+    // 7. 单曲评分汇总（平均分、评分人数），用于搜索相关度排序
+    MusicStatsVO selectRatingSummary(@Param("musicId") Long musicId);
+
+    // 8. 流式遍历所有歌曲的评分汇总，用于构建搜索索引
+    void scanRatingSummary(ResultHandler<MusicStatsVO> handler);
 }
@@ -4,6 +4,7 @@ import com.music.entity.User;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -44,6 +45,14 @@ public interface UserMapper {
      */
     User findById(@Param("id") Long id);
 
+    /**
+     * 根据ID批量查询用户
+     *
+     * @param ids 用户ID集合（不能为空）
+     * @return 用户列表
+     */
+    List<User> findByIds(@Param("ids") Collection<Long> ids);
+
     /**
      * 根据用户名查询用户
      *
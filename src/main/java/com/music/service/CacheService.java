@@ -0,0 +1,515 @@
+package com.music.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.music.config.RedisConfig;
+import com.music.util.LocalCache;
+import com.music.util.SingleFlight;
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * 两级缓存服务
+ * L1为进程内本地缓存，L2为Redis；删除缓存时通过Redis发布订阅通知所有节点清除各自的L1
+ */
+@Slf4j
+@Service
+public class CacheService implements MessageListener {
+
+    /** 缓存失效通知频道 */
+    public static final String INVALIDATE_CHANNEL = "cache:invalidate";
+
+    /** 空值标记：数据不存在时写入的短期墓碑，避免对不存在的数据反复查询数据库 */
+    private static final String NULL_VALUE = "__null__";
+
+    /** 跨节点加载锁前缀 */
+    private static final String LOAD_LOCK_PREFIX = "lock:load:";
+
+    /** 等待其他节点加载时的轮询间隔（毫秒） */
+    private static final long LOAD_LOCK_POLL_MILLIS = 50;
+
+    /**
+     * 仅删除自己持有的锁
+     */
+    private static final DefaultRedisScript<Long> UNLOCK_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) end return 0",
+            Long.class);
+
+    /** 快照序列化（与Redis值使用相同的类型信息配置） */
+    private static final ObjectMapper SNAPSHOT_MAPPER = RedisConfig.createObjectMapper();
+
+    @Autowired
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Value("${cache.local.max-size:10000}")
+    private int localMaxSize;
+
+    @Value("${cache.local.expire-seconds:60}")
+    private long localExpireSeconds;
+
+    @Value("${cache.null-expire-seconds:60}")
+    private long nullExpireSeconds;
+
+    @Value("${cache.ttl-jitter-ratio:0.1}")
+    private double ttlJitterRatio;
+
+    @Value("${cache.load-lock.enabled:false}")
+    private boolean loadLockEnabled;
+
+    @Value("${cache.load-lock.lease-millis:3000}")
+    private long loadLockLeaseMillis;
+
+    @Value("${cache.load-lock.wait-millis:2000}")
+    private long loadLockWaitMillis;
+
+    private LocalCache<String, Object> localCache;
+
+    private final SingleFlight<String, Object> singleFlight = new SingleFlight<>();
+
+    /** 热点key的本地副本：不受L1过期和容量淘汰影响，由后台定期从Redis刷新 */
+    private final ConcurrentMap<String, PinnedEntry> pinned = new ConcurrentHashMap<>();
+
+    private final LongAdder redisHits = new LongAdder();
+    private final LongAdder redisMisses = new LongAdder();
+
+    @PostConstruct
+    public void init() {
+        localCache = new LocalCache<>(localMaxSize, TimeUnit.SECONDS.toMillis(localExpireSeconds));
+        listenerContainer.addMessageListener(this, new ChannelTopic(INVALIDATE_CHANNEL));
+    }
+
+    /**
+     * 获取缓存（先L1后L2，L2命中时回填L1）
+     *
+     * @param key 缓存键
+     * @return 缓存值，不存在返回null
+     */
+    public Object get(String key) {
+        PinnedEntry pinnedEntry = pinned.get(key);
+        if (pinnedEntry != null && pinnedEntry.value != null) {
+            return pinnedEntry.value;
+        }
+
+        Object value = localCache.get(key);
+        if (value != null) {
+            return value;
+        }
+
+        value = redisTemplate.opsForValue().get(key);
+        if (value == null) {
+            redisMisses.increment();
+            return null;
+        }
+        redisHits.increment();
+        localCache.put(key, value);
+        return value;
+    }
+
+    /**
+     * 写入缓存（同时写入L1和L2）
+     *
+     * @param key     缓存键
+     * @param value   缓存值
+     * @param timeout 过期时间
+     * @param unit    时间单位
+     */
+    public void put(String key, Object value, long timeout, TimeUnit unit) {
+        long ttlMillis = withJitter(unit.toMillis(timeout));
+        redisTemplate.opsForValue().set(key, value, ttlMillis, TimeUnit.MILLISECONDS);
+        localCache.put(key, value, ttlMillis);
+    }
+
+    /**
+     * 获取缓存，未命中时加载并写入缓存
+     * 同一节点内并发未命中的请求只执行一次加载，其余请求等待并共享结果；
+     * 开启加载锁时，不同节点之间通过Redis短期锁协调，只有持锁节点访问数据库。
+     *
+     * @param key     缓存键
+     * @param loader  加载函数（返回null表示数据不存在，此时写入短期空值标记）
+     * @param timeout 过期时间
+     * @param unit    时间单位
+     * @return 缓存值，数据不存在时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getOrLoad(String key, Supplier<T> loader, long timeout, TimeUnit unit) {
+        Object value = get(key);
+        if (value == null) {
+            value = singleFlight.execute(key, () -> {
+                // 等待期间其他线程可能已完成加载
+                Object loaded = localCache.get(key);
+                if (loaded != null) {
+                    return loaded;
+                }
+                return loadLockEnabled ? loadWithLock(key, loader, timeout, unit) : load(key, loader, timeout, unit);
+            });
+        }
+        return NULL_VALUE.equals(value) ? null : (T) value;
+    }
+
+    /**
+     * 写入空值标记（数据不存在），过期时间较短
+     *
+     * @param key 缓存键
+     */
+    public void putNull(String key) {
+        try {
+            put(key, NULL_VALUE, nullExpireSeconds, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("写入空值标记失败: key={}, error={}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * 判断缓存中是否为空值标记（数据已确认不存在）
+     *
+     * @param key 缓存键
+     * @return 是否为空值标记
+     */
+    public boolean isNull(String key) {
+        return NULL_VALUE.equals(get(key));
+    }
+
+    /**
+     * 删除缓存，并通知其他节点清除L1
+     *
+     * @param key 缓存键
+     */
+    public void evict(String key) {
+        markPinnedStale(key);
+        localCache.remove(key);
+        redisTemplate.delete(key);
+        publishInvalidation(key);
+    }
+
+    /**
+     * 仅从本地L1获取缓存（用于L2不是普通字符串值的缓存）
+     *
+     * @param key 缓存键
+     * @return 缓存值，不存在返回null
+     */
+    public Object getLocal(String key) {
+        return localCache.get(key);
+    }
+
+    /**
+     * 仅写入本地L1
+     *
+     * @param key   缓存键
+     * @param value 缓存值
+     */
+    public void putLocal(String key, Object value) {
+        localCache.put(key, value);
+    }
+
+    /**
+     * 清除本地L1，并通知其他节点清除（不删除L2）
+     *
+     * @param key 缓存键
+     */
+    public void invalidateLocal(String key) {
+        markPinnedStale(key);
+        localCache.remove(key);
+        publishInvalidation(key);
+    }
+
+    /**
+     * 固定热点key的本地副本
+     *
+     * @param key     缓存键
+     * @param loader  Redis中不存在时的加载函数
+     * @param timeout 加载后写入缓存的过期时间
+     * @param unit    时间单位
+     */
+    public void pin(String key, Supplier<?> loader, long timeout, TimeUnit unit) {
+        PinnedEntry entry = new PinnedEntry(loader, timeout, unit);
+        if (pinned.putIfAbsent(key, entry) == null) {
+            refreshPinned(key, entry);
+            log.info("热点key已固定到本地副本: key={}", key);
+        }
+    }
+
+    /**
+     * 取消固定热点key
+     *
+     * @param key 缓存键
+     */
+    public void unpin(String key) {
+        if (pinned.remove(key) != null) {
+            log.info("热点key已取消固定: key={}", key);
+        }
+    }
+
+    /**
+     * 当前固定的热点key
+     */
+    public Set<String> pinnedKeys() {
+        return Set.copyOf(pinned.keySet());
+    }
+
+    /**
+     * 提前刷新热点key的本地副本（从Redis读取，Redis中不存在时加载并回写）
+     * 副本被失效通知标记为过期后，最迟在一个刷新周期内恢复
+     */
+    @Scheduled(fixedDelayString = "${cache.hot-key.refresh-millis:1000}")
+    public void refreshPinned() {
+        pinned.forEach(this::refreshPinned);
+    }
+
+    /**
+     * 将本地L1中未过期的条目写入快照文件（先写临时文件再替换）
+     *
+     * @param file 快照文件
+     * @return 写入的条目数
+     * @throws IOException 写入失败
+     */
+    public int writeSnapshot(Path file) throws IOException {
+        List<SnapshotRecord> records = new ArrayList<>();
+        for (LocalCache.SnapshotEntry<String, Object> entry : localCache.snapshot()) {
+            records.add(new SnapshotRecord(entry.getKey(), entry.getValue(), entry.getExpireAt()));
+        }
+
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        SNAPSHOT_MAPPER.writeValue(tmp.toFile(), records);
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return records.size();
+    }
+
+    /**
+     * 从快照文件恢复本地L1（只恢复尚未过期的条目，过期时间保持写入快照时的时间点）
+     * 停机期间错过的失效通知最多影响到条目过期为止，与通知丢失时的一致性保证相同
+     *
+     * @param file 快照文件
+     * @return 恢复的条目数
+     * @throws IOException 读取失败
+     */
+    public int restoreSnapshot(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return 0;
+        }
+        List<SnapshotRecord> records = SNAPSHOT_MAPPER.readValue(file.toFile(), new TypeReference<>() {
+        });
+        long now = System.currentTimeMillis();
+        int restored = 0;
+        for (SnapshotRecord record : records) {
+            if (record.getExpireAt() > now && record.getValue() != null) {
+                localCache.putUntil(record.getKey(), record.getValue(), record.getExpireAt());
+                restored++;
+            }
+        }
+        return restored;
+    }
+
+    /**
+     * 接收其他节点的缓存失效通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String key = new String(message.getBody(), StandardCharsets.UTF_8);
+        markPinnedStale(key);
+        localCache.remove(key);
+    }
+
+    /**
+     * 获取缓存统计信息
+     *
+     * @return L1和L2的命中统计
+     */
+    public Map<String, Object> stats() {
+        long hits = redisHits.sum();
+        long misses = redisMisses.sum();
+
+        Map<String, Object> redisStats = new LinkedHashMap<>();
+        redisStats.put("hits", hits);
+        redisStats.put("misses", misses);
+        redisStats.put("hitRate", hits + misses == 0 ? 0D : (double) hits / (hits + misses));
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("local", localCache.stats());
+        stats.put("redis", redisStats);
+        stats.put("loadingKeys", singleFlight.inFlightCount());
+        stats.put("pinnedKeys", pinned.size());
+        return stats;
+    }
+
+    private void refreshPinned(String key, PinnedEntry entry) {
+        try {
+            Object value = redisTemplate.opsForValue().get(key);
+            if (value == null) {
+                value = load(key, entry.loader, entry.timeout, entry.unit);
+            }
+            entry.value = value;
+        } catch (Exception e) {
+            log.warn("刷新热点key失败: key={}, error={}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * 缓存失效时标记热点副本为过期（读请求回退到L1/L2，等待下次刷新）
+     */
+    private void markPinnedStale(String key) {
+        PinnedEntry entry = pinned.get(key);
+        if (entry != null) {
+            entry.value = null;
+        }
+    }
+
+    /**
+     * 执行加载并写入缓存（数据不存在时写入空值标记）
+     */
+    private Object load(String key, Supplier<?> loader, long timeout, TimeUnit unit) {
+        Object loaded = loader.get();
+        if (loaded == null) {
+            putNull(key);
+            return NULL_VALUE;
+        }
+        put(key, loaded, timeout, unit);
+        return loaded;
+    }
+
+    /**
+     * 持有跨节点加载锁时加载；未获得锁时轮询Redis等待持锁节点写入，超时后自行加载
+     */
+    private Object loadWithLock(String key, Supplier<?> loader, long timeout, TimeUnit unit) {
+        String lockKey = LOAD_LOCK_PREFIX + key;
+        String token = UUID.randomUUID().toString();
+        boolean locked;
+        try {
+            locked = Boolean.TRUE.equals(stringRedisTemplate.opsForValue()
+                    .setIfAbsent(lockKey, token, loadLockLeaseMillis, TimeUnit.MILLISECONDS));
+        } catch (Exception e) {
+            log.warn("获取加载锁失败，直接加载: key={}, error={}", key, e.getMessage());
+            return load(key, loader, timeout, unit);
+        }
+
+        if (locked) {
+            try {
+                return load(key, loader, timeout, unit);
+            } finally {
+                try {
+                    stringRedisTemplate.execute(UNLOCK_SCRIPT, Collections.singletonList(lockKey), token);
+                } catch (Exception e) {
+                    // 释放失败时锁会在租期到达后自动过期
+                    log.warn("释放加载锁失败: key={}, error={}", key, e.getMessage());
+                }
+            }
+        }
+
+        long deadline = System.currentTimeMillis() + loadLockWaitMillis;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(LOAD_LOCK_POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            Object value = redisTemplate.opsForValue().get(key);
+            if (value != null) {
+                // 持锁节点已写入Redis，只需回填本地L1
+                localCache.put(key, value);
+                return value;
+            }
+        }
+        return load(key, loader, timeout, unit);
+    }
+
+    /**
+     * 为过期时间增加随机抖动，避免同一时间写入的缓存同时过期
+     *
+     * @param ttlMillis 过期时间（毫秒）
+     * @return 增加抖动后的过期时间（毫秒）
+     */
+    private long withJitter(long ttlMillis) {
+        if (ttlJitterRatio <= 0) {
+            return ttlMillis;
+        }
+        long bound = (long) (ttlMillis * ttlJitterRatio);
+        return bound > 0 ? ttlMillis + ThreadLocalRandom.current().nextLong(bound + 1) : ttlMillis;
+    }
+
+    /**
+     * 发布缓存失效通知（消息体为原始UTF-8键，不经过值序列化器）
+     *
+     * @param key 缓存键
+     */
+    private void publishInvalidation(String key) {
+        byte[] channel = INVALIDATE_CHANNEL.getBytes(StandardCharsets.UTF_8);
+        byte[] body = key.getBytes(StandardCharsets.UTF_8);
+        try {
+            redisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(channel, body));
+        } catch (Exception e) {
+            // 通知失败时其他节点的L1会在过期后自然失效
+            log.warn("发布缓存失效通知失败: key={}, error={}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * 本地缓存快照记录
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SnapshotRecord {
+        private String key;
+        private Object value;
+        private long expireAt;
+    }
+
+    /**
+     * 热点key本地副本
+     */
+    private static final class PinnedEntry {
+        private final Supplier<?> loader;
+        private final long timeout;
+        private final TimeUnit unit;
+        private volatile Object value;
+
+        private PinnedEntry(Supplier<?> loader, long timeout, TimeUnit unit) {
+            this.loader = loader;
+            this.timeout = timeout;
+            this.unit = unit;
+        }
+    }
+}
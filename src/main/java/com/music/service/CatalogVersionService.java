@@ -0,0 +1,57 @@
+package com.music.service;
+
+import com.music.util.TransactionUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+
+/**
+ * 曲库版本服务
+ * 曲库内容（上传、修改、审核、删除）每次变化时版本号加一，
+ * 列表等与用户无关的缓存以版本号作为键的一部分，版本变化后旧缓存不再被读取并自然过期。
+ */
+@Slf4j
+@Service
+public class CatalogVersionService {
+
+    private static final String CATALOG_VERSION_KEY = "music:catalog:version";
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private CacheService cacheService;
+
+    /**
+     * 获取当前曲库版本（优先读取本地L1）
+     *
+     * @return 曲库版本号
+     */
+    public long getVersion() {
+        Long version = (Long) cacheService.getLocal(CATALOG_VERSION_KEY);
+        if (version != null) {
+            return version;
+        }
+
+        String value = stringRedisTemplate.opsForValue().get(CATALOG_VERSION_KEY);
+        version = value != null ? Long.parseLong(value) : 0L;
+        cacheService.putLocal(CATALOG_VERSION_KEY, version);
+        return version;
+    }
+
+    /**
+     * 曲库版本加一（在事务提交后执行，并通知所有节点刷新本地版本号）
+     */
+    public void bump() {
+        TransactionUtil.afterCommit(() -> {
+            try {
+                Long version = stringRedisTemplate.opsForValue().increment(CATALOG_VERSION_KEY);
+                cacheService.invalidateLocal(CATALOG_VERSION_KEY);
+                log.debug("曲库版本更新: version={}", version);
+            } catch (Exception e) {
+                log.warn("曲库版本更新失败: error={}", e.getMessage());
+            }
+        });
+    }
+}
@@ -0,0 +1,268 @@
+package com.music.service;
+
+import com.music.mapper.FavoriteMapper;
+import com.music.util.TransactionUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 用户收藏索引服务
+ * 每个用户的收藏音乐ID在本地L1中保存为有序long数组，在Redis中保存为Set，
+ * 判断是否收藏只需一次二分查找，收藏/取消收藏时增量更新索引。
+ * <p>
+ * 索引不存在时从数据库重建：重建前写入本次重建的令牌，收藏变更发现索引不存在时删除令牌，
+ * 重建结果只在令牌未变且索引仍不存在时写入，避免加载期间提交的变更被旧数据覆盖。
+ */
+@Slf4j
+@Service
+public class FavoriteIndexService {
+
+    private static final String FAVORITE_INDEX_PREFIX = "user:favorite:";
+    private static final long FAVORITE_INDEX_EXPIRE = 60; // 60分钟
+
+    /** 重建令牌后缀（令牌有效期覆盖一次数据库加载） */
+    private static final String REBUILD_TOKEN_SUFFIX = ":rebuild";
+    private static final long REBUILD_TOKEN_EXPIRE_SECONDS = 30;
+
+    /** 删除音乐时每批清理的用户索引数 */
+    private static final int PRUNE_BATCH_SIZE = 500;
+
+    /**
+     * 占位成员：保证没有收藏的用户在Redis中也存在索引（音乐ID从1开始）
+     */
+    private static final String EMPTY_MARKER = "0";
+
+    /**
+     * 仅在索引已存在时增删成员，避免在过期后写入不完整的索引；索引不存在时作废进行中的重建
+     */
+    private static final DefaultRedisScript<Long> ADD_IF_EXISTS_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 1 then return redis.call('sadd', KEYS[1], ARGV[1]) end "
+                    + "redis.call('del', KEYS[2]) return -1",
+            Long.class);
+    private static final DefaultRedisScript<Long> REMOVE_IF_EXISTS_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 1 then return redis.call('srem', KEYS[1], ARGV[1]) end "
+                    + "redis.call('del', KEYS[2]) return -1",
+            Long.class);
+
+    /**
+     * 写入重建的索引：令牌未变且索引不存在时写入全部成员并设置过期时间（ARGV[1]为令牌，ARGV[2]为过期秒数，之后为成员）
+     */
+    private static final DefaultRedisScript<Long> SAVE_IF_CURRENT_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[2]) ~= ARGV[1] or redis.call('exists', KEYS[1]) == 1 then return 0 end "
+                    + "redis.call('del', KEYS[2]) "
+                    + "for i = 3, #ARGV, 5000 do redis.call('sadd', KEYS[1], unpack(ARGV, i, math.min(i + 4999, #ARGV))) end "
+                    + "redis.call('expire', KEYS[1], ARGV[2]) "
+                    + "return 1",
+            Long.class);
+
+    @Autowired
+    private FavoriteMapper favoriteMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private CacheService cacheService;
+
+    /**
+     * 判断是否已收藏
+     *
+     * @param userId  用户ID
+     * @param musicId 音乐ID
+     * @return 是否已收藏
+     */
+    public boolean isFavorite(Long userId, Long musicId) {
+        if (userId == null || musicId == null) {
+            return false;
+        }
+        return Arrays.binarySearch(getFavoriteIds(userId), musicId) >= 0;
+    }
+
+    /**
+     * 获取用户收藏的音乐ID（有序）
+     * 依次查询本地L1、Redis、数据库，并逐级回填
+     *
+     * @param userId 用户ID
+     * @return 有序的音乐ID数组，调用方不得修改
+     */
+    public long[] getFavoriteIds(Long userId) {
+        String key = FAVORITE_INDEX_PREFIX + userId;
+
+        // 1. 本地L1
+        long[] ids = (long[]) cacheService.getLocal(key);
+        if (ids != null) {
+            return ids;
+        }
+
+        // 2. Redis
+        Set<String> members = stringRedisTemplate.opsForSet().members(key);
+        if (members != null && !members.isEmpty()) {
+            ids = members.stream()
+                    .filter(member -> !EMPTY_MARKER.equals(member))
+                    .mapToLong(Long::parseLong)
+                    .sorted()
+                    .toArray();
+            cacheService.putLocal(key, ids);
+            return ids;
+        }
+
+        // 3. 数据库（先登记重建令牌，加载期间有收藏变更时令牌被删除，结果不再回填）
+        String token = UUID.randomUUID().toString();
+        stringRedisTemplate.opsForValue().set(key + REBUILD_TOKEN_SUFFIX, token,
+                REBUILD_TOKEN_EXPIRE_SECONDS, TimeUnit.SECONDS);
+        List<Long> musicIds = favoriteMapper.findMusicIdsByUserId(userId);
+        ids = musicIds.stream().mapToLong(Long::longValue).sorted().toArray();
+        if (saveToRedis(key, token, ids)) {
+            cacheService.putLocal(key, ids);
+        }
+        return ids;
+    }
+
+    /**
+     * 添加收藏后更新索引（在事务提交后执行）
+     *
+     * @param userId  用户ID
+     * @param musicId 音乐ID
+     */
+    public void onFavorite(Long userId, Long musicId) {
+        TransactionUtil.afterCommit(() -> applyChange(userId, musicId, true));
+    }
+
+    /**
+     * 取消收藏后更新索引（在事务提交后执行）
+     *
+     * @param userId  用户ID
+     * @param musicId 音乐ID
+     */
+    public void onUnfavorite(Long userId, Long musicId) {
+        TransactionUtil.afterCommit(() -> applyChange(userId, musicId, false));
+    }
+
+    /**
+     * 删除音乐后从收藏过它的用户的索引中移除（在事务提交后执行）
+     * Redis中的索引分批通过管道移除；本节点L1直接替换，其他节点的L1在过期后（cache.local.expire-seconds）从Redis重新读取
+     *
+     * @param musicId 音乐ID
+     * @param userIds 收藏过该音乐的用户ID（删除收藏记录之前查询）
+     */
+    public void onMusicDeleted(Long musicId, List<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        TransactionUtil.afterCommit(() -> {
+            try {
+                pruneFromRedis(musicId, userIds);
+            } catch (Exception e) {
+                log.warn("清理收藏索引失败: musicId={}, users={}, error={}", musicId, userIds.size(), e.getMessage());
+            }
+            for (Long userId : userIds) {
+                String key = FAVORITE_INDEX_PREFIX + userId;
+                long[] ids = (long[]) cacheService.getLocal(key);
+                if (ids != null) {
+                    cacheService.putLocal(key, remove(ids, musicId));
+                }
+            }
+        });
+    }
+
+    /**
+     * 增量更新索引
+     * Redis中的Set通过脚本原子增删；本节点L1直接替换为新数组，其他节点清除L1后从Redis重新读取
+     */
+    private void applyChange(Long userId, Long musicId, boolean add) {
+        String key = FAVORITE_INDEX_PREFIX + userId;
+        try {
+            stringRedisTemplate.execute(add ? ADD_IF_EXISTS_SCRIPT : REMOVE_IF_EXISTS_SCRIPT,
+                    List.of(key, key + REBUILD_TOKEN_SUFFIX), String.valueOf(musicId));
+
+            long[] ids = (long[]) cacheService.getLocal(key);
+            cacheService.invalidateLocal(key);
+            if (ids != null) {
+                cacheService.putLocal(key, add ? insert(ids, musicId) : remove(ids, musicId));
+            }
+        } catch (Exception e) {
+            log.warn("收藏索引更新失败: userId={}, musicId={}, error={}", userId, musicId, e.getMessage());
+        }
+    }
+
+    /**
+     * 将重建的收藏ID写入Redis（包含占位成员），令牌已失效或索引已存在时不写入
+     *
+     * @return 是否写入
+     */
+    private boolean saveToRedis(String key, String token, long[] ids) {
+        String[] args = new String[ids.length + 3];
+        args[0] = token;
+        args[1] = String.valueOf(TimeUnit.MINUTES.toSeconds(FAVORITE_INDEX_EXPIRE));
+        args[2] = EMPTY_MARKER;
+        for (int i = 0; i < ids.length; i++) {
+            args[i + 3] = String.valueOf(ids[i]);
+        }
+        Long saved = stringRedisTemplate.execute(SAVE_IF_CURRENT_SCRIPT,
+                List.of(key, key + REBUILD_TOKEN_SUFFIX), (Object[]) args);
+        return saved != null && saved == 1;
+    }
+
+    /**
+     * 通过管道从多个用户的索引中移除音乐ID
+     */
+    private void pruneFromRedis(Long musicId, List<Long> userIds) {
+        byte[] member = String.valueOf(musicId).getBytes(StandardCharsets.UTF_8);
+        String sha = REMOVE_IF_EXISTS_SCRIPT.getSha1();
+        stringRedisTemplate.execute((RedisCallback<String>) connection ->
+                connection.scriptingCommands().scriptLoad(
+                        REMOVE_IF_EXISTS_SCRIPT.getScriptAsString().getBytes(StandardCharsets.UTF_8)));
+        for (int from = 0; from < userIds.size(); from += PRUNE_BATCH_SIZE) {
+            List<Long> batch = userIds.subList(from, Math.min(from + PRUNE_BATCH_SIZE, userIds.size()));
+            List<byte[][]> keys = new ArrayList<>(batch.size());
+            for (Long userId : batch) {
+                String key = FAVORITE_INDEX_PREFIX + userId;
+                keys.add(new byte[][]{key.getBytes(StandardCharsets.UTF_8),
+                        (key + REBUILD_TOKEN_SUFFIX).getBytes(StandardCharsets.UTF_8), member});
+            }
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                for (byte[][] keysAndArgs : keys) {
+                    connection.scriptingCommands().evalSha(sha, ReturnType.INTEGER, 2, keysAndArgs);
+                }
+                return null;
+            });
+        }
+    }
+
+    private static long[] insert(long[] ids, long id) {
+        int pos = Arrays.binarySearch(ids, id);
+        if (pos >= 0) {
+            return ids;
+        }
+        int insertAt = -pos - 1;
+        long[] result = new long[ids.length + 1];
+        System.arraycopy(ids, 0, result, 0, insertAt);
+        result[insertAt] = id;
+        System.arraycopy(ids, insertAt, result, insertAt + 1, ids.length - insertAt);
+        return result;
+    }
+
+    private static long[] remove(long[] ids, long id) {
+        int pos = Arrays.binarySearch(ids, id);
+        if (pos < 0) {
+            return ids;
+        }
+        long[] result = new long[ids.length - 1];
+        System.arraycopy(ids, 0, result, 0, pos);
+        System.arraycopy(ids, pos + 1, result, pos, ids.length - pos - 1);
+        return result;
+    }
+}
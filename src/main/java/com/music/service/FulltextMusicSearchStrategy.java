@@ -0,0 +1,108 @@
+package com.music.service;
+
+import com.music.dto.MusicSearchDTO;
+import com.music.entity.Music;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * FULLTEXT 搜索（实验性，默认不启用）：关键词通过 t_music 上的 ngram 全文索引（ft_music_search）查找候选行，
+ * 再用 LIKE 校验。
+ * 关键词按短语（BOOLEAN MODE 下加双引号）匹配，要求各个ngram相邻出现；
+ * ngram 解析器按空白和标点切分，不产生跨越分隔符的token，关键词中任一以分隔符隔开的词短于 ngram_token_size 时
+ * 该词没有token，短语无法与 LIKE 等价，此时回退为 LIKE 查询。
+ * 全文索引还会忽略包含停用词的token，只有建索引时关闭停用词（innodb_ft_enable_stopword=OFF）才能保证
+ * 候选行覆盖 LIKE 的全部结果；启用前应在目标数据库上执行 SearchBenchmark.sql 确认两种策略的结果数量一致。
+ * 名称、艺术家、专辑的单独条件仍为 LIKE，只在关键词命中的候选行上过滤。
+ * 回退查询复用 LikeMusicSearchStrategy 的实现（父类本身只在 like 策略下注册为Bean）。
+ */
+@Service
+@ConditionalOnProperty(name = "music.search.strategy", havingValue = "fulltext")
+public class FulltextMusicSearchStrategy extends LikeMusicSearchStrategy {
+
+    /** ngram 解析器的分隔符：空白和标点符号 */
+    private static final Pattern DELIMITERS = Pattern.compile("[\\s\\p{P}\\p{S}]+");
+
+    /**
+     * 与数据库的 ngram_token_size 保持一致
+     */
+    @Value("${music.search.ngram-token-size:2}")
+    private int ngramTokenSize;
+
+    @Override
+    public List<Music> search(MusicSearchDTO searchDTO) {
+        String phrase = toPhrase(searchDTO.getKeyword());
+        if (phrase == null) {
+            return super.search(searchDTO);
+        }
+        return musicMapper.searchMusicFulltext(
+                phrase,
+                searchDTO.getKeyword(),
+                searchDTO.getMusicName(),
+                searchDTO.getArtist(),
+                searchDTO.getAlbum(),
+                searchDTO.getStatus()
+        );
+    }
+
+    @Override
+    public long countLimited(MusicSearchDTO searchDTO, int limit) {
+        String phrase = toPhrase(searchDTO.getKeyword());
+        if (phrase == null) {
+            return super.countLimited(searchDTO, limit);
+        }
+        return musicMapper.countSearchMusicFulltextLimited(
+                phrase,
+                searchDTO.getKeyword(),
+                searchDTO.getMusicName(),
+                searchDTO.getArtist(),
+                searchDTO.getAlbum(),
+                searchDTO.getStatus(),
+                limit
+        );
+    }
+
+    @Override
+    public List<Music> searchAfterCursor(MusicSearchDTO searchDTO, LocalDateTime cursorTime, Long cursorId, int limit) {
+        String phrase = toPhrase(searchDTO.getKeyword());
+        if (phrase == null) {
+            return super.searchAfterCursor(searchDTO, cursorTime, cursorId, limit);
+        }
+        return musicMapper.searchMusicFulltextAfterCursor(
+                phrase,
+                searchDTO.getKeyword(),
+                searchDTO.getMusicName(),
+                searchDTO.getArtist(),
+                searchDTO.getAlbum(),
+                searchDTO.getStatus(),
+                cursorTime,
+                cursorId,
+                limit
+        );
+    }
+
+    /**
+     * 关键词转为 BOOLEAN MODE 的短语，去掉双引号避免破坏语法；
+     * 关键词为空、或任一以分隔符隔开的词短于 ngram_token_size 时返回null（回退为LIKE）
+     */
+    private String toPhrase(String keyword) {
+        if (keyword == null) {
+            return null;
+        }
+        String text = keyword.replace('"', ' ').trim();
+        if (text.isEmpty()) {
+            return null;
+        }
+        for (String term : DELIMITERS.split(text)) {
+            if (!term.isEmpty() && term.codePointCount(0, term.length()) < ngramTokenSize) {
+                return null;
+            }
+        }
+        return '"' + text + '"';
+    }
+}
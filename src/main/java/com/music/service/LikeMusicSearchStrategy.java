@@ -0,0 +1,59 @@
+package com.music.service;
+
+import com.music.dto.MusicSearchDTO;
+import com.music.entity.Music;
+import com.music.mapper.MusicMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * LIKE '%词%' 搜索（不依赖额外索引，需要扫描全表）
+ */
+@Service
+@ConditionalOnProperty(name = "music.search.strategy", havingValue = "like", matchIfMissing = true)
+public class LikeMusicSearchStrategy implements MusicSearchStrategy {
+
+    @Autowired
+    protected MusicMapper musicMapper;
+
+    @Override
+    public List<Music> search(MusicSearchDTO searchDTO) {
+        return musicMapper.searchMusic(
+                searchDTO.getKeyword(),
+                searchDTO.getMusicName(),
+                searchDTO.getArtist(),
+                searchDTO.getAlbum(),
+                searchDTO.getStatus()
+        );
+    }
+
+    @Override
+    public long countLimited(MusicSearchDTO searchDTO, int limit) {
+        return musicMapper.countSearchMusicLimited(
+                searchDTO.getKeyword(),
+                searchDTO.getMusicName(),
+                searchDTO.getArtist(),
+                searchDTO.getAlbum(),
+                searchDTO.getStatus(),
+                limit
+        );
+    }
+
+    @Override
+    public List<Music> searchAfterCursor(MusicSearchDTO searchDTO, LocalDateTime cursorTime, Long cursorId, int limit) {
+        return musicMapper.searchMusicAfterCursor(
+                searchDTO.getKeyword(),
+                searchDTO.getMusicName(),
+                searchDTO.getArtist(),
+                searchDTO.getAlbum(),
+                searchDTO.getStatus(),
+                cursorTime,
+                cursorId,
+                limit
+        );
+    }
+}
@@ -0,0 +1,248 @@
+package com.music.service;
+
+import com.music.mapper.MusicMapper;
+import com.music.util.TransactionUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 音乐数量计数服务
+ * 在Redis Hash中维护按状态统计的音乐总数和每个上传用户的音乐数，
+ * 普通分页列表直接读取计数，不再为每次分页执行COUNT(*)。
+ * 计数缺失时从数据库按状态分组统计后重建，并设置过期时间，使偶发的计数偏差能够自动修正。
+ * 重建前写入本次重建的令牌，增量更新发现计数不存在时删除令牌；重建结果在同一个脚本中仅当令牌未变且计数不存在时写入，
+ * 并从Redis重新读取，避免统计期间提交的变更被旧的统计结果覆盖。
+ */
+@Slf4j
+@Service
+public class MusicCountService {
+
+    private static final String STATUS_COUNT_KEY = "music:count:status";
+    private static final String UPLOADER_COUNT_PREFIX = "music:count:uploader:";
+    private static final long COUNT_EXPIRE = 60; // 60分钟
+
+    /** 所有状态合计的字段名 */
+    private static final String FIELD_ALL = "all";
+
+    /** 重建令牌后缀（令牌有效期覆盖一次分组统计） */
+    private static final String REBUILD_TOKEN_SUFFIX = ":rebuild";
+    private static final long REBUILD_TOKEN_EXPIRE_SECONDS = 30;
+
+    /** 已知的音乐状态，重建时没有数据的状态写入0 */
+    private static final int[] STATUSES = {0, 1, 2};
+
+    /**
+     * 仅在计数已存在时增减（ARGV为字段名和增量交替排列），避免在过期后写入不完整的计数；计数不存在时作废进行中的重建
+     */
+    private static final DefaultRedisScript<Long> INCR_IF_EXISTS_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 0 then redis.call('del', KEYS[2]) return -1 end "
+                    + "for i = 1, #ARGV, 2 do redis.call('hincrby', KEYS[1], ARGV[i], ARGV[i + 1]) end "
+                    + "return 1",
+            Long.class);
+
+    /**
+     * 写入重建的计数并读取字段：令牌未变且计数不存在时写入（ARGV[1]为令牌，ARGV[2]为过期秒数，ARGV[3]为要读取的字段，
+     * 之后为字段名和数量交替排列）；返回Redis中该字段的值，计数存在但没有该字段时返回0，计数不存在时返回nil
+     */
+    private static final DefaultRedisScript<String> SEED_AND_GET_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 0 and redis.call('get', KEYS[2]) == ARGV[1] then "
+                    + "for i = 4, #ARGV, 2 do redis.call('hset', KEYS[1], ARGV[i], ARGV[i + 1]) end "
+                    + "redis.call('expire', KEYS[1], ARGV[2]) "
+                    + "redis.call('del', KEYS[2]) "
+                    + "end "
+                    + "local value = redis.call('hget', KEYS[1], ARGV[3]) "
+                    + "if value then return value end "
+                    + "if redis.call('exists', KEYS[1]) == 1 then return '0' end "
+                    + "return false",
+            String.class);
+
+    @Autowired
+    private MusicMapper musicMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 获取指定状态的音乐数量
+     *
+     * @param status 状态（null表示所有状态）
+     * @return 音乐数量
+     */
+    public long countByStatus(Integer status) {
+        try {
+            return readCount(STATUS_COUNT_KEY, status, musicMapper::countGroupByStatus);
+        } catch (Exception e) {
+            log.warn("读取音乐计数失败，改为查询数据库: status={}, error={}", status, e.getMessage());
+            return musicMapper.countMusic(status);
+        }
+    }
+
+    /**
+     * 获取某个用户上传的指定状态的音乐数量
+     *
+     * @param uploadUserId 上传用户ID
+     * @param status       状态（null表示所有状态）
+     * @return 音乐数量
+     */
+    public long countByUploader(Long uploadUserId, Integer status) {
+        try {
+            return readCount(UPLOADER_COUNT_PREFIX + uploadUserId, status,
+                    () -> musicMapper.countByUploadUserIdGroupByStatus(uploadUserId));
+        } catch (Exception e) {
+            log.warn("读取上传计数失败，改为查询数据库: uploadUserId={}, status={}, error={}",
+                    uploadUserId, status, e.getMessage());
+            return countFromRows(musicMapper.countByUploadUserIdGroupByStatus(uploadUserId), status);
+        }
+    }
+
+    /**
+     * 新增音乐后更新计数（在事务提交后执行）
+     *
+     * @param uploadUserId 上传用户ID
+     * @param status       初始状态
+     */
+    public void onCreate(Long uploadUserId, Integer status) {
+        TransactionUtil.afterCommit(() -> applyDelta(uploadUserId, null, status));
+    }
+
+    /**
+     * 音乐状态变化后更新计数（在事务提交后执行）
+     *
+     * @param uploadUserId 上传用户ID
+     * @param oldStatus    原状态
+     * @param newStatus    新状态
+     */
+    public void onStatusChange(Long uploadUserId, Integer oldStatus, Integer newStatus) {
+        if (Objects.equals(oldStatus, newStatus)) {
+            return;
+        }
+        TransactionUtil.afterCommit(() -> applyDelta(uploadUserId, oldStatus, newStatus));
+    }
+
+    /**
+     * 删除音乐后更新计数（在事务提交后执行）
+     *
+     * @param uploadUserId 上传用户ID
+     * @param status       删除前的状态
+     */
+    public void onDelete(Long uploadUserId, Integer status) {
+        TransactionUtil.afterCommit(() -> applyDelta(uploadUserId, status, null));
+    }
+
+    /**
+     * 读取计数，不存在时从数据库重建（重建结果未写入时返回本次统计的结果）
+     */
+    private long readCount(String key, Integer status, Supplier<List<Map<String, Object>>> loader) {
+        String field = status != null ? String.valueOf(status) : FIELD_ALL;
+        Object value = stringRedisTemplate.opsForHash().get(key, field);
+        if (value != null) {
+            return Long.parseLong(value.toString());
+        }
+        if (Boolean.TRUE.equals(stringRedisTemplate.hasKey(key))) {
+            // 计数存在但没有该状态的字段（未知状态）
+            return 0L;
+        }
+
+        String token = UUID.randomUUID().toString();
+        stringRedisTemplate.opsForValue().set(key + REBUILD_TOKEN_SUFFIX, token,
+                REBUILD_TOKEN_EXPIRE_SECONDS, TimeUnit.SECONDS);
+        List<Map<String, Object>> rows = loader.get();
+        String stored = seedAndGet(key, token, field, rows);
+        return stored != null ? Long.parseLong(stored) : countFromRows(rows, status);
+    }
+
+    /**
+     * 将分组统计结果写入Redis（令牌已失效或计数已存在时不写入），并读取Redis中的字段值
+     */
+    private String seedAndGet(String key, String token, String field, List<Map<String, Object>> rows) {
+        Map<String, String> fields = new HashMap<>();
+        for (int status : STATUSES) {
+            fields.put(String.valueOf(status), "0");
+        }
+        long all = 0;
+        for (Map<String, Object> row : rows) {
+            long count = ((Number) row.get("cnt")).longValue();
+            fields.put(String.valueOf(row.get("status")), String.valueOf(count));
+            all += count;
+        }
+        fields.put(FIELD_ALL, String.valueOf(all));
+
+        List<String> args = new ArrayList<>();
+        args.add(token);
+        args.add(String.valueOf(TimeUnit.MINUTES.toSeconds(COUNT_EXPIRE)));
+        args.add(field);
+        fields.forEach((name, count) -> {
+            args.add(name);
+            args.add(count);
+        });
+        return stringRedisTemplate.execute(SEED_AND_GET_SCRIPT,
+                List.of(key, key + REBUILD_TOKEN_SUFFIX), args.toArray());
+    }
+
+    /**
+     * 从分组统计结果中取出指定状态的数量
+     */
+    private static long countFromRows(List<Map<String, Object>> rows, Integer status) {
+        long count = 0;
+        for (Map<String, Object> row : rows) {
+            if (status == null || status.equals(((Number) row.get("status")).intValue())) {
+                count += ((Number) row.get("cnt")).longValue();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 增量更新全局计数和上传用户计数
+     *
+     * @param uploadUserId 上传用户ID
+     * @param fromStatus   原状态（新增时为null）
+     * @param toStatus     新状态（删除时为null）
+     */
+    private void applyDelta(Long uploadUserId, Integer fromStatus, Integer toStatus) {
+        List<String> args = new ArrayList<>();
+        if (fromStatus != null) {
+            args.add(String.valueOf(fromStatus));
+            args.add("-1");
+        }
+        if (toStatus != null) {
+            args.add(String.valueOf(toStatus));
+            args.add("1");
+        }
+        if (fromStatus == null || toStatus == null) {
+            args.add(FIELD_ALL);
+            args.add(fromStatus == null ? "1" : "-1");
+        }
+        Object[] argv = args.toArray();
+
+        applyDelta(STATUS_COUNT_KEY, argv);
+        if (uploadUserId != null) {
+            applyDelta(UPLOADER_COUNT_PREFIX + uploadUserId, argv);
+        }
+    }
+
+    private void applyDelta(String key, Object[] argv) {
+        try {
+            stringRedisTemplate.execute(INCR_IF_EXISTS_SCRIPT, List.of(key, key + REBUILD_TOKEN_SUFFIX), argv);
+        } catch (Exception e) {
+            log.warn("音乐计数更新失败，删除计数等待重建: key={}, error={}", key, e.getMessage());
+            try {
+                stringRedisTemplate.delete(key);
+            } catch (Exception ignored) {
+                // 删除也失败时依赖过期时间修正
+            }
+        }
+    }
+}
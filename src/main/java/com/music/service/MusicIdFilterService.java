@@ -0,0 +1,195 @@
+package com.music.service;
+
+import com.music.mapper.MusicMapper;
+import com.music.util.BloomFilter;
+import com.music.util.TransactionUtil;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 音乐ID过滤服务
+ * 用布隆过滤器记录所有存在的音乐ID，不存在的ID在访问Redis和数据库之前直接拒绝。
+ * 启动时从数据库构建，新增音乐时增量加入并通知其他节点；
+ * 布隆过滤器不支持删除，已删除的ID由空值标记拦截，并通过定期重建清理。
+ * 过滤器未构建完成（如启动时数据库不可用）时放行所有ID。
+ * 通知是发后即忘的，可能丢失，因此构建时记录扫描到的最大ID，大于该ID的音乐（构建之后新增）一律放行，
+ * 不依赖通知到达，新上传的音乐不会在其他节点被误判为不存在。
+ */
+@Slf4j
+@Service
+public class MusicIdFilterService implements MessageListener {
+
+    /** 新增音乐ID通知频道 */
+    public static final String CATALOG_CHANGE_CHANNEL = "music:catalog:change";
+
+    @Autowired
+    private MusicMapper musicMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Value("${music.id-filter.fpp:0.01}")
+    private double fpp;
+
+    /** 当前生效的过滤器及构建时扫描到的最大ID，为null表示尚未构建 */
+    private volatile Built built;
+
+    /** 正在重建的过滤器，重建期间新增的ID同时写入 */
+    private volatile BloomFilter building;
+
+    /**
+     * 保护新增ID与过滤器替换：新增时读取两个过滤器并写入、重建时开始和替换都在锁内进行，
+     * 替换前新增的ID一定写入了新过滤器（扫描期间只写入，不阻塞扫描）
+     */
+    private final Object swapLock = new Object();
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(CATALOG_CHANGE_CHANNEL));
+    }
+
+    /**
+     * 判断音乐ID是否可能存在
+     *
+     * @param musicId 音乐ID
+     * @return false表示一定不存在
+     */
+    public boolean mightExist(Long musicId) {
+        if (musicId == null) {
+            return false;
+        }
+        Built current = built;
+        return current == null || musicId > current.maxId || current.filter.mightContain(musicId);
+    }
+
+    /**
+     * 新增音乐后加入过滤器，并通知其他节点（在事务提交后执行，保证与重建时的扫描不会遗漏）
+     *
+     * @param musicId 音乐ID
+     */
+    public void onCreate(Long musicId) {
+        TransactionUtil.afterCommit(() -> {
+            add(musicId);
+            try {
+                byte[] channel = CATALOG_CHANGE_CHANNEL.getBytes(StandardCharsets.UTF_8);
+                byte[] body = String.valueOf(musicId).getBytes(StandardCharsets.UTF_8);
+                stringRedisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(channel, body));
+            } catch (Exception e) {
+                // 该ID大于其他节点过滤器构建时的最大ID，通知失败时同样会被放行
+                log.warn("发布新增音乐通知失败: musicId={}, error={}", musicId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 接收其他节点的新增音乐通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            add(Long.parseLong(new String(message.getBody(), StandardCharsets.UTF_8)));
+        } catch (NumberFormatException e) {
+            log.warn("无效的新增音乐通知: {}", new String(message.getBody(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * 从数据库重建过滤器（定期执行，清理已删除的ID）
+     */
+    @Scheduled(fixedDelayString = "${music.id-filter.rebuild-millis:3600000}",
+            initialDelayString = "${music.id-filter.rebuild-millis:3600000}")
+    public synchronized void rebuild() {
+        long start = System.currentTimeMillis();
+        try {
+            long count = musicMapper.countMusic(null);
+            // 预留一倍容量给重建之后新增的音乐
+            BloomFilter next = new BloomFilter(Math.max(count * 2, 10000), fpp);
+            synchronized (swapLock) {
+                building = next;
+            }
+            long[] maxId = {0L};
+            musicMapper.scanAllIds(context -> {
+                long id = context.getResultObject();
+                next.put(id);
+                maxId[0] = Math.max(maxId[0], id);
+            });
+            synchronized (swapLock) {
+                built = new Built(next, maxId[0]);
+                building = null;
+            }
+            log.info("音乐ID过滤器构建完成: count={}, maxId={}, bits={}, hashes={}, cost={}ms",
+                    count, maxId[0], next.bitSize(), next.hashCount(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("音乐ID过滤器构建失败，暂不过滤: {}", e.getMessage());
+        } finally {
+            synchronized (swapLock) {
+                building = null;
+            }
+        }
+    }
+
+    /**
+     * 获取过滤器状态
+     *
+     * @return 是否已构建、构建时的最大ID、位数组大小、哈希函数个数
+     */
+    public Map<String, Object> stats() {
+        Built current = built;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", current != null);
+        stats.put("maxId", current != null ? current.maxId : 0);
+        stats.put("bits", current != null ? current.filter.bitSize() : 0);
+        stats.put("hashes", current != null ? current.filter.hashCount() : 0);
+        return stats;
+    }
+
+    private void add(Long musicId) {
+        synchronized (swapLock) {
+            Built current = built;
+            if (current != null) {
+                current.filter.put(musicId);
+            }
+            BloomFilter next = building;
+            if (next != null) {
+                next.put(musicId);
+            }
+        }
+    }
+
+    /**
+     * 生效的过滤器及其构建时扫描到的最大ID（一起替换，判断时不会读到不匹配的组合）
+     */
+    private static final class Built {
+        private final BloomFilter filter;
+        private final long maxId;
+
+        private Built(BloomFilter filter, long maxId) {
+            this.filter = filter;
+            this.maxId = maxId;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.music.service;
+
+import com.music.dto.MusicSearchDTO;
+import com.music.util.LocalCache;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 搜索结果ID缓存
+ * 热门搜索词会在短时间内被大量重复查询，这里按归一化后的搜索条件缓存匹配的音乐ID列表和总数，
+ * 命中时只按ID查询当前页的音乐并组装VO，不再执行搜索SQL和COUNT。
+ * <p>
+ * 缓存键 = 版本号 + 归一化的搜索条件（去除首尾空白、转小写、忽略空字段），旧版本的结果不再被读取并按LRU和过期时间淘汰。
+ * 数据库搜索使用曲库版本号（事务提交后递增）；内存索引搜索使用本节点索引的代数（文档刷新完成后递增），
+ * 曲库版本先于索引刷新递增，若也使用曲库版本，两者之间的搜索会把刷新前的结果缓存到新版本下。
+ */
+@Slf4j
+@Service
+public class MusicSearchCacheService {
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private MusicSearchIndexService musicSearchIndexService;
+
+    @Value("${cache.search.enabled:true}")
+    private boolean enabled;
+
+    @Value("${cache.search.max-size:2000}")
+    private int maxSize;
+
+    @Value("${cache.search.expire-seconds:60}")
+    private long expireSeconds;
+
+    @Value("${cache.search.max-ids:10000}")
+    private int maxIds;
+
+    private LocalCache<String, SearchIds> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = new LocalCache<>(maxSize, expireSeconds * 1000);
+    }
+
+    /**
+     * 归一化搜索条件：文本字段去除首尾空白，空字符串视为未填写
+     * 返回新的对象，不修改请求参数
+     *
+     * @param searchDTO 搜索条件
+     * @return 归一化后的搜索条件
+     */
+    public MusicSearchDTO normalize(MusicSearchDTO searchDTO) {
+        MusicSearchDTO normalized = new MusicSearchDTO();
+        normalized.setKeyword(trimToNull(searchDTO.getKeyword()));
+        normalized.setMusicName(trimToNull(searchDTO.getMusicName()));
+        normalized.setArtist(trimToNull(searchDTO.getArtist()));
+        normalized.setAlbum(trimToNull(searchDTO.getAlbum()));
+        normalized.setStatus(searchDTO.getStatus());
+        normalized.setPage(searchDTO.getPage());
+        normalized.setSize(searchDTO.getSize());
+        normalized.setCountLimit(searchDTO.getCountLimit());
+        normalized.setCursor(searchDTO.getCursor());
+        normalized.setFuzzy(searchDTO.getFuzzy());
+        normalized.setSort(trimToNull(searchDTO.getSort()));
+        normalized.setFacets(searchDTO.getFacets());
+        return normalized;
+    }
+
+    /**
+     * 内存索引搜索结果的缓存键（缓存全部匹配ID，与分页、排序和统计上限无关），必须在搜索之前获取
+     *
+     * @param searchDTO 归一化后的搜索条件
+     * @return 缓存键，缓存关闭时返回null
+     */
+    public String indexKey(MusicSearchDTO searchDTO) {
+        if (!enabled) {
+            return null;
+        }
+        StringBuilder key = baseKey(searchDTO, musicSearchIndexService.getGeneration(), "index");
+        if (Boolean.TRUE.equals(searchDTO.getFuzzy())) {
+            key.append("|fuzzy");
+        }
+        return key.toString();
+    }
+
+    /**
+     * 数据库搜索结果的缓存键（只缓存一页的ID，页码、每页数量和统计上限都是键的一部分）
+     *
+     * @param searchDTO 归一化后的搜索条件
+     * @return 缓存键，缓存关闭或曲库版本不可用时返回null
+     */
+    public String pageKey(MusicSearchDTO searchDTO) {
+        if (!enabled) {
+            return null;
+        }
+        long version;
+        try {
+            version = catalogVersionService.getVersion();
+        } catch (Exception e) {
+            // 曲库版本读取失败时无法判断缓存是否过期，不使用缓存
+            log.debug("搜索结果缓存不可用: {}", e.getMessage());
+            return null;
+        }
+        StringBuilder key = baseKey(searchDTO, version, "page");
+        key.append("|p=").append(searchDTO.getPage())
+                .append("|s=").append(searchDTO.getSize());
+        Integer countLimit = searchDTO.getCountLimit();
+        if (countLimit != null && countLimit > 0) {
+            key.append("|c=").append(countLimit);
+        }
+        return key.toString();
+    }
+
+    /**
+     * 读取缓存的搜索结果
+     *
+     * @param key 缓存键（为null时直接返回null）
+     * @return 搜索结果，未命中返回null
+     */
+    public SearchIds get(String key) {
+        return key != null ? cache.get(key) : null;
+    }
+
+    /**
+     * 写入搜索结果，ID数量超过上限时不缓存，避免少量宽泛的查询占用大量内存
+     *
+     * @param key    缓存键（为null时忽略）
+     * @param ids    音乐ID（按结果顺序）
+     * @param total  总数
+     * @param capped 总数是否因统计上限被截断
+     */
+    public void put(String key, List<Long> ids, long total, boolean capped) {
+        if (key == null || ids.size() > maxIds) {
+            return;
+        }
+        long[] array = new long[ids.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = ids.get(i);
+        }
+        cache.put(key, new SearchIds(array, total, capped));
+    }
+
+    /**
+     * 获取缓存状态
+     *
+     * @return 缓存条目数、命中率等
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = cache.stats();
+        stats.put("enabled", enabled);
+        return stats;
+    }
+
+    private static StringBuilder baseKey(MusicSearchDTO searchDTO, long version, String scope) {
+        StringBuilder key = new StringBuilder(64).append(version).append(':').append(scope);
+        appendField(key, "k", searchDTO.getKeyword());
+        appendField(key, "n", searchDTO.getMusicName());
+        appendField(key, "a", searchDTO.getArtist());
+        appendField(key, "b", searchDTO.getAlbum());
+        if (searchDTO.getStatus() != null) {
+            key.append("|st=").append(searchDTO.getStatus());
+        }
+        return key;
+    }
+
+    /**
+     * 追加文本条件（带长度前缀，避免字段值中的分隔符造成不同条件得到相同的键）
+     */
+    private static void appendField(StringBuilder key, String name, String value) {
+        if (value == null) {
+            return;
+        }
+        String folded = value.toLowerCase(Locale.ROOT);
+        key.append('|').append(name).append(folded.length()).append('=').append(folded);
+    }
+
+    private static String trimToNull(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    /**
+     * 缓存的搜索结果（ID以long数组保存，减少装箱对象的内存占用）
+     */
+    public static final class SearchIds {
+        private final long[] ids;
+        private final long total;
+        private final boolean capped;
+
+        private SearchIds(long[] ids, long total, boolean capped) {
+            this.ids = ids;
+            this.total = total;
+            this.capped = capped;
+        }
+
+        /**
+         * 取出 [from, to) 范围内的ID
+         */
+        public List<Long> subList(int from, int to) {
+            List<Long> result = new ArrayList<>(Math.max(0, to - from));
+            for (int i = from; i < to; i++) {
+                result.add(ids[i]);
+            }
+            return result;
+        }
+
+        /**
+         * 全部ID
+         */
+        public List<Long> toList() {
+            return subList(0, ids.length);
+        }
+
+        public int size() {
+            return ids.length;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public boolean isCapped() {
+            return capped;
+        }
+    }
+}
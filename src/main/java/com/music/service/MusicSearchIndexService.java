@@ -0,0 +1,753 @@
+package com.music.service;
+
+import com.music.common.Constants;
+import com.music.entity.Music;
+import com.music.mapper.MusicChangeMapper;
+import com.music.mapper.MusicMapper;
+import com.music.mapper.RateMapper;
+import com.music.util.FacetIndex;
+import com.music.util.FuzzyIndex;
+import com.music.util.NGramIndex;
+import com.music.util.SearchSegment;
+import com.music.util.SuggestIndex;
+import com.music.util.TransactionUtil;
+import com.music.vo.MusicStatsVO;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 音乐搜索索引服务
+ * 在内存中维护音乐名称、艺术家、专辑的n-gram倒排索引，搜索时直接得到匹配的音乐ID，不再对 t_music 执行 LIKE 全表扫描。
+ * 启动时从数据库流式构建；上传、修改、审核、删除音乐后在事务提交时刷新对应文档，并通知其他节点刷新；
+ * 开启模糊搜索时，关键字还会通过拼音、首字母和编辑距离匹配（见 FuzzyIndex）。
+ * 已发布音乐的名称、艺术家、专辑同时维护按播放量排序的输入联想索引（见 SuggestIndex）。
+ * 按相关度排序时，文本得分之外再加上由播放量、评分计算的热度分和按创建时间衰减的新鲜度分；
+ * 热度分在构建和刷新文档时计算，播放量的变化在下次全量重建时生效。
+ * 艺术家、专辑、状态另外维护压缩位图表示的分面索引，任意搜索结果的分面数量通过位图交集统计（见 FacetIndex）。
+ * 定期全量重建，修复丢失的通知；重建期间已刷新的文档不会被扫描读到的旧数据覆盖。索引未构建完成（如启动时数据库不可用）时搜索回退为SQL查询。
+ * <p>
+ * 开启快照时，全量重建的同时把文档写入本地段文件（见 SearchSegment），文件头记录曲库变更序号（t_music_change）；
+ * 启动时映射最新的段文件构建索引，只从数据库回放该序号之后的变更，不再全表扫描 t_music。
+ * 后台定期把新的变更与当前段文件按ID归并为新的段文件，重启时需要回放的变更保持在较少的数量。
+ */
+@Slf4j
+@Service
+public class MusicSearchIndexService implements MessageListener {
+
+    /** 音乐变更通知频道 */
+    public static final String SEARCH_CHANGE_CHANNEL = "music:search:change";
+
+    /** 相关度排序时名称、艺术家、专辑的字段权重 */
+    private static final double[] FIELD_WEIGHTS = {3.0, 2.0, 1.0};
+
+    /** 回放变更时额外包含读取快照序号前这段时间内记录的变更（覆盖序号较小但提交较晚的事务） */
+    private static final long CHANGE_SAFETY_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    /** 按ID批量读取变更文档时每批的数量 */
+    private static final int MERGE_BATCH_SIZE = 500;
+
+    /** 清理过期变更记录时每批删除的行数 */
+    private static final int PURGE_BATCH_SIZE = 10000;
+
+    /** 评分的先验均值和先验人数（评分人数少时向均值收缩，避免一两个5分排到最前） */
+    private static final double RATING_PRIOR_MEAN = 3.0;
+    private static final int RATING_PRIOR_COUNT = 5;
+
+    @Autowired
+    private MusicMapper musicMapper;
+
+    @Autowired
+    private RateMapper rateMapper;
+
+    @Autowired
+    private MusicChangeMapper musicChangeMapper;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private RedisMessageListenerContainer listenerContainer;
+
+    @Value("${music.search-index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${music.search-index.fuzzy-max-visits:20000}")
+    private int fuzzyMaxVisits;
+
+    @Value("${music.search-index.fuzzy-max-keys:2000}")
+    private int fuzzyMaxKeys;
+
+    @Value("${music.search-index.suggest-top-k:10}")
+    private int suggestTopK;
+
+    @Value("${music.search-index.relevance.popularity-weight:0.3}")
+    private double popularityWeight;
+
+    @Value("${music.search-index.relevance.rating-weight:1.0}")
+    private double ratingWeight;
+
+    @Value("${music.search-index.relevance.recency-weight:1.0}")
+    private double recencyWeight;
+
+    @Value("${music.search-index.relevance.recency-half-life-days:180}")
+    private long recencyHalfLifeDays;
+
+    @Value("${music.search-index.segment.enabled:true}")
+    private boolean segmentEnabled;
+
+    @Value("${music.search-index.segment.dir:./data/search-index}")
+    private String segmentDir;
+
+    @Value("${music.search-index.segment.keep:2}")
+    private int segmentKeep;
+
+    @Value("${music.search-index.segment.change-retention-days:7}")
+    private long changeRetentionDays;
+
+    /** 当前生效的索引，为null表示尚未构建 */
+    private volatile Indexes index;
+
+    /** 正在重建的索引，重建期间的变更同时写入 */
+    private volatile Indexes building;
+
+    /**
+     * 重建期间已由 refresh 写入最新数据的音乐ID（由 buildLock 保护）
+     * 全量扫描读取的是扫描开始时的一致性快照，扫描到这些ID时跳过，避免旧数据覆盖刷新后的文档
+     */
+    private final Set<Long> refreshedDuringBuild = new HashSet<>();
+
+    private final Object buildLock = new Object();
+
+    /** 索引内容的代数（本节点），每次刷新文档或替换索引完成后加一 */
+    private final AtomicLong generation = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        listenerContainer.addMessageListener(this, new ChannelTopic(SEARCH_CHANGE_CHANNEL));
+    }
+
+    /**
+     * 索引是否可用
+     */
+    public boolean isReady() {
+        return enabled && index != null;
+    }
+
+    /**
+     * 索引内容的代数
+     * 在搜索之前读取并作为结果缓存键的一部分：刷新完成后代数变化，之前缓存的结果不再被读取
+     *
+     * @return 当前代数
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * 搜索音乐ID
+     *
+     * @param keyword    关键字（匹配名称、艺术家或专辑）
+     * @param musicName  音乐名称
+     * @param artist     艺术家
+     * @param album      专辑
+     * @param status     状态
+     * @param cursorTime 游标创建时间（为null表示从头开始）
+     * @param cursorId   游标音乐ID
+     * @param fuzzy      是否对关键字做模糊匹配（拼音、首字母、错别字）
+     * @param limit      最多返回数量（游标分页传 size+1，需要全部匹配结果时传 Integer.MAX_VALUE）
+     * @return 按创建时间倒序、ID倒序排列的音乐ID
+     */
+    public List<Long> search(String keyword, String musicName, String artist, String album, Integer status,
+                             LocalDateTime cursorTime, Long cursorId, boolean fuzzy, int limit) {
+        Indexes current = index;
+        long beforeSortKey = cursorTime != null ? toSortKey(cursorTime) : Long.MAX_VALUE;
+        long beforeId = cursorTime != null ? cursorId : Long.MAX_VALUE;
+        String[] fieldTerms = {musicName, artist, album};
+        List<Long> exact = current.exact.search(status, keyword, fieldTerms, beforeSortKey, beforeId, limit);
+        if (!fuzzy || keyword == null || keyword.isBlank()) {
+            return exact;
+        }
+
+        // 模糊匹配的候选与精确匹配的前 limit 个合并后，统一按状态、字段条件和游标过滤排序
+        Set<Long> candidates = current.fuzzy.search(keyword);
+        if (candidates.isEmpty()) {
+            return exact;
+        }
+        candidates.addAll(exact);
+        return current.exact.filter(candidates, status, fieldTerms, beforeSortKey, beforeId, limit);
+    }
+
+    /**
+     * 没有文本条件时按创建时间倒序分页（顺序遍历，不对全部文档排序）
+     *
+     * @param status 状态（null表示不限）
+     * @param offset 跳过的数量
+     * @param limit  返回数量
+     * @return 按创建时间倒序、ID倒序排列的音乐ID
+     */
+    public List<Long> latest(Integer status, int offset, int limit) {
+        return index.exact.latest(status, Long.MAX_VALUE, Long.MAX_VALUE, offset, limit);
+    }
+
+    /**
+     * 指定状态的音乐数量
+     *
+     * @param status 状态（null表示全部）
+     * @return 音乐数量
+     */
+    public int count(Integer status) {
+        return index.exact.count(status);
+    }
+
+    /**
+     * 按相关度选出得分最高的音乐
+     *
+     * @param musicIds 候选音乐ID（search 的结果）
+     * @param keyword  关键字
+     * @param limit    返回数量
+     * @return 按相关度倒序排列的音乐ID
+     */
+    public List<Long> rank(List<Long> musicIds, String keyword, int limit) {
+        Indexes current = index;
+        if (current == null) {
+            return musicIds.subList(0, Math.min(limit, musicIds.size()));
+        }
+        return current.exact.top(musicIds, keyword, FIELD_WEIGHTS, limit, System.currentTimeMillis(),
+                recencyWeight, TimeUnit.DAYS.toMillis(recencyHalfLifeDays));
+    }
+
+    /**
+     * 统计搜索结果的艺术家、专辑、状态分面
+     *
+     * @param musicIds 搜索结果的音乐ID（search 的结果）
+     * @param limit    每个维度最多返回的取值数量
+     * @return 维度名称 -> 按数量倒序排列的取值，索引不可用时返回空Map
+     */
+    public Map<String, List<FacetIndex.FacetCount>> facets(List<Long> musicIds, int limit) {
+        Indexes current = index;
+        if (current == null) {
+            return Map.of();
+        }
+        return current.facet.count(musicIds, limit);
+    }
+
+    /**
+     * 输入联想
+     *
+     * @param prefix 已输入的前缀（原文、拼音或首字母）
+     * @param limit  最多返回数量
+     * @return 按播放量倒序排列的联想词，索引不可用时返回空列表
+     */
+    public List<SuggestIndex.Suggestion> suggest(String prefix, int limit) {
+        Indexes current = index;
+        if (!enabled || current == null) {
+            return List.of();
+        }
+        return current.suggest.suggest(prefix, Math.min(limit, suggestTopK));
+    }
+
+    /**
+     * 音乐变更后刷新索引，并通知其他节点（在事务提交后执行）
+     *
+     * @param musicId 音乐ID
+     */
+    public void onChange(Long musicId) {
+        if (segmentEnabled) {
+            try {
+                // 变更记录与业务数据在同一事务中写入，快照回放不会遗漏已提交的变更
+                musicChangeMapper.insert(musicId);
+            } catch (Exception e) {
+                log.warn("记录曲库变更失败: musicId={}, error={}", musicId, e.getMessage());
+            }
+        }
+        TransactionUtil.afterCommit(() -> {
+            refresh(musicId);
+            try {
+                byte[] channel = SEARCH_CHANGE_CHANNEL.getBytes(StandardCharsets.UTF_8);
+                byte[] body = String.valueOf(musicId).getBytes(StandardCharsets.UTF_8);
+                stringRedisTemplate.execute((RedisCallback<Long>) connection -> connection.publish(channel, body));
+            } catch (Exception e) {
+                // 通知失败时其他节点在下次重建后更新
+                log.warn("发布音乐变更通知失败: musicId={}, error={}", musicId, e.getMessage());
+            }
+        });
+    }
+
+    /**
+     * 接收其他节点的音乐变更通知
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            refresh(Long.parseLong(new String(message.getBody(), StandardCharsets.UTF_8)));
+        } catch (NumberFormatException e) {
+            log.warn("无效的音乐变更通知: {}", new String(message.getBody(), StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            log.warn("搜索索引刷新失败: {}", e.getMessage());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (!loadSegment()) {
+            rebuild();
+        }
+    }
+
+    /**
+     * 从数据库重建索引（定期执行，修复丢失的变更通知）
+     */
+    @Scheduled(fixedDelayString = "${music.search-index.rebuild-millis:3600000}",
+            initialDelayString = "${music.search-index.rebuild-millis:3600000}")
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            Indexes next = newIndexes();
+            startBuilding(next);
+            // 变更序号在扫描之前读取，扫描期间的变更在加载快照时会被回放
+            SearchSegment.Writer writer = openSegmentWriter();
+            try {
+                Map<Long, MusicStatsVO> ratings = new HashMap<>();
+                rateMapper.scanRatingSummary(context -> ratings.put(context.getResultObject().getMusicId(),
+                        context.getResultObject()));
+                musicMapper.scanSearchFields(context -> {
+                    Music music = context.getResultObject();
+                    MusicStatsVO rating = ratings.get(music.getId());
+                    putScanned(next, music, rating);
+                    if (writer != null) {
+                        writer.add(toEntry(music, rating));
+                    }
+                });
+                index = next;
+                generation.incrementAndGet();
+                commitSegment(writer);
+            } finally {
+                closeQuietly(writer);
+            }
+            log.info("音乐搜索索引构建完成: documents={}, grams={}, pinyinKeys={}, suggestions={}, facetValues={}, cost={}ms",
+                    next.exact.size(), next.exact.gramCount(), next.fuzzy.keyCount(), next.suggest.size(),
+                    next.facet.valueCount(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("音乐搜索索引构建失败，搜索暂时使用SQL查询: {}", e.getMessage());
+        } finally {
+            stopBuilding();
+        }
+    }
+
+    /**
+     * 把快照之后的变更与最新的段文件按ID归并为新的段文件，并清理过期的变更记录
+     */
+    @Scheduled(fixedDelayString = "${music.search-index.segment.merge-millis:600000}",
+            initialDelayString = "${music.search-index.segment.merge-millis:600000}")
+    public synchronized void mergeSegment() {
+        if (!enabled || !segmentEnabled) {
+            return;
+        }
+        try {
+            purgeChanges();
+            List<Path> paths = segmentPaths();
+            if (paths.isEmpty()) {
+                return;
+            }
+            SearchSegment segment = SearchSegment.open(paths.get(0));
+            long sequenceTime = System.currentTimeMillis();
+            long sequence = currentSequence();
+            List<Long> changed = changedSince(segment);
+            if (changed.isEmpty()) {
+                return;
+            }
+
+            // 变更的文档从数据库读取最新数据，已删除的音乐不再写入新段文件
+            TreeMap<Long, SearchSegment.Entry> updated = new TreeMap<>();
+            for (int from = 0; from < changed.size(); from += MERGE_BATCH_SIZE) {
+                List<Long> batch = changed.subList(from, Math.min(from + MERGE_BATCH_SIZE, changed.size()));
+                for (Music music : musicMapper.findByIds(batch)) {
+                    updated.put(music.getId(), toEntry(music, rateMapper.selectRatingSummary(music.getId())));
+                }
+            }
+            Set<Long> changedIds = Set.copyOf(changed);
+
+            long start = System.currentTimeMillis();
+            Path path;
+            try (SearchSegment.Writer writer = SearchSegment.create(Paths.get(segmentDir), sequence, sequenceTime)) {
+                segment.forEach(entry -> {
+                    while (!updated.isEmpty() && updated.firstKey() < entry.getId()) {
+                        writer.add(updated.pollFirstEntry().getValue());
+                    }
+                    if (!changedIds.contains(entry.getId())) {
+                        writer.add(entry);
+                    } else if (updated.containsKey(entry.getId())) {
+                        writer.add(updated.remove(entry.getId()));
+                    }
+                });
+                updated.values().forEach(writer::add);
+                path = writer.commit();
+            }
+            deleteOldSegments();
+            log.info("搜索索引快照合并完成: file={}, sequence={}, changes={}, cost={}ms",
+                    path.getFileName(), sequence, changed.size(), System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("搜索索引快照合并失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 获取索引状态
+     *
+     * @return 是否已构建、文档数量、gram数量、拼音key数量、联想词数量、分面取值数量
+     */
+    public Map<String, Object> stats() {
+        Indexes current = index;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("ready", isReady());
+        stats.put("documents", current != null ? current.exact.size() : 0);
+        stats.put("grams", current != null ? current.exact.gramCount() : 0);
+        stats.put("pinyinKeys", current != null ? current.fuzzy.keyCount() : 0);
+        stats.put("suggestions", current != null ? current.suggest.size() : 0);
+        stats.put("facetValues", current != null ? current.facet.valueCount() : 0);
+        return stats;
+    }
+
+    /**
+     * 映射最新的可用段文件构建索引，并回放快照之后的变更
+     *
+     * @return 是否加载成功（失败时由调用方全量重建）
+     */
+    private synchronized boolean loadSegment() {
+        if (!enabled || !segmentEnabled) {
+            return false;
+        }
+        List<Path> paths;
+        try {
+            paths = segmentPaths();
+        } catch (IOException e) {
+            log.warn("读取搜索索引快照目录失败: {}", e.getMessage());
+            return false;
+        }
+        long oldest = System.currentTimeMillis() - TimeUnit.DAYS.toMillis(changeRetentionDays);
+        for (Path path : paths) {
+            long start = System.currentTimeMillis();
+            try {
+                SearchSegment segment = SearchSegment.open(path);
+                if (segment.getSequenceTime() < oldest) {
+                    // 快照之后的变更记录可能已被清理，无法保证回放完整
+                    log.info("搜索索引快照已过期，改为全量重建: file={}", path.getFileName());
+                    return false;
+                }
+                Indexes next = newIndexes();
+                startBuilding(next);
+                segment.forEach(entry -> putScanned(next, toMusic(entry), toRating(entry)));
+                // 回放期间收到的变更通知同时写入正在加载的索引
+                List<Long> changed = changedSince(segment);
+                for (Long musicId : changed) {
+                    refresh(musicId);
+                }
+                index = next;
+                generation.incrementAndGet();
+                log.info("音乐搜索索引从快照加载完成: file={}, documents={}, replayed={}, cost={}ms",
+                        path.getFileName(), segment.size(), changed.size(), System.currentTimeMillis() - start);
+                return true;
+            } catch (Exception e) {
+                log.warn("搜索索引快照加载失败: file={}, error={}", path.getFileName(), e.getMessage());
+            } finally {
+                stopBuilding();
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 全量重建时同时写入的段文件（未开启快照或变更序号不可用时返回null）
+     */
+    private SearchSegment.Writer openSegmentWriter() {
+        if (!segmentEnabled) {
+            return null;
+        }
+        try {
+            // 时间在读取序号之前取得：序号较小、在此之后才提交的变更仍落在回放的安全窗口内
+            long sequenceTime = System.currentTimeMillis();
+            return SearchSegment.create(Paths.get(segmentDir), currentSequence(), sequenceTime);
+        } catch (Exception e) {
+            log.warn("创建搜索索引快照失败: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void commitSegment(SearchSegment.Writer writer) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            Path path = writer.commit();
+            deleteOldSegments();
+            log.info("搜索索引快照已保存: file={}", path.getFileName());
+        } catch (Exception e) {
+            log.warn("保存搜索索引快照失败: {}", e.getMessage());
+        }
+    }
+
+    private static void closeQuietly(SearchSegment.Writer writer) {
+        if (writer == null) {
+            return;
+        }
+        try {
+            writer.close();
+        } catch (IOException e) {
+            log.debug("删除搜索索引快照临时文件失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 段文件按新到旧排列
+     */
+    private List<Path> segmentPaths() throws IOException {
+        Path dir = Paths.get(segmentDir);
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.startsWith(SearchSegment.FILE_PREFIX) && name.endsWith(SearchSegment.FILE_SUFFIX);
+                    })
+                    .sorted(Comparator.comparing((Path path) -> path.getFileName().toString()).reversed())
+                    .toList();
+        }
+    }
+
+    /**
+     * 只保留最新的几个段文件
+     */
+    private void deleteOldSegments() throws IOException {
+        List<Path> paths = segmentPaths();
+        for (Path path : paths.subList(Math.min(Math.max(segmentKeep, 1), paths.size()), paths.size())) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private long currentSequence() {
+        Long sequence = musicChangeMapper.selectMaxSeq();
+        return sequence != null ? sequence : 0L;
+    }
+
+    private List<Long> changedSince(SearchSegment segment) {
+        LocalDateTime since = LocalDateTime.ofInstant(
+                Instant.ofEpochMilli(segment.getSequenceTime() - CHANGE_SAFETY_MILLIS), ZoneId.systemDefault());
+        return new ArrayList<>(musicChangeMapper.selectChangedSince(segment.getSequence(), since));
+    }
+
+    /**
+     * 分批删除超过保留天数的变更记录
+     */
+    private void purgeChanges() {
+        LocalDateTime before = LocalDateTime.now().minusDays(changeRetentionDays);
+        int deleted;
+        do {
+            deleted = musicChangeMapper.deleteBefore(before, PURGE_BATCH_SIZE);
+        } while (deleted == PURGE_BATCH_SIZE);
+    }
+
+    private Indexes newIndexes() {
+        return new Indexes(new NGramIndex(), new FuzzyIndex(fuzzyMaxVisits, fuzzyMaxKeys),
+                new SuggestIndex(suggestTopK), newFacetIndex());
+    }
+
+    private static SearchSegment.Entry toEntry(Music music, MusicStatsVO rating) {
+        boolean rated = rating != null && rating.getTotalRatings() != null && rating.getTotalRatings() > 0;
+        return new SearchSegment.Entry(music.getId(),
+                music.getStatus() != null ? music.getStatus() : -1,
+                music.getCreateTime() != null ? toSortKey(music.getCreateTime()) : null,
+                music.getPlayCount() != null ? music.getPlayCount() : 0L,
+                rated ? rating.getTotalRatings() : 0,
+                rated && rating.getAvgScore() != null ? rating.getAvgScore() : 0D,
+                music.getMusicName(), music.getArtist(), music.getAlbum());
+    }
+
+    private static Music toMusic(SearchSegment.Entry entry) {
+        Music music = new Music();
+        music.setId(entry.getId());
+        music.setStatus(entry.getStatus() >= 0 ? entry.getStatus() : null);
+        music.setCreateTime(entry.getCreateTime() != null
+                ? LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.getCreateTime()), ZoneId.systemDefault())
+                : null);
+        music.setPlayCount(entry.getPlayCount());
+        music.setMusicName(entry.getMusicName());
+        music.setArtist(entry.getArtist());
+        music.setAlbum(entry.getAlbum());
+        return music;
+    }
+
+    private static MusicStatsVO toRating(SearchSegment.Entry entry) {
+        if (entry.getRatingCount() == 0) {
+            return null;
+        }
+        MusicStatsVO rating = new MusicStatsVO();
+        rating.setMusicId(entry.getId());
+        rating.setTotalRatings(entry.getRatingCount());
+        rating.setAvgScore(entry.getRatingAverage());
+        return rating;
+    }
+
+    /**
+     * 从数据库读取最新数据刷新单个文档
+     */
+    private void refresh(Long musicId) {
+        Indexes current = index;
+        Indexes next = building;
+        if (current == null && next == null) {
+            return;
+        }
+        Music music = musicMapper.findById(musicId);
+        double boost = music != null ? boost(music, rateMapper.selectRatingSummary(musicId)) : 0;
+        if (current != null) {
+            apply(current, musicId, music, boost);
+        }
+        if (next != null) {
+            synchronized (buildLock) {
+                if (building == next) {
+                    refreshedDuringBuild.add(musicId);
+                }
+                apply(next, musicId, music, boost);
+            }
+        }
+        generation.incrementAndGet();
+    }
+
+    private static void apply(Indexes target, Long musicId, Music music, double boost) {
+        if (music == null) {
+            target.remove(musicId);
+        } else {
+            target.put(music, boost);
+        }
+    }
+
+    /**
+     * 写入全量扫描（或快照）中的文档，重建期间已刷新过的文档跳过
+     * refresh 在锁内先登记ID再写入，扫描在锁内先检查再写入，两者对同一文档的写入不会交错
+     */
+    private void putScanned(Indexes next, Music music, MusicStatsVO rating) {
+        double boost = boost(music, rating);
+        synchronized (buildLock) {
+            if (!refreshedDuringBuild.contains(music.getId())) {
+                next.put(music, boost);
+            }
+        }
+    }
+
+    private void startBuilding(Indexes next) {
+        synchronized (buildLock) {
+            refreshedDuringBuild.clear();
+            building = next;
+        }
+    }
+
+    private void stopBuilding() {
+        synchronized (buildLock) {
+            building = null;
+            refreshedDuringBuild.clear();
+        }
+    }
+
+    /**
+     * 与查询无关的热度分：播放量取对数，评分按先验均值收缩后归一化到 [0, 1]
+     */
+    private double boost(Music music, MusicStatsVO rating) {
+        long playCount = music.getPlayCount() != null ? Math.max(music.getPlayCount(), 0) : 0;
+        double score = popularityWeight * Math.log10(1 + playCount);
+        if (rating != null && rating.getTotalRatings() != null && rating.getTotalRatings() > 0) {
+            double average = rating.getAvgScore() != null ? rating.getAvgScore() : RATING_PRIOR_MEAN;
+            double shrunk = (RATING_PRIOR_MEAN * RATING_PRIOR_COUNT + average * rating.getTotalRatings())
+                    / (RATING_PRIOR_COUNT + rating.getTotalRatings());
+            score += ratingWeight * shrunk / 5;
+        } else {
+            score += ratingWeight * RATING_PRIOR_MEAN / 5;
+        }
+        return score;
+    }
+
+    private static FacetIndex newFacetIndex() {
+        return new FacetIndex(Constants.SearchFacet.ARTIST, Constants.SearchFacet.ALBUM, Constants.SearchFacet.STATUS);
+    }
+
+    private static long toSortKey(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    /**
+     * 精确匹配索引、模糊匹配索引、联想索引和分面索引（一起构建、一起替换）
+     */
+    private static final class Indexes {
+        private final NGramIndex exact;
+        private final FuzzyIndex fuzzy;
+        private final SuggestIndex suggest;
+        private final FacetIndex facet;
+
+        private Indexes(NGramIndex exact, FuzzyIndex fuzzy, SuggestIndex suggest, FacetIndex facet) {
+            this.exact = exact;
+            this.fuzzy = fuzzy;
+            this.suggest = suggest;
+            this.facet = facet;
+        }
+
+        private void put(Music music, double boost) {
+            exact.put(music.getId(),
+                    music.getStatus() != null ? music.getStatus() : -1,
+                    music.getCreateTime() != null ? toSortKey(music.getCreateTime()) : 0L,
+                    boost,
+                    music.getMusicName(), music.getArtist(), music.getAlbum());
+            fuzzy.put(music.getId(), music.getMusicName(), music.getArtist(), music.getAlbum());
+            facet.put(music.getId(), music.getArtist(), music.getAlbum(),
+                    music.getStatus() != null ? String.valueOf(music.getStatus()) : null);
+            // 只有已发布的音乐参与联想，审核或下架后移除
+            if (Constants.MusicStatus.PUBLISHED.equals(music.getStatus())) {
+                suggest.put(music.getId(), music.getPlayCount() != null ? music.getPlayCount() : 0L,
+                        music.getMusicName(), music.getArtist(), music.getAlbum());
+            } else {
+                suggest.remove(music.getId());
+            }
+        }
+
+        private void remove(long musicId) {
+            exact.remove(musicId);
+            fuzzy.remove(musicId);
+            suggest.remove(musicId);
+            facet.remove(musicId);
+        }
+    }
+}
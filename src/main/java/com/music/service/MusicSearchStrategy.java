@@ -0,0 +1,43 @@
+package com.music.service;
+
+import com.music.dto.MusicSearchDTO;
+import com.music.entity.Music;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 音乐搜索的数据库查询策略
+ * 内存搜索索引关闭或尚未构建完成时，搜索通过该策略查询数据库；
+ * 由 music.search.strategy 选择实现：like（默认，LIKE '%词%'）或 fulltext（FULLTEXT ngram 索引）。
+ */
+public interface MusicSearchStrategy {
+
+    /**
+     * 搜索音乐（按创建时间倒序，由调用方通过 PageHelper 分页）
+     *
+     * @param searchDTO 搜索条件
+     * @return 音乐列表（只包含列表字段）
+     */
+    List<Music> search(MusicSearchDTO searchDTO);
+
+    /**
+     * 统计搜索结果数量（最多统计到limit条）
+     *
+     * @param searchDTO 搜索条件
+     * @param limit     统计上限
+     * @return 搜索结果数量，不超过limit
+     */
+    long countLimited(MusicSearchDTO searchDTO, int limit);
+
+    /**
+     * 搜索音乐（游标分页，按创建时间、ID倒序）
+     *
+     * @param searchDTO  搜索条件
+     * @param cursorTime 游标时间（null表示第一页）
+     * @param cursorId   游标ID
+     * @param limit      查询条数
+     * @return 音乐列表（只包含列表字段）
+     */
+    List<Music> searchAfterCursor(MusicSearchDTO searchDTO, LocalDateTime cursorTime, Long cursorId, int limit);
+}
@@ -2,6 +2,7 @@ package com.music.service;
 
 import com.github.pagehelper.PageHelper;
 import com.github.pagehelper.PageInfo;
+import com.music.common.Constants;
 import com.music.common.PageResult;
 import com.music.dto.MusicSearchDTO;
 import com.music.dto.MusicUpdateDTO;
@@ -15,12 +16,22 @@ import com.music.mapper.FavoriteMapper;
 import com.music.mapper.MusicMapper;
 import com.music.mapper.PlayHistoryMapper;
 import com.music.mapper.UserMapper;
+import com.music.util.CursorUtil;
+import com.music.util.FacetIndex;
+import com.music.util.HotKeyDetector;
+import com.music.util.SuggestIndex;
+import com.music.util.TransactionUtil;
+import com.music.vo.FacetVO;
 import com.music.vo.MusicDetailVO;
+import com.music.vo.MusicPlayVO;
+import com.music.vo.MusicSuggestVO;
 import com.music.vo.MusicVO;
+import jakarta.annotation.PostConstruct;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -55,11 +66,70 @@ public class MusicService {
     private UserService userService;
 
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private CacheService cacheService;
+
+    @Autowired
+    private FavoriteIndexService favoriteIndexService;
+
+    @Autowired
+    private CatalogVersionService catalogVersionService;
+
+    @Autowired
+    private MusicCountService musicCountService;
+
+    @Autowired
+    private MusicIdFilterService musicIdFilterService;
+
+    @Autowired
+    private MusicSearchIndexService musicSearchIndexService;
+
+    @Autowired
+    private MusicSearchStrategy musicSearchStrategy;
+
+    @Autowired
+    private MusicSearchCacheService musicSearchCacheService;
+
+    @Autowired
+    private PlayCountService playCountService;
 
     private static final String MUSIC_CACHE_PREFIX = "music:info:";
-    private static final String MUSIC_PLAY_COUNT_PREFIX = "music:play:count:";
+    private static final String MUSIC_PLAY_CACHE_PREFIX = "music:play:";
     private static final long MUSIC_CACHE_EXPIRE = 60; // 60分钟
+    private static final long MUSIC_LIST_CACHE_EXPIRE = 30; // 30分钟
+    private static final int SUGGEST_DEFAULT_SIZE = 10; // 联想默认返回数量
+
+    @Value("${music.search-index.facet-size:10}")
+    private int facetSize;
+
+    @Value("${cache.hot-key.enabled:true}")
+    private boolean hotKeyEnabled;
+
+    @Value("${cache.hot-key.sample-rate:10}")
+    private int hotKeySampleRate;
+
+    @Value("${cache.hot-key.window-seconds:10}")
+    private long hotKeyWindowSeconds;
+
+    @Value("${cache.hot-key.threshold:1000}")
+    private long hotKeyThreshold;
+
+    @Value("${cache.hot-key.max-pinned:50}")
+    private int hotKeyMaxPinned;
+
+    @Value("${cache.hot-key.bucket-count:10}")
+    private int hotKeyBucketCount;
+
+    @Value("${cache.hot-key.max-keys-per-bucket:10000}")
+    private int hotKeyMaxKeysPerBucket;
+
+    /** 音乐详情key的访问热度探测 */
+    private HotKeyDetector hotKeyDetector;
+
+    @PostConstruct
+    public void initHotKeyDetector() {
+        hotKeyDetector = new HotKeyDetector(hotKeySampleRate, TimeUnit.SECONDS.toMillis(hotKeyWindowSeconds),
+                hotKeyBucketCount, hotKeyMaxKeysPerBucket);
+    }
 
     /**
      * 上传音乐
@@ -120,6 +190,14 @@ public class MusicService {
             throw new BusinessException("音乐上传失败");
         }
 
+        // 7. 更新曲库版本、计数、ID过滤器和搜索索引，并清除该ID可能存在的空值标记
+        catalogVersionService.bump();
+        musicCountService.onCreate(userId, music.getStatus());
+        musicIdFilterService.onCreate(music.getId());
+        musicSearchIndexService.onChange(music.getId());
+        Long musicId = music.getId();
+        TransactionUtil.afterCommit(() -> clearMusicCache(musicId));
+
         log.info("音乐上传成功: musicId={}, musicName={}, userId={}",
                 music.getId(), music.getMusicName(), userId);
         return music.getId();
@@ -135,17 +213,60 @@ public class MusicService {
      * @return 分页结果
      */
     public PageResult<MusicVO> getMusicList(Integer page, Integer size, Integer status, Long userId) {
-        PageHelper.startPage(page, size);
+        // 1. 超过最大分页大小的请求不缓存，避免缓存被少量大分页占满
+        if (size > Constants.Page.MAX_SIZE) {
+            return queryMusicList(page, size, status, userId);
+        }
+
+        // 2. 按曲库版本读取与用户无关的分页缓存，曲库变化后版本号递增，旧分页自然过期
+        String cacheKey = Constants.CacheKey.MUSIC_LIST + catalogVersionService.getVersion()
+                + ":" + status + ":" + page + ":" + size;
+        @SuppressWarnings("unchecked")
+        PageResult<MusicVO> cachedPage = (PageResult<MusicVO>) cacheService.get(cacheKey);
+        if (cachedPage == null) {
+            cachedPage = queryMusicList(page, size, status, null);
+            cacheService.put(cacheKey, cachedPage, MUSIC_LIST_CACHE_EXPIRE, TimeUnit.MINUTES);
+        }
+
+        // 3. 复制缓存分页并叠加当前用户的收藏状态
+        return overlayFavorite(cachedPage, userId);
+    }
+
+    /**
+     * 计算音乐列表的ETag（曲库版本 + 查询参数 + 当前用户收藏集合），不执行列表查询
+     *
+     * @param page   页码
+     * @param size   每页数量
+     * @param status 状态筛选
+     * @param userId 当前用户ID
+     * @return ETag
+     */
+    public String getMusicListETag(Integer page, Integer size, Integer status, Long userId) {
+        StringBuilder etag = new StringBuilder("list-")
+                .append(catalogVersionService.getVersion())
+                .append('-').append(status)
+                .append('-').append(page)
+                .append('-').append(size);
+        if (userId != null) {
+            etag.append("-u").append(userId)
+                    .append('-').append(Integer.toHexString(Arrays.hashCode(favoriteIndexService.getFavoriteIds(userId))));
+        }
+        return etag.toString();
+    }
+
+    /**
+     * 从数据库查询音乐列表
+     */
+    private PageResult<MusicVO> queryMusicList(Integer page, Integer size, Integer status, Long userId) {
+        // 总数从计数服务读取，分页查询不再执行COUNT
+        PageHelper.startPage(page, size, false);
 
         List<Music> musicList = musicMapper.findByStatus(status);
-        PageInfo<Music> pageInfo = new PageInfo<>(musicList);
 
-        // 转换为VO
-        List<MusicVO> voList = musicList.stream()
-                .map(music -> convertToVO(music, userId))
-                .collect(Collectors.toList());
+        // 批量转换为VO
+        List<MusicVO> voList = convertToVOList(musicList, userId);
 
-        return PageResult.of(pageInfo.getTotal(), page, size, voList);
+        return PageResult.of(musicCountService.countByStatus(status), page, size, voList);
     }
 
     /**
@@ -156,24 +277,169 @@ public class MusicService {
      * @return 分页结果
      */
     public PageResult<MusicVO> searchMusic(MusicSearchDTO searchDTO, Long userId) {
-        PageHelper.startPage(searchDTO.getPage(), searchDTO.getSize());
-
-        List<Music> musicList = musicMapper.searchMusic(
-                searchDTO.getKeyword(),
-                searchDTO.getMusicName(),
-                searchDTO.getArtist(),
-                searchDTO.getAlbum(),
-                searchDTO.getStatus()
-        );
+        // 归一化后的条件同时用于查询和缓存键，保证等价的条件得到相同的结果
+        searchDTO = musicSearchCacheService.normalize(searchDTO);
+        Integer countLimit = searchDTO.getCountLimit();
+        boolean limitedCount = countLimit != null && countLimit > 0;
+
+        // 优先使用内存倒排索引，索引未就绪时通过配置的搜索策略查询数据库（只支持按创建时间排序）
+        if (musicSearchIndexService.isReady()) {
+            return searchMusicByIndex(searchDTO, userId, limitedCount ? countLimit : null);
+        }
 
-        PageInfo<Music> pageInfo = new PageInfo<>(musicList);
+        // 命中搜索结果缓存时只按ID查询当前页
+        String cacheKey = musicSearchCacheService.pageKey(searchDTO);
+        MusicSearchCacheService.SearchIds cached = musicSearchCacheService.get(cacheKey);
+        if (cached != null) {
+            List<MusicVO> voList = convertToVOList(findMusicInOrder(cached.toList()), userId);
+            return PageResult.ofCapped(cached.getTotal(), cached.isCapped(),
+                    searchDTO.getPage(), searchDTO.getSize(), voList);
+        }
+
+        // 指定统计上限时不做完整COUNT，改为统计到上限为止
+        PageHelper.startPage(searchDTO.getPage(), searchDTO.getSize(), !limitedCount);
+
+        List<Music> musicList = musicSearchStrategy.search(searchDTO);
+
+        long total;
+        boolean capped;
+        if (!limitedCount) {
+            total = new PageInfo<>(musicList).getTotal();
+            capped = false;
+        } else {
+            // 多统计一条用于判断是否超过上限
+            long count = musicSearchStrategy.countLimited(searchDTO, countLimit + 1);
+            capped = count > countLimit;
+            total = capped ? (long) countLimit : count;
+        }
+        musicSearchCacheService.put(cacheKey, musicList.stream().map(Music::getId).toList(), total, capped);
+
+        // 批量转换为VO
+        List<MusicVO> voList = convertToVOList(musicList, userId);
+        return PageResult.ofCapped(total, capped, searchDTO.getPage(), searchDTO.getSize(), voList);
+    }
+
+    /**
+     * 通过搜索索引得到匹配的音乐ID，只按ID查询当前页的数据
+     * 匹配的ID列表按归一化的搜索条件缓存，重复的查询不再遍历索引
+     *
+     * @param searchDTO  搜索条件（已归一化）
+     * @param userId     当前用户ID
+     * @param countLimit 总数统计上限（为null时返回精确总数）
+     * @return 分页结果
+     */
+    private PageResult<MusicVO> searchMusicByIndex(MusicSearchDTO searchDTO, Long userId, Integer countLimit) {
+        boolean relevance = Constants.SearchSort.RELEVANCE.equals(searchDTO.getSort());
+        boolean facets = Boolean.TRUE.equals(searchDTO.getFacets());
+        if (!relevance && !facets && !hasTextCondition(searchDTO)) {
+            // 没有文本条件时顺序遍历按创建时间排列的索引，不取出全部匹配结果
+            int page = Math.max(searchDTO.getPage(), 1);
+            int size = Math.max(searchDTO.getSize(), 1);
+            int offset = (int) Math.min((long) (page - 1) * size, Integer.MAX_VALUE);
+            List<Long> musicIds = musicSearchIndexService.latest(searchDTO.getStatus(), offset, size);
+            List<MusicVO> voList = convertToVOList(findMusicInOrder(musicIds), userId);
+            long total = musicSearchIndexService.count(searchDTO.getStatus());
+            if (countLimit == null) {
+                return PageResult.of(total, page, size, voList);
+            }
+            boolean capped = total > countLimit;
+            return PageResult.ofCapped(capped ? (long) countLimit : total, capped, page, size, voList);
+        }
+
+        String cacheKey = musicSearchCacheService.indexKey(searchDTO);
+        MusicSearchCacheService.SearchIds cached = musicSearchCacheService.get(cacheKey);
+        List<Long> musicIds;
+        if (cached != null) {
+            musicIds = cached.toList();
+        } else {
+            musicIds = musicSearchIndexService.search(
+                    searchDTO.getKeyword(),
+                    searchDTO.getMusicName(),
+                    searchDTO.getArtist(),
+                    searchDTO.getAlbum(),
+                    searchDTO.getStatus(),
+                    null,
+                    null,
+                    Boolean.TRUE.equals(searchDTO.getFuzzy()),
+                    Integer.MAX_VALUE
+            );
+            musicSearchCacheService.put(cacheKey, musicIds, musicIds.size(), false);
+        }
+
+        int page = Math.max(searchDTO.getPage(), 1);
+        int size = Math.max(searchDTO.getSize(), 1);
+        int from = (int) Math.min((long) (page - 1) * size, musicIds.size());
+        int to = Math.min(from + size, musicIds.size());
+        List<Long> ordered = musicIds;
+        if (relevance && from < to) {
+            // 按相关度排序时只选出前 to 名，不对全部匹配结果排序
+            ordered = musicSearchIndexService.rank(musicIds, searchDTO.getKeyword(), to);
+            to = Math.min(to, ordered.size());
+            from = Math.min(from, to);
+        }
+        List<MusicVO> voList = convertToVOList(findMusicInOrder(ordered.subList(from, to)), userId);
+
+        long total = musicIds.size();
+        PageResult<MusicVO> result;
+        if (countLimit == null) {
+            result = PageResult.of(total, page, size, voList);
+        } else {
+            boolean capped = total > countLimit;
+            result = PageResult.ofCapped(capped ? (long) countLimit : total, capped, page, size, voList);
+        }
+        if (facets) {
+            // 分面按全部匹配结果统计，不受分页和统计上限影响
+            result.setFacets(toFacetVOs(musicSearchIndexService.facets(musicIds, facetSize)));
+        }
+        return result;
+    }
 
-        // 转换为VO
-        List<MusicVO> voList = musicList.stream()
-                .map(music -> convertToVO(music, userId))
-                .collect(Collectors.toList());
+    /**
+     * 是否有关键字、名称、艺术家或专辑条件（已归一化，空白视为未填写）
+     */
+    private static boolean hasTextCondition(MusicSearchDTO searchDTO) {
+        return searchDTO.getKeyword() != null || searchDTO.getMusicName() != null
+                || searchDTO.getArtist() != null || searchDTO.getAlbum() != null;
+    }
+
+    /**
+     * 分面统计结果转换为VO
+     */
+    private Map<String, List<FacetVO>> toFacetVOs(Map<String, List<FacetIndex.FacetCount>> facets) {
+        Map<String, List<FacetVO>> result = new LinkedHashMap<>();
+        for (Map.Entry<String, List<FacetIndex.FacetCount>> entry : facets.entrySet()) {
+            List<FacetVO> voList = new ArrayList<>(entry.getValue().size());
+            for (FacetIndex.FacetCount facet : entry.getValue()) {
+                FacetVO vo = new FacetVO();
+                vo.setValue(facet.getValue());
+                vo.setCount(facet.getCount());
+                voList.add(vo);
+            }
+            result.put(entry.getKey(), voList);
+        }
+        return result;
+    }
 
-        return PageResult.of(pageInfo.getTotal(), searchDTO.getPage(), searchDTO.getSize(), voList);
+    /**
+     * 输入联想（只使用内存联想索引，索引不可用时返回空列表，不回退为SQL查询）
+     *
+     * @param prefix 已输入的前缀
+     * @param size   最多返回数量
+     * @return 联想词列表
+     */
+    public List<MusicSuggestVO> suggest(String prefix, Integer size) {
+        if (prefix == null || prefix.isBlank()) {
+            return Collections.emptyList();
+        }
+        int limit = size != null && size > 0 ? size : SUGGEST_DEFAULT_SIZE;
+        List<MusicSuggestVO> voList = new ArrayList<>();
+        for (SuggestIndex.Suggestion suggestion : musicSearchIndexService.suggest(prefix, limit)) {
+            MusicSuggestVO vo = new MusicSuggestVO();
+            vo.setText(suggestion.getText());
+            vo.setType(suggestion.getType());
+            voList.add(vo);
+        }
+        return voList;
     }
 
     /**
@@ -184,30 +450,55 @@ public class MusicService {
      * @return 音乐详情
      */
     public MusicDetailVO getMusicDetail(Long musicId, Long userId) {
-        // 1. 先从缓存获取
-        String cacheKey = MUSIC_CACHE_PREFIX + musicId;
-        MusicDetailVO cachedMusic = (MusicDetailVO) redisTemplate.opsForValue().get(cacheKey);
-        if (cachedMusic != null) {
-            // 设置是否收藏
-            if (userId != null) {
-                cachedMusic.setIsFavorite(isFavorite(userId, musicId));
-            }
-            return cachedMusic;
+        // 1. 布隆过滤器判定不存在的ID直接拒绝
+        if (!musicIdFilterService.mightExist(musicId)) {
+            throw new BusinessException("音乐不存在");
         }
 
-        // 2. 从数据库查询
-        Music music = musicMapper.findById(musicId);
-        if (music == null) {
+        // 2. 先从缓存获取（本地L1 -> Redis L2），缓存内容与用户无关
+        // 并发未命中时只有一个请求查询数据库，其余请求等待共享结果；数据库中不存在时缓存空值标记
+        String cacheKey = MUSIC_CACHE_PREFIX + musicId;
+        recordAccess(cacheKey);
+        MusicDetailVO cachedMusic = cacheService.getOrLoad(cacheKey, () -> loadMusicDetail(musicId),
+                MUSIC_CACHE_EXPIRE, TimeUnit.MINUTES);
+        if (cachedMusic == null) {
             throw new BusinessException("音乐不存在");
         }
 
-        // 3. 转换为VO并缓存
-        MusicDetailVO detailVO = convertToDetailVO(music, userId);
-        redisTemplate.opsForValue().set(cacheKey, detailVO, MUSIC_CACHE_EXPIRE, TimeUnit.MINUTES);
-
+        // 3. 复制缓存对象（L1中的对象为各请求共享），再叠加当前用户的收藏状态
+        MusicDetailVO detailVO = new MusicDetailVO();
+        BeanUtils.copyProperties(cachedMusic, detailVO);
+        detailVO.setIsFavorite(userId != null ? favoriteIndexService.isFavorite(userId, musicId) : null);
         return detailVO;
     }
 
+    /**
+     * 计算音乐详情的ETag（音乐ID + 更新时间 + 当前用户是否收藏），读取的是详情缓存，不复制VO
+     *
+     * @param musicId 音乐ID
+     * @param userId  当前用户ID
+     * @return ETag，音乐不存在时返回null
+     */
+    public String getMusicDetailETag(Long musicId, Long userId) {
+        if (!musicIdFilterService.mightExist(musicId)) {
+            return null;
+        }
+        String cacheKey = MUSIC_CACHE_PREFIX + musicId;
+        MusicDetailVO cachedMusic = cacheService.getOrLoad(cacheKey, () -> loadMusicDetail(musicId),
+                MUSIC_CACHE_EXPIRE, TimeUnit.MINUTES);
+        if (cachedMusic == null || cachedMusic.getUpdateTime() == null) {
+            return null;
+        }
+
+        StringBuilder etag = new StringBuilder("music-")
+                .append(musicId)
+                .append('-').append(cachedMusic.getUpdateTime().toString());
+        if (userId != null) {
+            etag.append("-f").append(favoriteIndexService.isFavorite(userId, musicId) ? 1 : 0);
+        }
+        return etag.toString();
+    }
+
     /**
      * 获取音乐播放URL
      *
@@ -217,8 +508,14 @@ public class MusicService {
      */
     @Transactional(rollbackFor = Exception.class)
     public Map<String, Object> getMusicPlayUrl(Long musicId, Long userId) {
-        // 1. 查询音乐
-        Music music = musicMapper.findById(musicId);
+        // 1. 查询播放信息（布隆过滤器判定不存在的ID直接拒绝；热点音乐读取本地副本，未命中时才访问数据库）
+        if (!musicIdFilterService.mightExist(musicId)) {
+            throw new BusinessException("音乐不存在");
+        }
+        // 播放与详情计入同一个热点key，热点音乐的详情和播放信息一起固定到本地副本
+        recordAccess(MUSIC_CACHE_PREFIX + musicId);
+        MusicPlayVO music = cacheService.getOrLoad(MUSIC_PLAY_CACHE_PREFIX + musicId, () -> loadMusicPlay(musicId),
+                MUSIC_CACHE_EXPIRE, TimeUnit.MINUTES);
         if (music == null) {
             throw new BusinessException("音乐不存在");
         }
@@ -233,8 +530,8 @@ public class MusicService {
             recordPlayHistory(userId, musicId);
         }
 
-        // 4. 增加播放次数（使用Redis计数，定时同步到数据库）
-        incrementPlayCount(musicId);
+        // 4. 记录播放（Redis计数和独立听众，定时批量写回数据库）
+        playCountService.record(musicId, userId);
 
         // 5. 构建返回结果
         Map<String, Object> result = new HashMap<>();
@@ -278,6 +575,9 @@ public class MusicService {
             throw new BusinessException("收藏失败");
         }
 
+        // 4. 更新收藏索引
+        favoriteIndexService.onFavorite(userId, musicId);
+
         log.info("用户收藏音乐: userId={}, musicId={}", userId, musicId);
     }
 
@@ -294,6 +594,9 @@ public class MusicService {
             throw new BusinessException("取消收藏失败，可能未收藏该音乐");
         }
 
+        // 更新收藏索引
+        favoriteIndexService.onUnfavorite(userId, musicId);
+
         log.info("用户取消收藏音乐: userId={}, musicId={}", userId, musicId);
     }
 
@@ -311,14 +614,9 @@ public class MusicService {
         List<Music> musicList = favoriteMapper.findMusicByUserId(userId);
         PageInfo<Music> pageInfo = new PageInfo<>(musicList);
 
-        // 转换为VO（收藏列表中都是已收藏的）
-        List<MusicVO> voList = musicList.stream()
-                .map(music -> {
-                    MusicVO vo = convertToVO(music, userId);
-                    vo.setIsFavorite(true);
-                    return vo;
-                })
-                .collect(Collectors.toList());
+        // 批量转换为VO（收藏列表中都是已收藏的，无需再查询收藏状态）
+        List<MusicVO> voList = convertToVOList(musicList, null);
+        voList.forEach(vo -> vo.setIsFavorite(true));
 
         return PageResult.of(pageInfo.getTotal(), page, size, voList);
     }
@@ -333,17 +631,14 @@ public class MusicService {
      * @return 分页结果
      */
     public PageResult<MusicVO> getUserMusicList(Long userId, Integer page, Integer size, Integer status) {
-        PageHelper.startPage(page, size);
+        PageHelper.startPage(page, size, false);
 
         List<Music> musicList = musicMapper.findByUploadUserId(userId, status);
-        PageInfo<Music> pageInfo = new PageInfo<>(musicList);
 
-        // 转换为VO
-        List<MusicVO> voList = musicList.stream()
-                .map(music -> convertToVO(music, userId))
-                .collect(Collectors.toList());
+        // 批量转换为VO（艺人作品列表读取全部字段）
+        List<MusicVO> voList = convertToVOList(musicList, userId, true);
 
-        return PageResult.of(pageInfo.getTotal(), page, size, voList);
+        return PageResult.of(musicCountService.countByUploader(userId, status), page, size, voList);
     }
     /**
      * 获取音乐列表（管理员）
@@ -354,17 +649,14 @@ public class MusicService {
      * @return 分页结果
      */
     public PageResult<MusicVO> adminGetMusicList(Integer page, Integer size, Integer status) {
-        PageHelper.startPage(page, size);
+        PageHelper.startPage(page, size, false);
 
         List<Music> musicList = musicMapper.findByAdmin(status);
-        PageInfo<Music> pageInfo = new PageInfo<>(musicList);
 
-        // 转换为VO
-        List<MusicVO> voList = musicList.stream()
-                .map(music -> convertToVO(music, 0L))
-                .collect(Collectors.toList());
+        // 批量转换为VO
+        List<MusicVO> voList = convertToVOList(musicList, 0L, true);
 
-        return PageResult.of(pageInfo.getTotal(), page, size, voList);
+        return PageResult.of(musicCountService.countByStatus(status), page, size, voList);
     }
     /**
      * 更新音乐信息
@@ -420,8 +712,10 @@ public class MusicService {
             throw new BusinessException("更新失败");
         }
 
-        // 6. 清除缓存
-        clearMusicCache(musicId);
+        // 6. 清除缓存（提交后执行，避免提交前的读请求把旧数据重新写入缓存）并更新曲库版本和搜索索引
+        TransactionUtil.afterCommit(() -> clearMusicCache(musicId));
+        catalogVersionService.bump();
+        musicSearchIndexService.onChange(musicId);
 
         log.info("音乐信息更新成功: musicId={}, userId={}", musicId, userId);
     }
@@ -461,12 +755,17 @@ public class MusicService {
             throw new BusinessException("删除失败");
         }
 
-        // 5. 删除相关的收藏和播放历史
+        // 5. 删除相关的收藏和播放历史，并从收藏过它的用户的收藏索引中移除
+        List<Long> favoriteUserIds = favoriteMapper.findUserIdsByMusicId(musicId);
         favoriteMapper.deleteByMusicId(musicId);
+        favoriteIndexService.onMusicDeleted(musicId, favoriteUserIds);
         playHistoryMapper.deleteByMusicId(musicId);
 
-        // 6. 清除缓存
-        clearMusicCache(musicId);
+        // 6. 清除缓存（提交后执行）并更新曲库版本、计数和搜索索引
+        TransactionUtil.afterCommit(() -> clearMusicCache(musicId));
+        catalogVersionService.bump();
+        musicCountService.onDelete(music.getUploadUserId(), music.getStatus());
+        musicSearchIndexService.onChange(musicId);
 
         log.info("音乐删除成功: musicId={}, userId={}", musicId, userId);
     }
@@ -485,6 +784,7 @@ public class MusicService {
             throw new BusinessException("音乐不存在");
         }
 
+        Integer oldStatus = music.getStatus();
         music.setStatus(status);
         music.setRemark(remark);
         music.setUpdateTime(LocalDateTime.now());
@@ -494,8 +794,11 @@ public class MusicService {
             throw new BusinessException("状态更新失败");
         }
 
-        // 清除缓存
-        clearMusicCache(musicId);
+        // 清除缓存（提交后执行）并更新曲库版本、计数和搜索索引
+        TransactionUtil.afterCommit(() -> clearMusicCache(musicId));
+        catalogVersionService.bump();
+        musicCountService.onStatusChange(music.getUploadUserId(), oldStatus, status);
+        musicSearchIndexService.onChange(musicId);
 
         log.info("音乐状态更新: musicId={}, status={}", musicId, status);
     }
@@ -514,14 +817,247 @@ public class MusicService {
         List<Music> musicList = playHistoryMapper.findMusicByUserId(userId);
         PageInfo<Music> pageInfo = new PageInfo<>(musicList);
 
-        // 转换为VO
-        List<MusicVO> voList = musicList.stream()
-                .map(music -> convertToVO(music, userId))
-                .collect(Collectors.toList());
+        // 批量转换为VO
+        List<MusicVO> voList = convertToVOList(musicList, userId);
 
         return PageResult.of(pageInfo.getTotal(), page, size, voList);
     }
 
+    /**
+     * 音乐列表查询（游标分页，不统计总数）
+     *
+     * @param cursor 游标，为空表示第一页
+     * @param size   每页数量
+     * @param status 状态筛选
+     * @param userId 当前用户ID（用于判断是否收藏）
+     * @return 分页结果
+     */
+    public PageResult<MusicVO> getMusicListByCursor(String cursor, Integer size, Integer status, Long userId) {
+        CursorUtil.Cursor position = CursorUtil.decode(cursor);
+        int limit = normalizeCursorSize(size);
+
+        // 多查一条用于判断是否还有下一页
+        List<Music> musicList = musicMapper.findByStatusAfterCursor(status,
+                position != null ? position.getTime() : null,
+                position != null ? position.getId() : null,
+                limit + 1);
+
+        String nextCursor = null;
+        if (musicList.size() > limit) {
+            musicList = musicList.subList(0, limit);
+            Music last = musicList.get(limit - 1);
+            nextCursor = CursorUtil.encode(last.getCreateTime(), last.getId());
+        }
+
+        return PageResult.ofCursor(limit, convertToVOList(musicList, userId), nextCursor);
+    }
+
+    /**
+     * 音乐搜索（游标分页，不统计总数）
+     *
+     * @param searchDTO 搜索条件（使用cursor和size字段）
+     * @param userId    当前用户ID
+     * @return 分页结果
+     */
+    public PageResult<MusicVO> searchMusicByCursor(MusicSearchDTO searchDTO, Long userId) {
+        CursorUtil.Cursor position = CursorUtil.decode(searchDTO.getCursor());
+        int limit = normalizeCursorSize(searchDTO.getSize());
+
+        if (musicSearchIndexService.isReady()) {
+            List<Long> musicIds = musicSearchIndexService.search(
+                    searchDTO.getKeyword(),
+                    searchDTO.getMusicName(),
+                    searchDTO.getArtist(),
+                    searchDTO.getAlbum(),
+                    searchDTO.getStatus(),
+                    position != null ? position.getTime() : null,
+                    position != null ? position.getId() : null,
+                    Boolean.TRUE.equals(searchDTO.getFuzzy()),
+                    limit + 1
+            );
+            // 多取一条用于判断是否还有下一页
+            List<Music> musicList = findMusicInOrder(musicIds.subList(0, Math.min(limit, musicIds.size())));
+            String nextCursor = null;
+            if (musicIds.size() > limit && !musicList.isEmpty()) {
+                Music last = musicList.get(musicList.size() - 1);
+                nextCursor = CursorUtil.encode(last.getCreateTime(), last.getId());
+            }
+            return PageResult.ofCursor(limit, convertToVOList(musicList, userId), nextCursor);
+        }
+
+        List<Music> musicList = musicSearchStrategy.searchAfterCursor(
+                searchDTO,
+                position != null ? position.getTime() : null,
+                position != null ? position.getId() : null,
+                limit + 1
+        );
+
+        String nextCursor = null;
+        if (musicList.size() > limit) {
+            musicList = musicList.subList(0, limit);
+            Music last = musicList.get(limit - 1);
+            nextCursor = CursorUtil.encode(last.getCreateTime(), last.getId());
+        }
+
+        return PageResult.ofCursor(limit, convertToVOList(musicList, userId), nextCursor);
+    }
+
+    /**
+     * 获取用户收藏列表（游标分页，按收藏时间倒序，不统计总数）
+     *
+     * @param userId 用户ID
+     * @param cursor 游标，为空表示第一页
+     * @param size   每页数量
+     * @return 分页结果
+     */
+    public PageResult<MusicVO> getFavoriteListByCursor(Long userId, String cursor, Integer size) {
+        CursorUtil.Cursor position = CursorUtil.decode(cursor);
+        int limit = normalizeCursorSize(size);
+
+        List<Favorite> favorites = favoriteMapper.findByUserIdAfterCursor(userId,
+                position != null ? position.getTime() : null,
+                position != null ? position.getId() : null,
+                limit + 1);
+
+        String nextCursor = null;
+        if (favorites.size() > limit) {
+            favorites = favorites.subList(0, limit);
+            Favorite last = favorites.get(limit - 1);
+            nextCursor = CursorUtil.encode(last.getCreateTime(), last.getId());
+        }
+
+        List<Long> musicIds = favorites.stream().map(Favorite::getMusicId).collect(Collectors.toList());
+        List<MusicVO> voList = convertToVOList(findMusicInOrder(musicIds), null);
+        voList.forEach(vo -> vo.setIsFavorite(true));
+
+        return PageResult.ofCursor(limit, voList, nextCursor);
+    }
+
+    /**
+     * 获取播放历史（游标分页，每首音乐只保留最近一次播放，不统计总数）
+     *
+     * @param userId 用户ID
+     * @param cursor 游标，为空表示第一页
+     * @param size   每页数量
+     * @return 分页结果
+     */
+    public PageResult<MusicVO> getPlayHistoryByCursor(Long userId, String cursor, Integer size) {
+        CursorUtil.Cursor position = CursorUtil.decode(cursor);
+        int limit = normalizeCursorSize(size);
+
+        List<PlayHistory> histories = playHistoryMapper.findLatestByUserIdAfterCursor(userId,
+                position != null ? position.getTime() : null,
+                position != null ? position.getId() : null,
+                limit + 1);
+
+        String nextCursor = null;
+        if (histories.size() > limit) {
+            histories = histories.subList(0, limit);
+            PlayHistory last = histories.get(limit - 1);
+            nextCursor = CursorUtil.encode(last.getPlayTime(), last.getId());
+        }
+
+        List<Long> musicIds = histories.stream().map(PlayHistory::getMusicId).collect(Collectors.toList());
+        List<MusicVO> voList = convertToVOList(findMusicInOrder(musicIds), userId);
+
+        return PageResult.ofCursor(limit, voList, nextCursor);
+    }
+
+    /**
+     * 预热音乐详情缓存（播放次数最多的已发布音乐）
+     *
+     * @param topN 预热数量
+     * @return 实际预热数量
+     */
+    public int warmUpMusicDetails(int topN) {
+        List<Music> musicList = musicMapper.findTopByPlayCount(Constants.MusicStatus.PUBLISHED, topN);
+        if (musicList.isEmpty()) {
+            return 0;
+        }
+
+        // 批量查询上传用户名，避免逐条查询
+        Set<Long> uploadUserIds = musicList.stream()
+                .map(Music::getUploadUserId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, String> usernameMap = new HashMap<>();
+        if (!uploadUserIds.isEmpty()) {
+            for (User user : userMapper.findByIds(uploadUserIds)) {
+                usernameMap.put(user.getId(), user.getUsername());
+            }
+        }
+
+        for (Music music : musicList) {
+            MusicDetailVO vo = new MusicDetailVO();
+            BeanUtils.copyProperties(music, vo);
+            if (music.getUploadUserId() != null) {
+                vo.setUploadUsername(usernameMap.get(music.getUploadUserId()));
+            }
+            cacheService.put(MUSIC_CACHE_PREFIX + music.getId(), vo, MUSIC_CACHE_EXPIRE, TimeUnit.MINUTES);
+        }
+        return musicList.size();
+    }
+
+    /**
+     * 预热已发布音乐的前几页列表缓存
+     *
+     * @param pages 预热页数
+     * @param size  每页数量（与前端默认分页大小一致）
+     */
+    public void warmUpMusicList(int pages, int size) {
+        for (int page = 1; page <= pages; page++) {
+            getMusicList(page, size, Constants.MusicStatus.PUBLISHED, null);
+        }
+    }
+
+    /**
+     * 根据访问热度更新固定到本地副本的热点音乐（每秒执行）
+     * 估算访问次数超过阈值的key固定到本地副本；降到阈值一半以下才取消固定，避免在阈值附近反复切换
+     */
+    @Scheduled(fixedDelayString = "${cache.hot-key.detect-millis:1000}")
+    public void refreshHotKeys() {
+        if (!hotKeyEnabled) {
+            return;
+        }
+
+        Set<String> hotKeys = hotKeyDetector.top(hotKeyThreshold, hotKeyMaxPinned).keySet();
+        Set<String> warmKeys = hotKeyDetector.top(hotKeyThreshold / 2, Integer.MAX_VALUE).keySet();
+        Set<String> pinnedKeys = cacheService.pinnedKeys();
+
+        for (String key : pinnedKeys) {
+            if (key.startsWith(MUSIC_CACHE_PREFIX) && !warmKeys.contains(key)) {
+                cacheService.unpin(key);
+                cacheService.unpin(MUSIC_PLAY_CACHE_PREFIX + key.substring(MUSIC_CACHE_PREFIX.length()));
+            }
+        }
+        for (String key : hotKeys) {
+            if (!pinnedKeys.contains(key)) {
+                Long musicId = Long.valueOf(key.substring(MUSIC_CACHE_PREFIX.length()));
+                cacheService.pin(key, () -> loadMusicDetail(musicId), MUSIC_CACHE_EXPIRE, TimeUnit.MINUTES);
+                cacheService.pin(MUSIC_PLAY_CACHE_PREFIX + musicId, () -> loadMusicPlay(musicId),
+                        MUSIC_CACHE_EXPIRE, TimeUnit.MINUTES);
+            }
+        }
+    }
+
+    /**
+     * 获取当前热点音乐（运维查看）
+     *
+     * @return 热点key、估算访问次数、是否已固定到本地副本
+     */
+    public List<Map<String, Object>> getHotKeys() {
+        Set<String> pinnedKeys = cacheService.pinnedKeys();
+        List<Map<String, Object>> result = new ArrayList<>();
+        hotKeyDetector.top(hotKeyThreshold / 2, hotKeyMaxPinned * 2).forEach((key, count) -> {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("key", key);
+            item.put("estimatedCount", count);
+            item.put("pinned", pinnedKeys.contains(key));
+            result.add(item);
+        });
+        return result;
+    }
+
     /**
      * 记录播放历史
      *
@@ -538,80 +1074,205 @@ public class MusicService {
     }
 
     /**
-     * 增加播放次数（Redis计数）
+     * 计算音乐时长（简化实现，实际应解析音频文件）
      *
-     * @param musicId 音乐ID
+     * @param file 音乐文件
+     * @return 时长（秒）
      */
-    private void incrementPlayCount(Long musicId) {
-        String key = MUSIC_PLAY_COUNT_PREFIX + musicId;
-        redisTemplate.opsForValue().increment(key, 1);
+    private Integer calculateDuration(org.springframework.web.multipart.MultipartFile file) {
+        // TODO: 实际项目中应使用音频解析库（如 Jaudiotagger）获取真实时长
+        // 这里返回默认值
+        return 180; // 默认3分钟
+    }
 
-        // 设置过期时间（1天后同步到数据库）
-        redisTemplate.expire(key, 1, TimeUnit.DAYS);
+    /**
+     * 记录音乐详情key的访问（用于热点探测）
+     *
+     * @param cacheKey 缓存键
+     */
+    private void recordAccess(String cacheKey) {
+        if (hotKeyEnabled) {
+            hotKeyDetector.record(cacheKey);
+        }
     }
 
     /**
-     * 判断是否已收藏
+     * 从数据库加载音乐详情
+     *
+     * @param musicId 音乐ID
+     * @return 音乐详情VO，不存在返回null
+     */
+    private MusicDetailVO loadMusicDetail(Long musicId) {
+        Music music = musicMapper.findById(musicId);
+        return music != null ? convertToDetailVO(music) : null;
+    }
+
+    /**
+     * 从数据库加载音乐播放信息
      *
-     * @param userId  用户ID
      * @param musicId 音乐ID
-     * @return 是否已收藏
+     * @return 播放信息，不存在返回null
      */
-    private boolean isFavorite(Long userId, Long musicId) {
-        if (userId == null) {
-            return false;
+    private MusicPlayVO loadMusicPlay(Long musicId) {
+        Music music = musicMapper.findById(musicId);
+        if (music == null) {
+            return null;
         }
-        Favorite favorite = favoriteMapper.findByUserIdAndMusicId(userId, musicId);
-        return favorite != null;
+        MusicPlayVO vo = new MusicPlayVO();
+        BeanUtils.copyProperties(music, vo);
+        return vo;
     }
 
     /**
-     * 计算音乐时长（简化实现，实际应解析音频文件）
+     * 游标分页大小校验（默认值和上限与普通分页一致）
      *
-     * @param file 音乐文件
-     * @return 时长（秒）
+     * @param size 请求的每页数量
+     * @return 实际每页数量
      */
-    private Integer calculateDuration(org.springframework.web.multipart.MultipartFile file) {
-        // TODO: 实际项目中应使用音频解析库（如 Jaudiotagger）获取真实时长
-        // 这里返回默认值
-        return 180; // 默认3分钟
+    private int normalizeCursorSize(Integer size) {
+        if (size == null || size < 1) {
+            return Constants.Page.DEFAULT_SIZE;
+        }
+        return Math.min(size, Constants.Page.MAX_SIZE);
     }
 
     /**
-     * 转换为VO对象
+     * 按给定ID顺序批量查询音乐（已删除的音乐会被跳过）
      *
-     * @param music  音乐实体
-     * @param userId 当前用户ID
-     * @return 音乐VO
+     * @param musicIds 音乐ID列表
+     * @return 与ID顺序一致的音乐列表
      */
-    private MusicVO convertToVO(Music music, Long userId) {
-        MusicVO vo = new MusicVO();
-        BeanUtils.copyProperties(music, vo);
+    private List<Music> findMusicInOrder(List<Long> musicIds) {
+        if (musicIds.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-        // 设置上传用户名
-        if (music.getUploadUserId() != null) {
-            User user = userMapper.findById(music.getUploadUserId());
-            if (user != null) {
-                vo.setUploadUsername(user.getUsername());
+        Map<Long, Music> musicMap = new HashMap<>();
+        for (Music music : musicMapper.findByIds(musicIds)) {
+            musicMap.put(music.getId(), music);
+        }
+
+        List<Music> musicList = new ArrayList<>(musicIds.size());
+        for (Long musicId : musicIds) {
+            Music music = musicMap.get(musicId);
+            if (music != null) {
+                musicList.add(music);
+            }
+        }
+        return musicList;
+    }
+
+    /**
+     * 批量转换为VO对象
+     * 一页数据只发起一次上传用户查询，收藏状态从收藏索引获取，避免逐行查询
+     *
+     * @param musicList 音乐实体列表
+     * @param userId    当前用户ID
+     * @return 音乐VO列表
+     */
+    private List<MusicVO> convertToVOList(List<Music> musicList, Long userId) {
+        return convertToVOList(musicList, userId, false);
+    }
+
+    /**
+     * 批量转换为VO对象
+     *
+     * @param musicList   音乐实体列表
+     * @param userId      当前用户ID
+     * @param fullColumns 实体是否由完整列查询得到（是则同时复制简介、备注和更新时间）
+     * @return 音乐VO列表
+     */
+    private List<MusicVO> convertToVOList(List<Music> musicList, Long userId, boolean fullColumns) {
+        if (musicList.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // 1. 批量查询上传用户名
+        Set<Long> uploadUserIds = musicList.stream()
+                .map(Music::getUploadUserId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Map<Long, String> usernameMap = new HashMap<>();
+        if (!uploadUserIds.isEmpty()) {
+            for (User user : userMapper.findByIds(uploadUserIds)) {
+                usernameMap.put(user.getId(), user.getUsername());
             }
         }
 
-        // 设置是否收藏
-        if (userId != null) {
-            vo.setIsFavorite(isFavorite(userId, music.getId()));
+        // 2. 从收藏索引获取收藏状态
+        long[] favoriteIds = userId != null ? favoriteIndexService.getFavoriteIds(userId) : null;
+
+        // 3. 在内存中组装VO
+        List<MusicVO> voList = new ArrayList<>(musicList.size());
+        for (Music music : musicList) {
+            MusicVO vo = toMusicVO(music, fullColumns);
+            if (music.getUploadUserId() != null) {
+                vo.setUploadUsername(usernameMap.get(music.getUploadUserId()));
+            }
+            if (favoriteIds != null) {
+                vo.setIsFavorite(Arrays.binarySearch(favoriteIds, music.getId()) >= 0);
+            }
+            voList.add(vo);
         }
+        return voList;
+    }
 
+    /**
+     * 复制列表字段（直接赋值代替反射复制）
+     * 列表查询（List_Column_List）不读取简介、备注和更新时间，只有完整列查询时才复制这几个字段
+     *
+     * @param music       音乐实体
+     * @param fullColumns 实体是否由完整列查询得到
+     * @return 音乐VO
+     */
+    private MusicVO toMusicVO(Music music, boolean fullColumns) {
+        MusicVO vo = new MusicVO();
+        vo.setId(music.getId());
+        vo.setMusicName(music.getMusicName());
+        vo.setArtist(music.getArtist());
+        vo.setAlbum(music.getAlbum());
+        vo.setDuration(music.getDuration());
+        vo.setCoverUrl(music.getCoverUrl());
+        vo.setStatus(music.getStatus());
+        vo.setPlayCount(music.getPlayCount());
+        vo.setUploadUserId(music.getUploadUserId());
+        vo.setCreateTime(music.getCreateTime());
+        if (fullColumns) {
+            vo.setDescription(music.getDescription());
+            vo.setRemark(music.getRemark());
+            vo.setUpdateTime(music.getUpdateTime());
+        }
         return vo;
     }
 
     /**
-     * 转换为详情VO对象
+     * 复制缓存的分页结果并设置当前用户的收藏状态
+     * 缓存对象为各请求共享，不能直接修改
      *
-     * @param music  音乐实体
-     * @param userId 当前用户ID
+     * @param cachedPage 缓存的分页结果
+     * @param userId     当前用户ID
+     * @return 新的分页结果
+     */
+    private PageResult<MusicVO> overlayFavorite(PageResult<MusicVO> cachedPage, Long userId) {
+        long[] favoriteIds = userId != null ? favoriteIndexService.getFavoriteIds(userId) : null;
+
+        List<MusicVO> voList = new ArrayList<>(cachedPage.getList().size());
+        for (MusicVO cachedVO : cachedPage.getList()) {
+            MusicVO vo = new MusicVO();
+            BeanUtils.copyProperties(cachedVO, vo);
+            vo.setIsFavorite(favoriteIds != null ? Arrays.binarySearch(favoriteIds, vo.getId()) >= 0 : null);
+            voList.add(vo);
+        }
+        return PageResult.of(cachedPage.getTotal(), cachedPage.getPage(), cachedPage.getSize(), voList);
+    }
+
+    /**
+     * 转换为详情VO对象（不包含用户相关字段，可直接缓存）
+     *
+     * @param music 音乐实体
      * @return 音乐详情VO
      */
-    private MusicDetailVO convertToDetailVO(Music music, Long userId) {
+    private MusicDetailVO convertToDetailVO(Music music) {
         MusicDetailVO vo = new MusicDetailVO();
         BeanUtils.copyProperties(music, vo);
 
@@ -623,21 +1284,17 @@ public class MusicService {
             }
         }
 
-        // 设置是否收藏
-        if (userId != null) {
-            vo.setIsFavorite(isFavorite(userId, music.getId()));
-        }
-
         return vo;
     }
 
     /**
-     * 清除音乐缓存
+     * 清除音乐缓存（同时通知所有节点清除本地缓存）
      *
      * @param musicId 音乐ID
      */
     private void clearMusicCache(Long musicId) {
         String cacheKey = MUSIC_CACHE_PREFIX + musicId;
-        redisTemplate.delete(cacheKey);
+        cacheService.evict(cacheKey);
+        cacheService.evict(MUSIC_PLAY_CACHE_PREFIX + musicId);
     }
 }
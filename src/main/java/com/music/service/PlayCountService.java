@@ -0,0 +1,500 @@
+package com.music.service;
+
+import com.music.mapper.MusicMapper;
+import com.music.mapper.PlayCountFlushMapper;
+import com.music.util.StripedCounterTable;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.connection.RedisScriptingCommands;
+import org.springframework.data.redis.connection.ReturnType;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+/**
+ * 播放次数服务
+ * 播放时只在Redis中累加计数，并把音乐ID加入待刷新集合；定时任务把累计的增量批量写回 t_music.play_count。
+ * <p>
+ * 播放先累加到本节点内存中的分段计数表（按音乐ID累加，同时记录播放用户ID），请求线程不访问Redis；
+ * 后台线程每秒取出一次，每首歌执行一次Lua脚本（计数增加、登记待刷新、独立听众HyperLogLog），
+ * 所有脚本调用通过一次管道发送。Redis的写入量由播放次数降为每秒播放过的歌曲数。
+ * <p>
+ * 丢失上限：进程异常退出（kill -9、宕机、OOM）时，丢失本节点最近一次成功写入Redis之后的播放次数，
+ * 正常情况下不超过一个写入间隔（music.play-count.record.drain-millis，默认1秒）内的播放；
+ * Redis不可用期间写入失败的计数保留在内存中，下一次再写，这段时间内异常退出会丢失期间的全部播放。
+ * 正常停机时会先写入剩余的计数。
+ * <p>
+ * 写回流程（多个节点同时执行也不会重复或丢失）：
+ * 1. Lua脚本从待刷新集合中取出一批音乐ID，读取并删除各自的计数，把增量保存到批次Hash中，
+ *    批次ID登记到待确认集合（分数为取出时间），取出和登记是原子的；
+ * 2. 在一个事务中先写入批次记录（t_play_count_flush，主键为批次ID），再按ID排序分块执行
+ *    UPDATE ... SET play_count = play_count + CASE id WHEN ... END；批次记录已存在说明该批次已写入过，直接跳过；
+ * 3. 删除批次Hash并从待确认集合移除。
+ * 节点在第1步之后异常退出时，批次一直留在待确认集合中，超过租期后由任一节点重新执行第2、3步，
+ * 批次记录保证同一批次只写入一次。
+ */
+@Slf4j
+@Service
+public class PlayCountService {
+
+    /** 单曲播放次数增量 */
+    static final String COUNT_PREFIX = "music:play:count:";
+
+    /** 单曲独立听众（HyperLogLog，按用户ID去重，游客不计入） */
+    private static final String LISTENER_PREFIX = "music:play:listeners:";
+
+    /** 有未写回增量的音乐ID集合 */
+    private static final String DIRTY_SET_KEY = "music:play:dirty";
+
+    /** 已取出未确认的批次（分数为取出时间） */
+    private static final String PENDING_BATCH_KEY = "music:play:flush:pending";
+
+    /** 批次增量Hash（音乐ID -> 增量） */
+    private static final String BATCH_PREFIX = "music:play:flush:batch:";
+
+    /** 单次脚本调用最多携带的听众数（Lua unpack 的参数个数有限制），超出时拆分为多次调用 */
+    private static final int MAX_LISTENERS_PER_CALL = 1000;
+
+    /** 每次写回最多处理的批次数，避免单次任务执行过久 */
+    private static final int MAX_BATCHES_PER_RUN = 10;
+
+    /** 清理批次记录时每批删除的行数 */
+    private static final int PURGE_BATCH_SIZE = 10000;
+
+    /**
+     * 记录播放：累加计数、登记到待刷新集合、记录独立听众（ARGV[3]起为听众用户ID，可以没有）
+     */
+    static final DefaultRedisScript<Long> RECORD_SCRIPT = new DefaultRedisScript<>(
+            "local count = redis.call('incrby', KEYS[1], ARGV[2]) "
+                    + "redis.call('sadd', KEYS[2], ARGV[1]) "
+                    + "if #ARGV > 2 then redis.call('pfadd', KEYS[3], unpack(ARGV, 3)) end "
+                    + "return count",
+            Long.class);
+
+    /**
+     * 取出一批音乐ID及其计数，保存为批次并登记到待确认集合，返回 [音乐ID, 增量, ...]
+     */
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> DRAIN_SCRIPT = new DefaultRedisScript<>(
+            "local ids = redis.call('spop', KEYS[1], ARGV[1]) "
+                    + "local result = {} "
+                    + "for _, id in ipairs(ids) do "
+                    + "  local key = ARGV[2] .. id "
+                    + "  local delta = redis.call('get', key) "
+                    + "  if delta then "
+                    + "    redis.call('del', key) "
+                    + "    redis.call('hset', KEYS[3], id, delta) "
+                    + "    result[#result + 1] = id "
+                    + "    result[#result + 1] = delta "
+                    + "  end "
+                    + "end "
+                    + "if #result > 0 then redis.call('zadd', KEYS[2], ARGV[4], ARGV[3]) end "
+                    + "return result",
+            List.class);
+
+    /**
+     * 认领超过租期未确认的批次（把分数更新为当前时间，避免多个节点同时重试同一批次）
+     */
+    @SuppressWarnings("rawtypes")
+    private static final DefaultRedisScript<List> RECLAIM_SCRIPT = new DefaultRedisScript<>(
+            "local ids = redis.call('zrangebyscore', KEYS[1], '-inf', ARGV[1], 'LIMIT', 0, ARGV[3]) "
+                    + "for _, id in ipairs(ids) do redis.call('zadd', KEYS[1], ARGV[2], id) end "
+                    + "return ids",
+            List.class);
+
+    /**
+     * 确认批次：删除批次Hash并从待确认集合移除
+     */
+    private static final DefaultRedisScript<Long> ACK_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('del', KEYS[2]) return redis.call('zrem', KEYS[1], ARGV[1])",
+            Long.class);
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private MusicMapper musicMapper;
+
+    @Autowired
+    private PlayCountFlushMapper playCountFlushMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${music.play-count.record.drain-millis:1000}")
+    private long drainMillis;
+
+    @Value("${music.play-count.record.stripes:0}")
+    private int stripes;
+
+    @Value("${music.play-count.flush.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${music.play-count.flush.update-chunk-size:200}")
+    private int updateChunkSize;
+
+    @Value("${music.play-count.flush.lease-millis:60000}")
+    private long leaseMillis;
+
+    @Value("${music.play-count.flush.retention-days:7}")
+    private long retentionDays;
+
+    /** 尚未写入Redis的播放次数和听众 */
+    private StripedCounterTable counters;
+
+    /**
+     * 写入线程（不使用 @Scheduled：定时任务线程池与写回数据库等耗时任务共用，写入间隔无法保证）
+     */
+    private Thread recorder;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() {
+        int stripeCount = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors() * 2;
+        counters = new StripedCounterTable(stripeCount, 256);
+        running = true;
+        recorder = new Thread(this::recordLoop, "play-recorder");
+        recorder.setDaemon(true);
+        recorder.start();
+    }
+
+    /**
+     * 停机时写入剩余的计数
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        recorder.interrupt();
+        recorder.join(drainMillis);
+        try {
+            drain();
+        } catch (Exception e) {
+            log.warn("停机时写入播放次数失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 记录一次播放（只累加到内存，由写入线程每秒写入Redis）
+     *
+     * @param musicId 音乐ID
+     * @param userId  播放用户ID（游客为null）
+     */
+    public void record(Long musicId, Long userId) {
+        counters.add(musicId, 1, userId != null ? userId : StripedCounterTable.NO_MEMBER);
+    }
+
+    /**
+     * 独立听众数（HyperLogLog估算值，标准误差约0.81%）
+     *
+     * @param musicId 音乐ID
+     * @return 独立听众数
+     */
+    public long countListeners(Long musicId) {
+        Long count = stringRedisTemplate.opsForHyperLogLog().size(LISTENER_PREFIX + musicId);
+        return count != null ? count : 0L;
+    }
+
+    /**
+     * 把Redis中累计的播放次数写回数据库（先重试超过租期的批次，再取出新的批次）
+     */
+    @Scheduled(fixedDelayString = "${music.play-count.flush.interval-millis:5000}")
+    public void flush() {
+        try {
+            recoverStaleBatches();
+            for (int i = 0; i < MAX_BATCHES_PER_RUN; i++) {
+                if (drainBatch() < batchSize) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            // 已取出的批次留在待确认集合中，超过租期后重试
+            log.warn("播放次数写回失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 删除过期的批次记录
+     */
+    @Scheduled(fixedDelayString = "${music.play-count.flush.purge-millis:3600000}")
+    public void purgeFlushLog() {
+        try {
+            LocalDateTime before = LocalDateTime.now().minusDays(retentionDays);
+            int deleted;
+            do {
+                deleted = playCountFlushMapper.deleteBefore(before, PURGE_BATCH_SIZE);
+            } while (deleted == PURGE_BATCH_SIZE);
+        } catch (Exception e) {
+            log.warn("清理播放次数批次记录失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 旧版本的计数没有登记到待刷新集合，启动时补登记，避免这部分播放次数无法写回
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void adoptUntrackedCounters() {
+        ScanOptions options = ScanOptions.scanOptions().match(COUNT_PREFIX + "*").count(1000).build();
+        List<String> musicIds = new ArrayList<>();
+        try (Cursor<String> cursor = stringRedisTemplate.scan(options)) {
+            while (cursor.hasNext()) {
+                musicIds.add(cursor.next().substring(COUNT_PREFIX.length()));
+                if (musicIds.size() == batchSize) {
+                    stringRedisTemplate.opsForSet().add(DIRTY_SET_KEY, musicIds.toArray(new String[0]));
+                    musicIds.clear();
+                }
+            }
+            if (!musicIds.isEmpty()) {
+                stringRedisTemplate.opsForSet().add(DIRTY_SET_KEY, musicIds.toArray(new String[0]));
+            }
+        } catch (Exception e) {
+            log.warn("登记播放次数计数失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 写入线程：每隔 drain-millis 把计数表写入Redis
+     */
+    private void recordLoop() {
+        while (running) {
+            try {
+                Thread.sleep(drainMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            try {
+                drain();
+            } catch (Exception e) {
+                log.warn("写入播放次数失败: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 取出计数表并写入Redis：每首歌一次脚本调用，所有调用通过一次管道发送 EVALSHA；
+     * 写入失败的调用放回计数表，下一次再写
+     */
+    void drain() {
+        StripedCounterTable.Snapshot snapshot = counters.drain();
+        if (snapshot.size() == 0) {
+            return;
+        }
+        List<RecordCall> calls = new ArrayList<>(snapshot.size());
+        for (int i = 0; i < snapshot.size(); i++) {
+            int memberCount = snapshot.getMemberCount(i);
+            int from = 0;
+            do {
+                int to = Math.min(from + MAX_LISTENERS_PER_CALL, memberCount);
+                calls.add(new RecordCall(snapshot, i, from, to, from == 0 ? snapshot.getCount(i) : 0));
+                from = to;
+            } while (from < memberCount);
+        }
+
+        List<RecordCall> failed;
+        try {
+            failed = pipeline(calls);
+            if (failed.stream().anyMatch(call -> isNoScript(call.error))) {
+                // Redis重启或执行过 SCRIPT FLUSH 后脚本缓存为空，加载后重新发送失败的调用
+                stringRedisTemplate.execute((RedisCallback<String>) connection ->
+                        connection.scriptingCommands().scriptLoad(RECORD_SCRIPT.getScriptAsString().getBytes(StandardCharsets.UTF_8)));
+                failed = pipeline(failed);
+            }
+        } catch (Exception e) {
+            // 未拿到逐条结果（通常是无法连接Redis，命令未发出），全部放回
+            failed = calls;
+            log.warn("写入播放次数失败: musics={}, error={}", snapshot.size(), e.getMessage());
+        }
+        for (RecordCall call : failed) {
+            call.restore(counters);
+        }
+        if (!failed.isEmpty() && failed != calls) {
+            log.warn("写入播放次数部分失败: calls={}, failed={}, error={}",
+                    calls.size(), failed.size(), failed.get(0).error.getMessage());
+        }
+    }
+
+    /**
+     * 通过管道发送脚本调用
+     *
+     * @return 执行失败的调用（error 为失败原因）
+     */
+    private List<RecordCall> pipeline(List<RecordCall> calls) {
+        String sha = RECORD_SCRIPT.getSha1();
+        byte[] dirtyKey = DIRTY_SET_KEY.getBytes(StandardCharsets.UTF_8);
+        try {
+            stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                RedisScriptingCommands scripting = connection.scriptingCommands();
+                for (RecordCall call : calls) {
+                    scripting.evalSha(sha, ReturnType.INTEGER, 3, call.keysAndArgs(dirtyKey));
+                }
+                return null;
+            });
+            return List.of();
+        } catch (RedisPipelineException e) {
+            List<Object> results = e.getPipelineResult();
+            if (results.size() != calls.size()) {
+                throw e;
+            }
+            List<RecordCall> failed = new ArrayList<>();
+            for (int i = 0; i < calls.size(); i++) {
+                if (results.get(i) instanceof Throwable error) {
+                    calls.get(i).error = error;
+                    failed.add(calls.get(i));
+                }
+            }
+            return failed;
+        }
+    }
+
+    private static boolean isNoScript(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause.getMessage() != null && cause.getMessage().contains("NOSCRIPT")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 取出一批增量并写入数据库
+     *
+     * @return 本批包含的音乐数量
+     */
+    private int drainBatch() {
+        String batchId = UUID.randomUUID().toString();
+        List<?> drained = stringRedisTemplate.execute(DRAIN_SCRIPT,
+                List.of(DIRTY_SET_KEY, PENDING_BATCH_KEY, BATCH_PREFIX + batchId),
+                String.valueOf(batchSize), COUNT_PREFIX, batchId, String.valueOf(System.currentTimeMillis()));
+        Map<Long, Long> deltas = new TreeMap<>();
+        if (drained != null) {
+            for (int i = 0; i + 1 < drained.size(); i += 2) {
+                deltas.merge(Long.valueOf(drained.get(i).toString()), Long.valueOf(drained.get(i + 1).toString()),
+                        Long::sum);
+            }
+        }
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+        apply(batchId, deltas);
+        acknowledge(batchId);
+        return deltas.size();
+    }
+
+    /**
+     * 重试超过租期仍未确认的批次（取出该批次的节点已退出或写入失败）
+     */
+    private void recoverStaleBatches() {
+        long now = System.currentTimeMillis();
+        List<?> batchIds = stringRedisTemplate.execute(RECLAIM_SCRIPT, List.of(PENDING_BATCH_KEY),
+                String.valueOf(now - leaseMillis), String.valueOf(now), String.valueOf(MAX_BATCHES_PER_RUN));
+        if (batchIds == null) {
+            return;
+        }
+        for (Object value : batchIds) {
+            String batchId = value.toString();
+            Map<Long, Long> deltas = new TreeMap<>();
+            stringRedisTemplate.opsForHash().entries(BATCH_PREFIX + batchId).forEach((musicId, delta) ->
+                    deltas.put(Long.valueOf(musicId.toString()), Long.valueOf(delta.toString())));
+            if (!deltas.isEmpty()) {
+                apply(batchId, deltas);
+            }
+            acknowledge(batchId);
+            log.info("重试播放次数写回批次: batchId={}, musics={}", batchId, deltas.size());
+        }
+    }
+
+    /**
+     * 在一个事务中写入批次记录并更新播放次数（批次已写入过时跳过）
+     *
+     * @param batchId 批次ID
+     * @param deltas  音乐ID（升序，各节点按相同顺序加行锁，避免死锁） -> 增量
+     */
+    private void apply(String batchId, Map<Long, Long> deltas) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (playCountFlushMapper.insertIgnore(batchId, deltas.size()) == 0) {
+                log.info("播放次数批次已写入，跳过: batchId={}", batchId);
+                return;
+            }
+            Map<Long, Long> chunk = new LinkedHashMap<>();
+            for (Map.Entry<Long, Long> entry : deltas.entrySet()) {
+                chunk.put(entry.getKey(), entry.getValue());
+                if (chunk.size() == updateChunkSize) {
+                    musicMapper.incrementPlayCounts(chunk);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                musicMapper.incrementPlayCounts(chunk);
+            }
+        });
+    }
+
+    private void acknowledge(String batchId) {
+        stringRedisTemplate.execute(ACK_SCRIPT, List.of(PENDING_BATCH_KEY, BATCH_PREFIX + batchId), batchId);
+    }
+
+    /**
+     * 一首歌的一次脚本调用：计数增量和 [from, to) 范围内的听众
+     */
+    private static final class RecordCall {
+        private final StripedCounterTable.Snapshot snapshot;
+        private final int index;
+        private final int from;
+        private final int to;
+        private final long delta;
+        private Throwable error;
+
+        RecordCall(StripedCounterTable.Snapshot snapshot, int index, int from, int to, long delta) {
+            this.snapshot = snapshot;
+            this.index = index;
+            this.from = from;
+            this.to = to;
+            this.delta = delta;
+        }
+
+        byte[][] keysAndArgs(byte[] dirtyKey) {
+            String musicId = String.valueOf(snapshot.getKey(index));
+            byte[][] keysAndArgs = new byte[5 + to - from][];
+            keysAndArgs[0] = (COUNT_PREFIX + musicId).getBytes(StandardCharsets.UTF_8);
+            keysAndArgs[1] = dirtyKey;
+            keysAndArgs[2] = (LISTENER_PREFIX + musicId).getBytes(StandardCharsets.UTF_8);
+            keysAndArgs[3] = musicId.getBytes(StandardCharsets.UTF_8);
+            keysAndArgs[4] = String.valueOf(delta).getBytes(StandardCharsets.UTF_8);
+            for (int j = from; j < to; j++) {
+                keysAndArgs[5 + j - from] = String.valueOf(snapshot.getMember(index, j)).getBytes(StandardCharsets.UTF_8);
+            }
+            return keysAndArgs;
+        }
+
+        void restore(StripedCounterTable counters) {
+            long musicId = snapshot.getKey(index);
+            if (delta != 0) {
+                counters.add(musicId, delta, StripedCounterTable.NO_MEMBER);
+            }
+            for (int j = from; j < to; j++) {
+                counters.add(musicId, 0, snapshot.getMember(index, j));
+            }
+        }
+    }
+}
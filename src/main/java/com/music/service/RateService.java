@@ -3,6 +3,7 @@ package com.music.service;
 import com.music.dto.RateDTO;
 import com.music.mapper.RateMapper;
 import com.music.vo.MusicStatsVO;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -10,12 +11,19 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.util.List;
 
+@Slf4j
 @Service
 public class RateService {
 
     @Autowired
     private RateMapper rateMapper;
 
+    @Autowired
+    private MusicSearchIndexService musicSearchIndexService;
+
+    @Autowired
+    private PlayCountService playCountService;
+
     /**
      * 用户打分
      */
@@ -23,13 +31,24 @@ public class RateService {
     public void rateMusic(Long userId, RateDTO rateDTO) {
         // 这里可以加逻辑判断，比如必须播放过才能评分，或者必须登录等
         rateMapper.insertOrUpdateRating(userId, rateDTO.getMusicId(), rateDTO.getScore());
+        // 评分参与搜索相关度排序，提交后刷新索引中的热度分
+        musicSearchIndexService.onChange(rateDTO.getMusicId());
     }
 
     /**
      * 获取单曲综合数据（播放、收藏、评分）
      */
     public MusicStatsVO getMusicStats(Long musicId) {
-        return rateMapper.selectMusicStats(musicId);
+        MusicStatsVO stats = rateMapper.selectMusicStats(musicId);
+        if (stats != null) {
+            try {
+                stats.setUniqueListeners(playCountService.countListeners(musicId));
+            } catch (Exception e) {
+                // Redis不可用时不返回独立听众数
+                log.warn("读取独立听众数失败: musicId={}, error={}", musicId, e.getMessage());
+            }
+        }
+        return stats;
     }
 
     /**
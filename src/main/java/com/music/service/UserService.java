@@ -7,11 +7,11 @@ import com.music.entity.User;
 import com.music.exception.BusinessException;
 import com.music.mapper.UserMapper;
 import com.music.util.JwtUtil;
+import com.music.util.TransactionUtil;
 import com.music.vo.UserVO;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -35,7 +35,7 @@ public class UserService {
     private JwtUtil jwtUtil;
 
     @Autowired
-    private RedisTemplate<String, Object> redisTemplate;
+    private CacheService cacheService;
 
     private final BCryptPasswordEncoder passwordEncoder = new BCryptPasswordEncoder(12);
 
@@ -139,23 +139,15 @@ public class UserService {
      * @return 用户信息
      */
     public UserVO getUserInfo(Long userId) {
-        // 1. 先从缓存获取
+        // 先从缓存获取，未命中时只有一个请求查询数据库并回填缓存，用户不存在时缓存空值标记
         String cacheKey = USER_CACHE_PREFIX + userId;
-        UserVO cachedUser = (UserVO) redisTemplate.opsForValue().get(cacheKey);
-        if (cachedUser != null) {
-            return cachedUser;
-        }
-
-        // 2. 缓存未命中，从数据库查询
-        User user = userMapper.findById(userId);
-        if (user == null) {
+        UserVO userVO = cacheService.getOrLoad(cacheKey, () -> {
+            User user = userMapper.findById(userId);
+            return user != null ? convertToVO(user) : null;
+        }, USER_CACHE_EXPIRE, TimeUnit.MINUTES);
+        if (userVO == null) {
             throw new BusinessException("用户不存在");
         }
-
-        // 3. 转换为VO并缓存
-        UserVO userVO = convertToVO(user);
-        redisTemplate.opsForValue().set(cacheKey, userVO, USER_CACHE_EXPIRE, TimeUnit.MINUTES);
-
         return userVO;
     }
 
@@ -208,8 +200,8 @@ public class UserService {
             throw new BusinessException("更新失败");
         }
 
-        // 6. 清除缓存
-        clearUserCache(userId);
+        // 6. 清除缓存（提交后执行，避免提交前的读请求把旧数据重新写入缓存）
+        TransactionUtil.afterCommit(() -> clearUserCache(userId));
 
         log.info("用户信息更新成功: userId={}", userId);
         return convertToVO(user);
@@ -275,7 +267,7 @@ public class UserService {
     private void cacheUserInfo(User user) {
         String cacheKey = USER_CACHE_PREFIX + user.getId();
         UserVO userVO = convertToVO(user);
-        redisTemplate.opsForValue().set(cacheKey, userVO, USER_CACHE_EXPIRE, TimeUnit.MINUTES);
+        cacheService.put(cacheKey, userVO, USER_CACHE_EXPIRE, TimeUnit.MINUTES);
     }
 
     /**
@@ -285,7 +277,7 @@ public class UserService {
      */
     private void clearUserCache(Long userId) {
         String cacheKey = USER_CACHE_PREFIX + userId;
-        redisTemplate.delete(cacheKey);
+        cacheService.evict(cacheKey);
     }
 
     /**
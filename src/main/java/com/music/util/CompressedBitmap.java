@@ -0,0 +1,289 @@
+package com.music.util;
+
+import java.util.Arrays;
+
+/**
+ * 非负整数的压缩位图（非线程安全，由调用方加锁）
+ * 参考Roaring Bitmap的结构：整数按高16位分桶，每个桶只保存低16位；
+ * 桶内元素不超过4096个时保存为有序char数组（每个元素2字节），超过后转为1024个long的位图（固定8KB），
+ * 稀疏和稠密的集合都比较紧凑。求交集的基数时按桶对齐，位图与位图之间直接按字做与运算并统计1的个数。
+ */
+public class CompressedBitmap {
+
+    /** 桶内使用有序数组保存的最大元素数，超过后转为位图 */
+    private static final int ARRAY_MAX = 4096;
+
+    /** 桶位图的long个数（2^16 / 64） */
+    private static final int BITMAP_WORDS = 1024;
+
+    /** 桶的高16位，有序 */
+    private char[] keys = new char[4];
+
+    private Container[] containers = new Container[4];
+
+    private int containerCount;
+
+    private int cardinality;
+
+    /**
+     * 由一组整数构建位图
+     *
+     * @param values 非负整数（可以无序、重复，数组会被排序）
+     * @param length 有效元素个数
+     * @return 位图
+     */
+    public static CompressedBitmap of(int[] values, int length) {
+        Arrays.sort(values, 0, length);
+        CompressedBitmap bitmap = new CompressedBitmap();
+        for (int i = 0; i < length; i++) {
+            bitmap.add(values[i]);
+        }
+        return bitmap;
+    }
+
+    /**
+     * 添加元素
+     *
+     * @param value 非负整数
+     * @return 添加前不存在时返回true
+     */
+    public boolean add(int value) {
+        char high = (char) (value >>> 16);
+        int index = containerIndex(high);
+        if (index < 0) {
+            index = -index - 1;
+            insertContainer(index, high);
+        }
+        if (!containers[index].add((char) value)) {
+            return false;
+        }
+        cardinality++;
+        return true;
+    }
+
+    /**
+     * 删除元素
+     *
+     * @param value 非负整数
+     * @return 删除前存在时返回true
+     */
+    public boolean remove(int value) {
+        int index = containerIndex((char) (value >>> 16));
+        if (index < 0 || !containers[index].remove((char) value)) {
+            return false;
+        }
+        cardinality--;
+        if (containers[index].cardinality == 0) {
+            System.arraycopy(keys, index + 1, keys, index, containerCount - index - 1);
+            System.arraycopy(containers, index + 1, containers, index, containerCount - index - 1);
+            containers[--containerCount] = null;
+        }
+        return true;
+    }
+
+    /**
+     * 是否包含元素
+     */
+    public boolean contains(int value) {
+        int index = containerIndex((char) (value >>> 16));
+        return index >= 0 && containers[index].contains((char) value);
+    }
+
+    /**
+     * 元素个数
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    /**
+     * 与另一个位图交集的元素个数（不生成交集）
+     *
+     * @param other 另一个位图
+     * @return 交集基数
+     */
+    public int andCardinality(CompressedBitmap other) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < containerCount && j < other.containerCount) {
+            char a = keys[i];
+            char b = other.keys[j];
+            if (a < b) {
+                i++;
+            } else if (a > b) {
+                j++;
+            } else {
+                count += containers[i].andCardinality(other.containers[j]);
+                i++;
+                j++;
+            }
+        }
+        return count;
+    }
+
+    private int containerIndex(char high) {
+        // 按序添加时命中最后一个桶的情况最常见
+        if (containerCount > 0 && keys[containerCount - 1] == high) {
+            return containerCount - 1;
+        }
+        return Arrays.binarySearch(keys, 0, containerCount, high);
+    }
+
+    private void insertContainer(int index, char high) {
+        if (containerCount == keys.length) {
+            keys = Arrays.copyOf(keys, containerCount * 2);
+            containers = Arrays.copyOf(containers, containerCount * 2);
+        }
+        System.arraycopy(keys, index, keys, index + 1, containerCount - index);
+        System.arraycopy(containers, index, containers, index + 1, containerCount - index);
+        keys[index] = high;
+        containers[index] = new Container();
+        containerCount++;
+    }
+
+    /**
+     * 一个桶：元素少时为有序数组，元素多时为位图
+     */
+    private static final class Container {
+        /** 有序数组形式，为null时使用位图形式 */
+        private char[] values = new char[4];
+        private long[] words;
+        private int cardinality;
+
+        private boolean add(char low) {
+            if (values == null) {
+                long bit = 1L << low;
+                if ((words[low >>> 6] & bit) != 0) {
+                    return false;
+                }
+                words[low >>> 6] |= bit;
+                cardinality++;
+                return true;
+            }
+            int index = cardinality > 0 && values[cardinality - 1] < low
+                    ? -cardinality - 1
+                    : Arrays.binarySearch(values, 0, cardinality, low);
+            if (index >= 0) {
+                return false;
+            }
+            if (cardinality == ARRAY_MAX) {
+                toBitmap();
+                return add(low);
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, cardinality * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = low;
+            cardinality++;
+            return true;
+        }
+
+        private boolean remove(char low) {
+            if (values == null) {
+                long bit = 1L << low;
+                if ((words[low >>> 6] & bit) == 0) {
+                    return false;
+                }
+                words[low >>> 6] &= ~bit;
+                if (--cardinality <= ARRAY_MAX / 2) {
+                    // 低于上限的一半再转回数组，避免在临界点附近反复转换
+                    toArray();
+                }
+                return true;
+            }
+            int index = Arrays.binarySearch(values, 0, cardinality, low);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+            cardinality--;
+            return true;
+        }
+
+        private boolean contains(char low) {
+            if (values == null) {
+                return (words[low >>> 6] & (1L << low)) != 0;
+            }
+            return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+        }
+
+        private int andCardinality(Container other) {
+            if (values == null && other.values == null) {
+                int count = 0;
+                for (int i = 0; i < BITMAP_WORDS; i++) {
+                    count += Long.bitCount(words[i] & other.words[i]);
+                }
+                return count;
+            }
+            if (values == null) {
+                return other.andCardinality(this);
+            }
+            int count = 0;
+            if (other.values == null) {
+                for (int i = 0; i < cardinality; i++) {
+                    char low = values[i];
+                    if ((other.words[low >>> 6] & (1L << low)) != 0) {
+                        count++;
+                    }
+                }
+                return count;
+            }
+            if (cardinality * 16 < other.cardinality || other.cardinality * 16 < cardinality) {
+                // 两个数组大小相差悬殊时，用小数组的元素在大数组中二分查找
+                Container small = cardinality < other.cardinality ? this : other;
+                Container large = small == this ? other : this;
+                for (int i = 0; i < small.cardinality; i++) {
+                    if (Arrays.binarySearch(large.values, 0, large.cardinality, small.values[i]) >= 0) {
+                        count++;
+                    }
+                }
+                return count;
+            }
+            int i = 0;
+            int j = 0;
+            while (i < cardinality && j < other.cardinality) {
+                char a = values[i];
+                char b = other.values[j];
+                if (a < b) {
+                    i++;
+                } else if (a > b) {
+                    j++;
+                } else {
+                    count++;
+                    i++;
+                    j++;
+                }
+            }
+            return count;
+        }
+
+        private void toBitmap() {
+            words = new long[BITMAP_WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                words[values[i] >>> 6] |= 1L << values[i];
+            }
+            values = null;
+        }
+
+        private void toArray() {
+            char[] array = new char[cardinality];
+            int k = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    array[k++] = (char) ((i << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            values = array;
+            words = null;
+        }
+    }
+}
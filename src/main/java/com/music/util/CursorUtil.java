@@ -0,0 +1,64 @@
+package com.music.util;
+
+import com.music.exception.BusinessException;
+import lombok.Data;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * 游标分页工具类
+ * 游标由排序时间和行ID组成，编码为URL安全的Base64字符串，对客户端不透明
+ */
+public final class CursorUtil {
+
+    private static final String SEPARATOR = "|";
+
+    private CursorUtil() {
+    }
+
+    /**
+     * 编码游标
+     *
+     * @param time 排序时间
+     * @param id   行ID
+     * @return 游标字符串
+     */
+    public static String encode(LocalDateTime time, Long id) {
+        String raw = time + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解码游标
+     *
+     * @param cursor 游标字符串，为空表示第一页
+     * @return 游标对象，第一页返回null
+     */
+    public static Cursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int index = raw.lastIndexOf(SEPARATOR);
+            Cursor result = new Cursor();
+            result.setTime(LocalDateTime.parse(raw.substring(0, index)));
+            result.setId(Long.parseLong(raw.substring(index + 1)));
+            return result;
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new BusinessException(400, "无效的分页游标");
+        }
+    }
+
+    /**
+     * 游标内容
+     */
+    @Data
+    public static class Cursor {
+        private LocalDateTime time;
+        private Long id;
+    }
+}
@@ -0,0 +1,351 @@
+package com.music.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 分面统计索引（线程安全）
+ * 每个文档分配一个内部序号（删除后回收复用），每个维度（如艺术家、专辑、状态）的每个取值对应一个保存文档序号的压缩位图。
+ * 统计一组文档（如一次搜索的全部结果）的分面时，先把文档转为序号位图，再与各取值的位图求交集基数。
+ * 取值按位图基数倒序遍历，基数小于当前第k名的取值不可能进入前k名，遍历到此即停止；
+ * 结果文档数少于维度的取值数量时，逐个文档累加各自的取值更快，此时不做位图运算。
+ */
+public class FacetIndex {
+
+    /** 统计结果的排序：数量倒序，数量相同时按取值升序 */
+    private static final Comparator<FacetCount> ORDER = Comparator
+            .comparingInt(FacetCount::getCount).reversed()
+            .thenComparing(FacetCount::getValue);
+
+    private final String[] names;
+
+    private final Dimension[] dimensions;
+
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+
+    /** 每个序号对应文档的各维度取值 */
+    private String[][] documentValues = new String[16][];
+
+    private int nextOrdinal;
+
+    /** 已回收的序号 */
+    private int[] freeOrdinals = new int[16];
+
+    private int freeCount;
+
+    /** 有位图的基数发生变化，需要重新按基数排序 */
+    private boolean dirty;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * @param names 维度名称（put 时按相同顺序传入取值）
+     */
+    public FacetIndex(String... names) {
+        this.names = names;
+        this.dimensions = new Dimension[names.length];
+        for (int i = 0; i < names.length; i++) {
+            dimensions[i] = new Dimension();
+        }
+    }
+
+    /**
+     * 添加或替换文档
+     *
+     * @param id     文档ID
+     * @param values 各维度的取值（null或空白表示没有该维度）
+     */
+    public void put(long id, String... values) {
+        String[] normalized = new String[dimensions.length];
+        for (int i = 0; i < dimensions.length; i++) {
+            normalized[i] = i < values.length ? normalize(values[i]) : null;
+        }
+
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.get(id);
+            if (ordinal == null) {
+                ordinal = allocate();
+                ordinals.put(id, ordinal);
+            }
+            String[] previous = documentValues[ordinal];
+            for (int i = 0; i < dimensions.length; i++) {
+                String old = previous != null ? previous[i] : null;
+                // 取值未变化时不改动位图（评分等与分面无关的刷新不会导致重新排序）
+                if (!Objects.equals(old, normalized[i])) {
+                    dimensions[i].remove(old, ordinal);
+                    dimensions[i].add(normalized[i], ordinal);
+                    dirty = true;
+                }
+            }
+            documentValues[ordinal] = normalized;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除文档
+     *
+     * @param id 文档ID
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.remove(id);
+            if (ordinal == null) {
+                return;
+            }
+            String[] previous = documentValues[ordinal];
+            for (int i = 0; i < dimensions.length; i++) {
+                if (previous[i] != null) {
+                    dimensions[i].remove(previous[i], ordinal);
+                    dirty = true;
+                }
+            }
+            documentValues[ordinal] = null;
+            if (freeCount == freeOrdinals.length) {
+                freeOrdinals = Arrays.copyOf(freeOrdinals, freeCount * 2);
+            }
+            freeOrdinals[freeCount++] = ordinal;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 统计一组文档在各维度上数量最多的取值
+     *
+     * @param ids   文档ID（不在索引中的ID忽略）
+     * @param limit 每个维度最多返回的取值数量
+     * @return 维度名称 -> 按数量倒序排列的取值
+     */
+    public Map<String, List<FacetCount>> count(Collection<Long> ids, int limit) {
+        lock.readLock().lock();
+        try {
+            if (!dirty) {
+                return doCount(ids, limit);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // 位图有变化：在写锁内重新排序后统计，避免排序期间其他线程读到不一致的顺序
+        lock.writeLock().lock();
+        try {
+            if (dirty) {
+                for (Dimension dimension : dimensions) {
+                    dimension.sort();
+                }
+                dirty = false;
+            }
+            return doCount(ids, limit);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 文档数量
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 各维度的取值数量之和
+     */
+    public int valueCount() {
+        lock.readLock().lock();
+        try {
+            int count = 0;
+            for (Dimension dimension : dimensions) {
+                count += dimension.postings.size();
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<String, List<FacetCount>> doCount(Collection<Long> ids, int limit) {
+        int[] selected = new int[ids.size()];
+        int length = 0;
+        for (Long id : ids) {
+            Integer ordinal = ordinals.get(id);
+            if (ordinal != null) {
+                selected[length++] = ordinal;
+            }
+        }
+
+        Map<String, List<FacetCount>> result = new LinkedHashMap<>();
+        CompressedBitmap bitmap = null;
+        for (int i = 0; i < dimensions.length; i++) {
+            Dimension dimension = dimensions[i];
+            if (length == 0 || limit <= 0) {
+                result.put(names[i], List.of());
+            } else if (length < dimension.sorted.length) {
+                result.put(names[i], countByDocument(selected, length, i, limit));
+            } else {
+                if (bitmap == null) {
+                    bitmap = CompressedBitmap.of(Arrays.copyOf(selected, length), length);
+                }
+                result.put(names[i], countByBitmap(bitmap, selected, length, i, limit));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 逐个文档累加取值（结果文档较少时使用）
+     */
+    private List<FacetCount> countByDocument(int[] selected, int length, int dimension, int limit) {
+        Map<String, int[]> counts = new HashMap<>();
+        for (int i = 0; i < length; i++) {
+            String value = documentValues[selected[i]][dimension];
+            if (value != null) {
+                counts.computeIfAbsent(value, key -> new int[1])[0]++;
+            }
+        }
+        PriorityQueue<FacetCount> heap = new PriorityQueue<>(limit + 1, ORDER.reversed());
+        for (Map.Entry<String, int[]> entry : counts.entrySet()) {
+            offer(heap, new FacetCount(entry.getKey(), entry.getValue()[0]), limit);
+        }
+        return drain(heap);
+    }
+
+    /**
+     * 按基数倒序与各取值的位图求交集基数，剩余的结果文档不足以进入前k名时停止
+     */
+    private List<FacetCount> countByBitmap(CompressedBitmap bitmap, int[] selected, int length,
+                                           int dimension, int limit) {
+        // 有该维度取值的结果文档数，每个文档只属于一个取值，全部分配完即可停止
+        int remaining = 0;
+        for (int i = 0; i < length; i++) {
+            if (documentValues[selected[i]][dimension] != null) {
+                remaining++;
+            }
+        }
+
+        PriorityQueue<FacetCount> heap = new PriorityQueue<>(limit + 1, ORDER.reversed());
+        for (Value value : dimensions[dimension].sorted) {
+            if (remaining == 0) {
+                break;
+            }
+            int bound = Math.min(value.bitmap.cardinality(), remaining);
+            if (heap.size() == limit && bound < heap.peek().getCount()) {
+                break;
+            }
+            int count = bitmap.andCardinality(value.bitmap);
+            if (count > 0) {
+                remaining -= count;
+                offer(heap, new FacetCount(value.value, count), limit);
+            }
+        }
+        return drain(heap);
+    }
+
+    private static void offer(PriorityQueue<FacetCount> heap, FacetCount candidate, int limit) {
+        heap.offer(candidate);
+        if (heap.size() > limit) {
+            heap.poll();
+        }
+    }
+
+    private static List<FacetCount> drain(PriorityQueue<FacetCount> heap) {
+        List<FacetCount> result = new ArrayList<>(heap);
+        result.sort(ORDER);
+        return result;
+    }
+
+    private int allocate() {
+        if (freeCount > 0) {
+            return freeOrdinals[--freeCount];
+        }
+        if (nextOrdinal == documentValues.length) {
+            documentValues = Arrays.copyOf(documentValues, nextOrdinal * 2);
+        }
+        return nextOrdinal++;
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        String trimmed = value.trim();
+        return trimmed.isEmpty() ? null : trimmed;
+    }
+
+    /**
+     * 一个维度：取值 -> 文档序号位图，以及按基数倒序排列的取值
+     */
+    private static final class Dimension {
+        private final Map<String, Value> postings = new HashMap<>();
+        private Value[] sorted = new Value[0];
+
+        private void add(String value, int ordinal) {
+            if (value != null) {
+                postings.computeIfAbsent(value, Value::new).bitmap.add(ordinal);
+            }
+        }
+
+        private void remove(String value, int ordinal) {
+            if (value == null) {
+                return;
+            }
+            Value posting = postings.get(value);
+            if (posting != null && posting.bitmap.remove(ordinal) && posting.bitmap.isEmpty()) {
+                postings.remove(value);
+            }
+        }
+
+        private void sort() {
+            sorted = postings.values().toArray(new Value[0]);
+            Arrays.sort(sorted, (a, b) -> Integer.compare(b.bitmap.cardinality(), a.bitmap.cardinality()));
+        }
+    }
+
+    private static final class Value {
+        private final String value;
+        private final CompressedBitmap bitmap = new CompressedBitmap();
+
+        private Value(String value) {
+            this.value = value;
+        }
+    }
+
+    /**
+     * 分面统计结果
+     */
+    public static final class FacetCount {
+        private final String value;
+        private final int count;
+
+        private FacetCount(String value, int count) {
+            this.value = value;
+            this.count = count;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public int getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.music.util;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 模糊搜索索引（线程安全）
+ * <ul>
+ *     <li>拼音索引：含汉字的名称和艺术家按音节生成全拼和首字母两种key（从每个音节处开始各生成一个，
+ *     如"周杰伦"生成 zhoujielun/jielun/lun 和 zjl/jl），多音字展开其他读音，
+ *     查询词按前缀匹配，输入"zhoujie"、"jielun"、"zjl"都能命中；
+ *     汉字查询词同样转为拼音匹配，容忍同音错别字。</li>
+ *     <li>错别字容错：名称、艺术家、专辑的词（英文按单词切分，中文取整个字段及其全拼）放入有序词典，
+ *     按查询词长度允许1~2的编辑距离。</li>
+ * </ul>
+ * 前缀展开的key数量和编辑距离查询访问的节点数都有上限，目录规模很大时查询耗时仍然有界。
+ */
+public class FuzzyIndex {
+
+    /** 每个字段最多从前几个音节处生成拼音key */
+    private static final int MAX_SYLLABLE_STARTS = 8;
+
+    /** 多音字最多展开的读音组合数 */
+    private static final int MAX_READING_VARIANTS = 4;
+
+    /** 参与错别字匹配的词的最大长度 */
+    private static final int MAX_TOKEN_LENGTH = 32;
+
+    private final TreeMap<String, SortedLongArray> pinyinKeys = new TreeMap<>();
+
+    private final Map<String, SortedLongArray> tokenIds = new HashMap<>();
+
+    /** 含汉字的词和其他词分开保存：汉字的字符集很大，拼音和英文查询不必遍历汉字分支 */
+    private final LevenshteinDictionary hanTokens = new LevenshteinDictionary();
+
+    private final LevenshteinDictionary latinTokens = new LevenshteinDictionary();
+
+    /** 文档ID -> [名称, 艺术家, 专辑]，更新和删除时据此重新计算原有的key */
+    private final Map<Long, String[]> documents = new HashMap<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final int maxVisits;
+
+    private final int maxKeys;
+
+    /**
+     * 构造函数
+     *
+     * @param maxVisits 错别字匹配时最多访问的词典节点数
+     * @param maxKeys   拼音前缀匹配时最多展开的key数量
+     */
+    public FuzzyIndex(int maxVisits, int maxKeys) {
+        this.maxVisits = maxVisits;
+        this.maxKeys = maxKeys;
+    }
+
+    /**
+     * 添加或替换文档
+     *
+     * @param id     文档ID
+     * @param name   名称
+     * @param artist 艺术家
+     * @param album  专辑
+     */
+    public void put(long id, String name, String artist, String album) {
+        String[] fields = {name, artist, album};
+        Set<String> keys = pinyinKeysOf(fields);
+        Set<String> tokens = tokensOf(fields);
+
+        lock.writeLock().lock();
+        try {
+            removeKeys(id, documents.put(id, fields));
+            for (String key : keys) {
+                pinyinKeys.computeIfAbsent(key, k -> new SortedLongArray()).add(id);
+            }
+            for (String token : tokens) {
+                SortedLongArray ids = tokenIds.get(token);
+                if (ids == null) {
+                    ids = new SortedLongArray();
+                    tokenIds.put(token, ids);
+                    dictionary(token).add(token);
+                }
+                ids.add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除文档
+     *
+     * @param id 文档ID
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            removeKeys(id, documents.remove(id));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 模糊查询
+     *
+     * @param query 查询词
+     * @return 拼音或错别字匹配到的文档ID（未排序、未按状态过滤）
+     */
+    public Set<Long> search(String query) {
+        Set<Long> result = new HashSet<>();
+        if (query == null || query.isBlank()) {
+            return result;
+        }
+        String normalized = query.trim().toLowerCase(Locale.ROOT);
+
+        // 拼音查询词去掉空格直接作为前缀；汉字查询词转为全拼（同音字也能命中）
+        String pinyinPrefix = null;
+        if (PinyinUtil.isPinyinQuery(normalized)) {
+            pinyinPrefix = normalized.replace(" ", "");
+        } else if (PinyinUtil.containsHan(normalized)) {
+            pinyinPrefix = String.join("", PinyinUtil.syllables(normalized));
+        }
+
+        String token = pinyinPrefix != null && !PinyinUtil.containsHan(normalized) ? pinyinPrefix : normalized;
+        int maxDistance = maxDistance(token, PinyinUtil.containsHan(normalized));
+
+        lock.readLock().lock();
+        try {
+            if (pinyinPrefix != null && pinyinPrefix.length() >= 2) {
+                int expanded = 0;
+                for (SortedLongArray ids : pinyinKeys.subMap(pinyinPrefix, true,
+                        pinyinPrefix + Character.MAX_VALUE, true).values()) {
+                    addAll(result, ids);
+                    if (++expanded >= maxKeys) {
+                        break;
+                    }
+                }
+            }
+            if (maxDistance > 0) {
+                for (String term : dictionary(token).search(token, maxDistance, maxVisits)) {
+                    SortedLongArray ids = tokenIds.get(term);
+                    if (ids != null) {
+                        addAll(result, ids);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * 文档数量
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 拼音key数量
+     */
+    public int keyCount() {
+        lock.readLock().lock();
+        try {
+            return pinyinKeys.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private LevenshteinDictionary dictionary(String token) {
+        return PinyinUtil.containsHan(token) ? hanTokens : latinTokens;
+    }
+
+    /**
+     * 错别字匹配允许的编辑距离：短词不做容错，汉字信息量大，两个字以上即允许1个错字
+     */
+    private static int maxDistance(String token, boolean han) {
+        int length = token.length();
+        if (han) {
+            return length >= 2 ? 1 : 0;
+        }
+        if (length >= 8) {
+            return 2;
+        }
+        return length >= 4 ? 1 : 0;
+    }
+
+    /**
+     * 名称和艺术家的拼音key
+     */
+    private static Set<String> pinyinKeysOf(String[] fields) {
+        Set<String> keys = new LinkedHashSet<>();
+        addPinyinKeys(keys, fields[0]);
+        addPinyinKeys(keys, fields[1]);
+        return keys;
+    }
+
+    /**
+     * 名称、艺术家和专辑中参与错别字匹配的词
+     */
+    private static Set<String> tokensOf(String[] fields) {
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String field : fields) {
+            addTokens(tokens, field);
+        }
+        return tokens;
+    }
+
+    private static void addPinyinKeys(Set<String> keys, String text) {
+        if (!PinyinUtil.containsHan(text)) {
+            return;
+        }
+        for (List<String> syllables : PinyinUtil.syllableVariants(text, MAX_READING_VARIANTS)) {
+            for (int start = 0; start < syllables.size() && start < MAX_SYLLABLE_STARTS; start++) {
+                StringBuilder full = new StringBuilder();
+                StringBuilder initials = new StringBuilder();
+                for (int i = start; i < syllables.size(); i++) {
+                    full.append(syllables.get(i));
+                    initials.append(syllables.get(i).charAt(0));
+                }
+                // 单个字母的key过于宽泛，不参与前缀匹配
+                if (initials.length() >= 2) {
+                    keys.add(full.toString());
+                    keys.add(initials.toString());
+                } else if (full.length() >= 2) {
+                    keys.add(full.toString());
+                }
+            }
+        }
+    }
+
+    private static void addTokens(Set<String> tokens, String text) {
+        if (text == null || text.isBlank()) {
+            return;
+        }
+        String normalized = text.trim().toLowerCase(Locale.ROOT);
+        if (PinyinUtil.containsHan(normalized)) {
+            addToken(tokens, normalized);
+            addToken(tokens, String.join("", PinyinUtil.syllables(normalized)));
+            return;
+        }
+        for (String word : normalized.split("[^\\p{L}\\p{N}]+")) {
+            addToken(tokens, word);
+        }
+    }
+
+    private static void addToken(Set<String> tokens, String token) {
+        if (token.length() >= 2 && token.length() <= MAX_TOKEN_LENGTH) {
+            tokens.add(token);
+        }
+    }
+
+    /**
+     * 删除文档原有的key（需持有写锁）
+     */
+    private void removeKeys(long id, String[] oldFields) {
+        if (oldFields == null) {
+            return;
+        }
+        for (String key : pinyinKeysOf(oldFields)) {
+            SortedLongArray ids = pinyinKeys.get(key);
+            if (ids != null && ids.remove(id) && ids.size() == 0) {
+                pinyinKeys.remove(key);
+            }
+        }
+        for (String token : tokensOf(oldFields)) {
+            SortedLongArray ids = tokenIds.get(token);
+            if (ids != null && ids.remove(id) && ids.size() == 0) {
+                tokenIds.remove(token);
+                dictionary(token).remove(token);
+            }
+        }
+    }
+
+    private static void addAll(Set<Long> result, SortedLongArray ids) {
+        for (int i = 0; i < ids.size(); i++) {
+            result.add(ids.get(i));
+        }
+    }
+}
@@ -0,0 +1,119 @@
+package com.music.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 热点key探测器
+ * 按采样率记录key的访问次数，统计窗口由若干个时间分桶组成，按时间滑动；
+ * 估算访问次数 = 窗口内采样次数 × 采样率。每个分桶记录的key数量有上限，避免大量冷key占用内存。
+ */
+public class HotKeyDetector {
+
+    private final int sampleRate;
+
+    private final long bucketMillis;
+
+    private final int maxKeysPerBucket;
+
+    private final Bucket[] buckets;
+
+    /**
+     * 构造函数
+     *
+     * @param sampleRate       采样率（每N次访问记录1次，1表示全部记录）
+     * @param windowMillis     统计窗口（毫秒）
+     * @param bucketCount      窗口分桶数
+     * @param maxKeysPerBucket 每个分桶最多记录的key数量
+     */
+    public HotKeyDetector(int sampleRate, long windowMillis, int bucketCount, int maxKeysPerBucket) {
+        this.sampleRate = Math.max(1, sampleRate);
+        this.bucketMillis = Math.max(1, windowMillis / bucketCount);
+        this.maxKeysPerBucket = maxKeysPerBucket;
+        this.buckets = new Bucket[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new Bucket();
+        }
+    }
+
+    /**
+     * 记录一次访问（按采样率抽样）
+     *
+     * @param key 缓存键
+     */
+    public void record(String key) {
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            return;
+        }
+
+        long slot = System.currentTimeMillis() / bucketMillis;
+        Bucket bucket = buckets[(int) (slot % buckets.length)];
+        if (bucket.slot != slot) {
+            synchronized (bucket) {
+                if (bucket.slot != slot) {
+                    bucket.counts = new ConcurrentHashMap<>();
+                    bucket.slot = slot;
+                }
+            }
+        }
+
+        Map<String, LongAdder> counts = bucket.counts;
+        LongAdder counter = counts.get(key);
+        if (counter == null) {
+            if (counts.size() >= maxKeysPerBucket) {
+                return;
+            }
+            counter = counts.computeIfAbsent(key, k -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * 获取窗口内估算访问次数最多的key
+     *
+     * @param threshold 最小估算访问次数
+     * @param limit     最多返回数量
+     * @return key到估算访问次数的映射（按次数倒序）
+     */
+    public Map<String, Long> top(long threshold, int limit) {
+        long currentSlot = System.currentTimeMillis() / bucketMillis;
+        Map<String, Long> totals = new HashMap<>();
+        for (Bucket bucket : buckets) {
+            long slot = bucket.slot;
+            if (slot <= currentSlot - buckets.length || slot > currentSlot) {
+                continue;
+            }
+            for (Map.Entry<String, LongAdder> entry : bucket.counts.entrySet()) {
+                totals.merge(entry.getKey(), entry.getValue().sum() * sampleRate, Long::sum);
+            }
+        }
+
+        List<Map.Entry<String, Long>> entries = new ArrayList<>();
+        for (Map.Entry<String, Long> entry : totals.entrySet()) {
+            if (entry.getValue() >= threshold) {
+                entries.add(entry);
+            }
+        }
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (int i = 0; i < entries.size() && i < limit; i++) {
+            result.put(entries.get(i).getKey(), entries.get(i).getValue());
+        }
+        return result;
+    }
+
+    /**
+     * 时间分桶
+     */
+    private static final class Bucket {
+        private volatile long slot = -1;
+        private volatile Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+    }
+}
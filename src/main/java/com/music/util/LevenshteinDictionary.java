@@ -0,0 +1,322 @@
+package com.music.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 支持编辑距离查询的有序词典（非线程安全，由调用方加锁）
+ * 词按字典序保存在数组中，有序数组的前缀区间即隐式的字典树；查询时沿字典树深度优先遍历，
+ * 逐字符更新编辑距离矩阵的一行（相当于在词典上模拟Levenshtein自动机），一行的最小值超过最大距离时剪枝。
+ * 当一行的最小值已等于最大距离时，只有与查询词中的字符相同的分支还可能匹配，此时直接二分定位这些分支，
+ * 不再枚举全部子节点（中文字符集很大，这一步决定了查询耗时）。
+ * 计算的行数有上限，超过预算立即返回已找到的结果。
+ * 新增的词先放入一个较小的无序缓冲区（查询时逐个计算距离），缓冲区满后再一次性归并进有序数组，
+ * 避免全量构建时每次插入都移动整个数组。
+ */
+public class LevenshteinDictionary {
+
+    /** 缓冲区大小 */
+    private static final int MAX_PENDING = 4096;
+
+    private String[] terms = new String[16];
+
+    private int size;
+
+    private final String[] pending = new String[MAX_PENDING];
+
+    private int pendingSize;
+
+    /**
+     * 添加词（调用方保证词不在词典中）
+     *
+     * @param term 词
+     */
+    public void add(String term) {
+        pending[pendingSize++] = term;
+        if (pendingSize == MAX_PENDING) {
+            merge();
+        }
+    }
+
+    /**
+     * 删除词
+     *
+     * @param term 词
+     */
+    public void remove(String term) {
+        int pendingIndex = pendingIndex(term);
+        if (pendingIndex >= 0) {
+            pending[pendingIndex] = pending[--pendingSize];
+            pending[pendingSize] = null;
+            return;
+        }
+        int index = Arrays.binarySearch(terms, 0, size, term);
+        if (index < 0) {
+            return;
+        }
+        System.arraycopy(terms, index + 1, terms, index, size - index - 1);
+        terms[--size] = null;
+    }
+
+    /**
+     * 查询编辑距离不超过maxDistance的词
+     *
+     * @param query       查询词
+     * @param maxDistance 最大编辑距离
+     * @param maxVisits   最多计算的矩阵行数（即访问的字典树节点数）
+     * @return 匹配的词
+     */
+    public List<String> search(String query, int maxDistance, int maxVisits) {
+        List<String> result = new ArrayList<>();
+        int[] buffer = new int[2 * (query.length() + 1)];
+        for (int i = 0; i < pendingSize; i++) {
+            if (distance(pending[i], query, maxDistance, buffer) <= maxDistance) {
+                result.add(pending[i]);
+            }
+        }
+        if (size == 0) {
+            return result;
+        }
+        int maxDepth = query.length() + maxDistance;
+        int[][] rows = new int[maxDepth + 1][query.length() + 1];
+        for (int j = 0; j <= query.length(); j++) {
+            rows[0][j] = j;
+        }
+        Search search = new Search(query, maxDistance, maxVisits, rows, result);
+        if (query.length() <= maxDistance && terms[0].isEmpty()) {
+            result.add(terms[0]);
+        }
+        search.visit(0, 0, size);
+        return result;
+    }
+
+    /**
+     * 词数量
+     */
+    public int size() {
+        return size + pendingSize;
+    }
+
+    /**
+     * 编辑距离（超过limit时提前结束并返回limit+1）
+     * 只计算对角线附近宽度为 2*limit+1 的带状区域，带外的单元格距离必然超过limit
+     *
+     * @param buffer 长度至少为 2*(b.length()+1) 的临时数组，避免每次比较都分配内存
+     */
+    static int distance(String a, String b, int limit, int[] buffer) {
+        int m = a.length();
+        int n = b.length();
+        if (Math.abs(m - n) > limit) {
+            return limit + 1;
+        }
+        int over = limit + 1;
+        int previous = 0;
+        int current = n + 1;
+        for (int j = 0; j <= n; j++) {
+            buffer[previous + j] = j <= limit ? j : over;
+        }
+        for (int i = 1; i <= m; i++) {
+            int from = Math.max(1, i - limit);
+            int to = Math.min(n, i + limit);
+            buffer[current] = i <= limit ? i : over;
+            if (from > 1) {
+                buffer[current + from - 1] = over;
+            }
+            int rowMin = buffer[current];
+            char ca = a.charAt(i - 1);
+            for (int j = from; j <= to; j++) {
+                int cost = ca == b.charAt(j - 1) ? 0 : 1;
+                int value = Math.min(Math.min(buffer[current + j - 1] + 1, buffer[previous + j] + 1),
+                        buffer[previous + j - 1] + cost);
+                value = Math.min(value, over);
+                buffer[current + j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (to < n) {
+                buffer[current + to + 1] = over;
+            }
+            if (rowMin > limit) {
+                return over;
+            }
+            int swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return buffer[previous + n];
+    }
+
+    private int pendingIndex(String term) {
+        for (int i = 0; i < pendingSize; i++) {
+            if (pending[i].equals(term)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 把缓冲区排序后归并进有序数组
+     */
+    private void merge() {
+        Arrays.sort(pending, 0, pendingSize);
+        String[] merged = new String[Math.max(16, Integer.highestOneBit(size + pendingSize) * 2)];
+        int i = 0;
+        int j = 0;
+        int k = 0;
+        while (i < size || j < pendingSize) {
+            if (j == pendingSize || (i < size && terms[i].compareTo(pending[j]) < 0)) {
+                merged[k++] = terms[i++];
+            } else {
+                merged[k++] = pending[j++];
+            }
+        }
+        terms = merged;
+        size = k;
+        Arrays.fill(pending, 0, pendingSize, null);
+        pendingSize = 0;
+    }
+
+    /**
+     * 一次查询的遍历状态
+     */
+    private final class Search {
+        private final String query;
+        private final int maxDistance;
+        private final int[][] rows;
+        private final List<String> result;
+        private int budget;
+
+        private Search(String query, int maxDistance, int maxVisits, int[][] rows, List<String> result) {
+            this.query = query;
+            this.maxDistance = maxDistance;
+            this.budget = maxVisits;
+            this.rows = rows;
+            this.result = result;
+        }
+
+        /**
+         * 遍历 [from, to) 区间（区间内的词共享长度为depth的前缀，rows[depth]为该前缀对应的行）
+         */
+        private void visit(int depth, int from, int to) {
+            if (depth + 1 >= rows.length) {
+                return;
+            }
+            // 与前缀完全相同的词排在区间最前面，它们没有下一个字符
+            int start = from;
+            while (start < to && terms[start].length() == depth) {
+                start++;
+            }
+            if (start >= to) {
+                return;
+            }
+
+            int[] row = rows[depth];
+            if (min(row) < maxDistance) {
+                // 还有容错余量：枚举所有子节点
+                while (start < to && budget > 0) {
+                    char c = terms[start].charAt(depth);
+                    int end = upperBound(depth, c, start, to);
+                    step(depth, c, start, end);
+                    start = end;
+                }
+            } else {
+                // 容错余量已用完：只有与查询词第j+1个字符相同且row[j]未超出最大距离的分支还可能匹配
+                for (int j = 0; j < query.length() && budget > 0; j++) {
+                    char c = query.charAt(j);
+                    if (row[j] > maxDistance || handled(row, c, j)) {
+                        continue;
+                    }
+                    int begin = lowerBound(depth, c, start, to);
+                    if (begin < to && terms[begin].charAt(depth) == c) {
+                        step(depth, c, begin, upperBound(depth, c, begin, to));
+                    }
+                }
+            }
+        }
+
+        /**
+         * 前缀追加字符c后计算新的一行，记录完全匹配的词并继续向下遍历
+         */
+        private void step(int depth, char c, int from, int to) {
+            budget--;
+            int[] previous = rows[depth];
+            int[] current = rows[depth + 1];
+            current[0] = previous[0] + 1;
+            int rowMin = current[0];
+            for (int j = 1; j <= query.length(); j++) {
+                int cost = query.charAt(j - 1) == c ? 0 : 1;
+                current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                rowMin = Math.min(rowMin, current[j]);
+            }
+            if (rowMin > maxDistance) {
+                return;
+            }
+            if (current[query.length()] <= maxDistance && terms[from].length() == depth + 1) {
+                result.add(terms[from]);
+            }
+            visit(depth + 1, from, to);
+        }
+
+        /**
+         * 查询词中第j个字符之前是否已处理过相同字符
+         */
+        private boolean handled(int[] row, char c, int j) {
+            for (int k = 0; k < j; k++) {
+                if (query.charAt(k) == c && row[k] <= maxDistance) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private int min(int[] row) {
+            int min = Integer.MAX_VALUE;
+            for (int value : row) {
+                min = Math.min(min, value);
+            }
+            return min;
+        }
+
+        /**
+         * 区间内第depth个字符不小于c的第一个位置（区间内的词长度都大于depth）
+         */
+        private int lowerBound(int depth, char c, int from, int to) {
+            int lo = from;
+            int hi = to;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (terms[mid].charAt(depth) < c) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        /**
+         * 区间内第depth个字符大于c的第一个位置（from处的字符不大于c）
+         * 先从from开始按1、2、4……的步长向后探测再二分，子节点的区间通常很短，这样访问的位置集中在from附近
+         */
+        private int upperBound(int depth, char c, int from, int to) {
+            int lo = from;
+            int step = 1;
+            while (lo + step < to && terms[lo + step].charAt(depth) <= c) {
+                lo += step;
+                step <<= 1;
+            }
+            int hi = Math.min(lo + step, to);
+            lo++;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (terms[mid].charAt(depth) <= c) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+    }
+}
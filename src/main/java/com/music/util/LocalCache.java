@@ -0,0 +1,261 @@
+package com.music.util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 进程内本地缓存
+ * 按容量做LRU淘汰、按写入时间过期，并统计命中/未命中/淘汰次数。
+ * 内部按key哈希分段加锁，降低高并发读时的锁竞争。
+ *
+ * @param <K> 键类型
+ * @param <V> 值类型
+ */
+public class LocalCache<K, V> {
+
+    private static final int SEGMENT_COUNT = 16;
+
+    private final Segment<K, V>[] segments;
+
+    private final long expireMillis;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * 构造函数
+     *
+     * @param maxSize      最大条目数
+     * @param expireMillis 默认过期时间（毫秒）
+     */
+    @SuppressWarnings("unchecked")
+    public LocalCache(int maxSize, long expireMillis) {
+        this.expireMillis = expireMillis;
+        int segmentSize = Math.max(1, (maxSize + SEGMENT_COUNT - 1) / SEGMENT_COUNT);
+        this.segments = new Segment[SEGMENT_COUNT];
+        for (int i = 0; i < SEGMENT_COUNT; i++) {
+            segments[i] = new Segment<>(segmentSize, evictions);
+        }
+    }
+
+    /**
+     * 获取缓存值
+     *
+     * @param key 键
+     * @return 缓存值，不存在或已过期返回null
+     */
+    public V get(K key) {
+        V value = segmentFor(key).get(key, System.currentTimeMillis());
+        if (value == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return value;
+    }
+
+    /**
+     * 写入缓存（使用默认过期时间）
+     *
+     * @param key   键
+     * @param value 值
+     */
+    public void put(K key, V value) {
+        put(key, value, expireMillis);
+    }
+
+    /**
+     * 写入缓存
+     *
+     * @param key          键
+     * @param value        值
+     * @param expireMillis 过期时间（毫秒），超过默认过期时间时按默认值处理
+     */
+    public void put(K key, V value, long expireMillis) {
+        long ttl = Math.min(expireMillis, this.expireMillis);
+        segmentFor(key).put(key, value, System.currentTimeMillis() + ttl);
+    }
+
+    /**
+     * 写入缓存并指定绝对过期时间（用于从快照恢复）
+     *
+     * @param key      键
+     * @param value    值
+     * @param expireAt 过期时间点（毫秒时间戳），不会晚于当前时间加默认过期时间
+     */
+    public void putUntil(K key, V value, long expireAt) {
+        long now = System.currentTimeMillis();
+        if (expireAt <= now) {
+            return;
+        }
+        segmentFor(key).put(key, value, Math.min(expireAt, now + this.expireMillis));
+    }
+
+    /**
+     * 删除缓存
+     *
+     * @param key 键
+     */
+    public void remove(K key) {
+        segmentFor(key).remove(key);
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            segment.clear();
+        }
+    }
+
+    /**
+     * 当前条目数（包含尚未清理的过期条目）
+     */
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            size += segment.size();
+        }
+        return size;
+    }
+
+    /**
+     * 导出所有未过期的条目
+     *
+     * @return 条目列表（键、值、过期时间点）
+     */
+    public List<SnapshotEntry<K, V>> snapshot() {
+        long now = System.currentTimeMillis();
+        List<SnapshotEntry<K, V>> entries = new ArrayList<>();
+        for (Segment<K, V> segment : segments) {
+            segment.snapshot(now, entries);
+        }
+        return entries;
+    }
+
+    /**
+     * 获取统计信息
+     *
+     * @return 命中数、未命中数、淘汰数、命中率、当前条目数
+     */
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size());
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("evictions", evictions.sum());
+        stats.put("hitRate", total == 0 ? 0D : (double) hitCount / total);
+        return stats;
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (SEGMENT_COUNT - 1)];
+    }
+
+    /**
+     * 缓存条目
+     */
+    private static final class Entry<V> {
+        private final V value;
+        private final long expireAt;
+
+        private Entry(V value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+    }
+
+    /**
+     * 快照条目
+     */
+    public static final class SnapshotEntry<K, V> {
+        private final K key;
+        private final V value;
+        private final long expireAt;
+
+        public SnapshotEntry(K key, V value, long expireAt) {
+            this.key = key;
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public V getValue() {
+            return value;
+        }
+
+        public long getExpireAt() {
+            return expireAt;
+        }
+    }
+
+    /**
+     * 分段：基于访问顺序的LinkedHashMap实现LRU
+     */
+    private static final class Segment<K, V> {
+        private final LinkedHashMap<K, Entry<V>> map;
+
+        private Segment(int maxSize, LongAdder evictions) {
+            this.map = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                    if (size() > maxSize) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        private synchronized V get(K key, long now) {
+            Entry<V> entry = map.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expireAt <= now) {
+                map.remove(key);
+                return null;
+            }
+            return entry.value;
+        }
+
+        private synchronized void put(K key, V value, long expireAt) {
+            map.put(key, new Entry<>(value, expireAt));
+        }
+
+        private synchronized void remove(K key) {
+            map.remove(key);
+        }
+
+        private synchronized void clear() {
+            map.clear();
+        }
+
+        private synchronized int size() {
+            return map.size();
+        }
+
+        private synchronized void snapshot(long now, List<SnapshotEntry<K, V>> entries) {
+            for (Map.Entry<K, Entry<V>> e : map.entrySet()) {
+                if (e.getValue().expireAt > now) {
+                    entries.add(new SnapshotEntry<>(e.getKey(), e.getValue().value, e.getValue().expireAt));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,638 @@
+package com.music.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 基于字符n-gram的内存倒排索引（线程安全）
+ * 每个文档的所有字段按单字和相邻两字切分（中文不依赖分词），每个gram对应一个有序的文档ID数组。
+ * 查询时先对查询词的gram求交集得到候选文档，再逐个校验子串包含关系，结果与 LIKE '%词%' 一致（忽略大小写）。
+ * 结果按排序键倒序、ID倒序返回；也可以按相关度取前k个（见 top）。
+ * 另按状态维护按排序键倒序的有序集合，没有文本条件的查询（只按状态或游标）直接顺序遍历，不对全部文档排序。
+ */
+public class NGramIndex {
+
+    /** BM25 的词频饱和参数 */
+    private static final double K1 = 1.2;
+
+    /** BM25 的字段长度归一化参数 */
+    private static final double B = 0.75;
+
+    /** 第一个字段与查询词完全相同时，文本得分的额外倍数 */
+    private static final double EXACT_BONUS = 1.0;
+
+    /** 第一个字段以查询词开头时，文本得分的额外倍数 */
+    private static final double PREFIX_BONUS = 0.5;
+
+    private final Map<String, SortedLongArray> postings = new HashMap<>();
+
+    private final Map<Long, Document> documents = new HashMap<>();
+
+    /** 排序键倒序、ID倒序 */
+    private static final Comparator<Document> ORDER = (a, b) -> a.sortKey != b.sortKey
+            ? Long.compare(b.sortKey, a.sortKey)
+            : Long.compare(b.id, a.id);
+
+    /** 状态 -> 该状态的文档（按 ORDER 排列） */
+    private final Map<Integer, TreeSet<Document>> byStatus = new HashMap<>();
+
+    /** 各字段的长度之和，用于计算BM25的平均字段长度 */
+    private long[] fieldLengths = new long[0];
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * 添加或替换文档
+     *
+     * @param id      文档ID
+     * @param status  状态
+     * @param sortKey 排序键（越大越靠前）
+     * @param fields  被索引的字段（null视为空字符串）
+     */
+    public void put(long id, int status, long sortKey, String... fields) {
+        put(id, status, sortKey, 0, fields);
+    }
+
+    /**
+     * 添加或替换文档
+     *
+     * @param id      文档ID
+     * @param status  状态
+     * @param sortKey 排序键（越大越靠前）
+     * @param boost   与查询无关的加分（如热度），按相关度排序时加到文本得分上
+     * @param fields  被索引的字段（null视为空字符串）
+     */
+    public void put(long id, int status, long sortKey, double boost, String... fields) {
+        String[] normalized = new String[fields.length];
+        for (int i = 0; i < fields.length; i++) {
+            normalized[i] = normalize(fields[i]);
+        }
+        Document document = new Document(id, status, sortKey, boost, normalized);
+
+        lock.writeLock().lock();
+        try {
+            Document old = documents.put(id, document);
+            addFieldLengths(normalized, 1);
+            if (old != null) {
+                // 先移除旧文档：排序键和ID不变时新旧文档在有序集合中相等，先添加会被忽略
+                removeOrdered(old);
+                addFieldLengths(old.fields, -1);
+                for (String gram : grams(old.fields)) {
+                    SortedLongArray list = postings.get(gram);
+                    if (list != null && list.remove(id) && list.size() == 0) {
+                        postings.remove(gram);
+                    }
+                }
+            }
+            for (String gram : grams(normalized)) {
+                postings.computeIfAbsent(gram, k -> new SortedLongArray()).add(id);
+            }
+            byStatus.computeIfAbsent(status, k -> new TreeSet<>(ORDER)).add(document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除文档
+     *
+     * @param id 文档ID
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Document old = documents.remove(id);
+            if (old == null) {
+                return;
+            }
+            removeOrdered(old);
+            addFieldLengths(old.fields, -1);
+            for (String gram : grams(old.fields)) {
+                SortedLongArray list = postings.get(gram);
+                if (list != null && list.remove(id) && list.size() == 0) {
+                    postings.remove(gram);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查询文档
+     *
+     * @param status        状态（null表示不限）
+     * @param keyword       任一字段包含该词即匹配（为空表示不限）
+     * @param fieldTerms    各字段必须包含的词，下标与字段对应（元素为空表示不限）
+     * @param beforeSortKey 只返回排在 (beforeSortKey, beforeId) 之后的文档，不限时传 Long.MAX_VALUE
+     * @param beforeId      同上
+     * @return 匹配的文档ID（按排序键倒序、ID倒序）
+     */
+    public List<Long> search(Integer status, String keyword, String[] fieldTerms,
+                             long beforeSortKey, long beforeId) {
+        return search(status, keyword, fieldTerms, beforeSortKey, beforeId, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 查询文档，只返回排在最前的 limit 个
+     * 没有文本条件时按状态的有序集合顺序遍历，取满即停；有文本条件时只选出前 limit 个，不对全部匹配结果排序
+     *
+     * @param status        状态（null表示不限）
+     * @param keyword       任一字段包含该词即匹配（为空表示不限）
+     * @param fieldTerms    各字段必须包含的词，下标与字段对应（元素为空表示不限）
+     * @param beforeSortKey 只返回排在 (beforeSortKey, beforeId) 之后的文档，不限时传 Long.MAX_VALUE
+     * @param beforeId      同上
+     * @param limit         最多返回数量
+     * @return 匹配的文档ID（按排序键倒序、ID倒序）
+     */
+    public List<Long> search(Integer status, String keyword, String[] fieldTerms,
+                             long beforeSortKey, long beforeId, int limit) {
+        String normalizedKeyword = normalize(keyword);
+        String[] normalizedTerms = new String[fieldTerms.length];
+        Set<String> queryGrams = new LinkedHashSet<>(queryGrams(normalizedKeyword));
+        for (int i = 0; i < fieldTerms.length; i++) {
+            normalizedTerms[i] = normalize(fieldTerms[i]);
+            queryGrams.addAll(queryGrams(normalizedTerms[i]));
+        }
+
+        if (queryGrams.isEmpty()) {
+            return latest(status, beforeSortKey, beforeId, 0, limit);
+        }
+
+        List<Document> matched = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Document document : candidates(queryGrams)) {
+                if ((status == null || document.status == status)
+                        && isBefore(document, beforeSortKey, beforeId)
+                        && document.matches(normalizedKeyword, normalizedTerms)) {
+                    matched.add(document);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        return sortedIds(matched, limit);
+    }
+
+    /**
+     * 按状态顺序遍历文档（不校验文本条件）
+     *
+     * @param status        状态（null表示不限，多个状态的有序集合归并遍历）
+     * @param beforeSortKey 只返回排在 (beforeSortKey, beforeId) 之后的文档，不限时传 Long.MAX_VALUE
+     * @param beforeId      同上
+     * @param offset        跳过的文档数量
+     * @param limit         最多返回数量
+     * @return 文档ID（按排序键倒序、ID倒序）
+     */
+    public List<Long> latest(Integer status, long beforeSortKey, long beforeId, int offset, int limit) {
+        Document from = new Document(beforeId, 0, beforeSortKey, 0, new String[0]);
+        List<Long> ids = new ArrayList<>(Math.max(0, Math.min(limit, 1024)));
+        lock.readLock().lock();
+        try {
+            // 各状态的迭代器按当前元素排成小顶堆，依次取出最靠前的文档
+            PriorityQueue<Head> heads = new PriorityQueue<>((a, b) -> ORDER.compare(a.document, b.document));
+            for (Map.Entry<Integer, TreeSet<Document>> entry : byStatus.entrySet()) {
+                if (status == null || entry.getKey().equals(status)) {
+                    Iterator<Document> iterator = entry.getValue().tailSet(from, false).iterator();
+                    if (iterator.hasNext()) {
+                        heads.add(new Head(iterator.next(), iterator));
+                    }
+                }
+            }
+            int skipped = 0;
+            while (!heads.isEmpty() && ids.size() < limit) {
+                Head head = heads.poll();
+                if (skipped < offset) {
+                    skipped++;
+                } else {
+                    ids.add(head.document.id);
+                }
+                if (head.iterator.hasNext()) {
+                    head.document = head.iterator.next();
+                    heads.add(head);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return ids;
+    }
+
+    /**
+     * 文档数量
+     *
+     * @param status 状态（null表示全部）
+     * @return 该状态的文档数量
+     */
+    public int count(Integer status) {
+        lock.readLock().lock();
+        try {
+            if (status == null) {
+                return documents.size();
+            }
+            TreeSet<Document> ordered = byStatus.get(status);
+            return ordered != null ? ordered.size() : 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 过滤并排序给定的文档（用于合并其他索引得到的候选文档，不校验关键字）
+     *
+     * @param ids           候选文档ID
+     * @param status        状态（null表示不限）
+     * @param fieldTerms    各字段必须包含的词，下标与字段对应（元素为空表示不限）
+     * @param beforeSortKey 只返回排在 (beforeSortKey, beforeId) 之后的文档，不限时传 Long.MAX_VALUE
+     * @param beforeId      同上
+     * @return 存在且满足条件的文档ID（按排序键倒序、ID倒序）
+     */
+    public List<Long> filter(Collection<Long> ids, Integer status, String[] fieldTerms,
+                             long beforeSortKey, long beforeId) {
+        return filter(ids, status, fieldTerms, beforeSortKey, beforeId, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 过滤给定的文档，只返回排在最前的 limit 个
+     *
+     * @param ids           候选文档ID
+     * @param status        状态（null表示不限）
+     * @param fieldTerms    各字段必须包含的词，下标与字段对应（元素为空表示不限）
+     * @param beforeSortKey 只返回排在 (beforeSortKey, beforeId) 之后的文档，不限时传 Long.MAX_VALUE
+     * @param beforeId      同上
+     * @param limit         最多返回数量
+     * @return 存在且满足条件的文档ID（按排序键倒序、ID倒序）
+     */
+    public List<Long> filter(Collection<Long> ids, Integer status, String[] fieldTerms,
+                             long beforeSortKey, long beforeId, int limit) {
+        String[] normalizedTerms = new String[fieldTerms.length];
+        for (int i = 0; i < fieldTerms.length; i++) {
+            normalizedTerms[i] = normalize(fieldTerms[i]);
+        }
+
+        List<Document> matched = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Long id : ids) {
+                Document document = documents.get(id);
+                if (document != null
+                        && (status == null || document.status == status)
+                        && isBefore(document, beforeSortKey, beforeId)
+                        && document.matches("", normalizedTerms)) {
+                    matched.add(document);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return sortedIds(matched, limit);
+    }
+
+    /**
+     * 按相关度选出得分最高的k个文档（用有界小顶堆选择，不对全部候选排序）
+     * 得分 = 文本得分（BM25F：查询词的gram在各字段中的词频按字段权重和字段长度归一化后累加，
+     * 第一个字段与查询词完全相同或以其开头时额外加分）+ 文档的boost + 新鲜度得分（按创建时间指数衰减）
+     *
+     * @param ids                   候选文档ID（不存在的文档忽略）
+     * @param keyword               查询词（为空时只按boost和新鲜度排序）
+     * @param fieldWeights          各字段的权重，下标与字段对应
+     * @param limit                 返回数量
+     * @param now                   当前时间（与排序键同单位）
+     * @param recencyWeight         新鲜度得分的权重
+     * @param recencyHalfLife       新鲜度的半衰期（与排序键同单位）
+     * @return 按得分倒序排列的文档ID
+     */
+    public List<Long> top(Collection<Long> ids, String keyword, double[] fieldWeights, int limit,
+                          long now, double recencyWeight, long recencyHalfLife) {
+        if (limit <= 0) {
+            return List.of();
+        }
+        String normalizedKeyword = normalize(keyword);
+        List<String> queryGrams = new ArrayList<>(new LinkedHashSet<>(queryGrams(normalizedKeyword)));
+
+        // 分数相同时按ID倒序（较新的音乐在前），堆顶为当前第k名
+        PriorityQueue<Scored> heap = new PriorityQueue<>(Math.min(limit, Math.max(ids.size(), 1)) + 1,
+                (a, b) -> a.score != b.score ? Double.compare(a.score, b.score) : Long.compare(a.id, b.id));
+        lock.readLock().lock();
+        try {
+            double[] idf = new double[queryGrams.size()];
+            for (int i = 0; i < idf.length; i++) {
+                SortedLongArray list = postings.get(queryGrams.get(i));
+                int df = list != null ? list.size() : 0;
+                idf[i] = Math.log(1 + (documents.size() - df + 0.5) / (df + 0.5));
+            }
+            double[] averageLengths = new double[fieldLengths.length];
+            for (int f = 0; f < fieldLengths.length; f++) {
+                averageLengths[f] = documents.isEmpty() ? 1 : Math.max(1.0, (double) fieldLengths[f] / documents.size());
+            }
+
+            // 文本得分的上限：每个gram的BM25得分不超过 idf*(k1+1)，再乘以完全匹配的加分
+            double maxTextScore = 0;
+            for (double value : idf) {
+                maxTextScore += value * (K1 + 1);
+            }
+            maxTextScore *= 1 + EXACT_BONUS;
+            double decay = Math.log(2) / recencyHalfLife;
+
+            for (Long id : ids) {
+                Document document = documents.get(id);
+                if (document == null) {
+                    continue;
+                }
+                double score = document.boost
+                        + recencyWeight * Math.exp(-decay * Math.max(0, now - document.sortKey));
+                // 堆已满且加上文本得分上限也进不了前k名时，不必计算文本得分
+                if (heap.size() >= limit && score + maxTextScore < heap.peek().score) {
+                    continue;
+                }
+                score += textScore(document, normalizedKeyword, queryGrams, idf, fieldWeights, averageLengths);
+                if (heap.size() < limit) {
+                    heap.add(new Scored(document.id, score));
+                } else if (score > heap.peek().score
+                        || (score == heap.peek().score && document.id > heap.peek().id)) {
+                    heap.poll();
+                    heap.add(new Scored(document.id, score));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Long[] result = new Long[heap.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = heap.poll().id;
+        }
+        return Arrays.asList(result);
+    }
+
+    /**
+     * 文档数量
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * gram数量
+     */
+    public int gramCount() {
+        lock.readLock().lock();
+        try {
+            return postings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 根据查询gram求交集得到候选文档（需持有读锁）
+     */
+    private Iterable<Document> candidates(Set<String> queryGrams) {
+        if (queryGrams.isEmpty()) {
+            return documents.values();
+        }
+
+        SortedLongArray[] lists = new SortedLongArray[queryGrams.size()];
+        int n = 0;
+        for (String gram : queryGrams) {
+            SortedLongArray list = postings.get(gram);
+            if (list == null) {
+                return List.of();
+            }
+            lists[n++] = list;
+        }
+        // 从最短的倒排表开始，逐个在其他倒排表中二分查找
+        Arrays.sort(lists, (a, b) -> Integer.compare(a.size(), b.size()));
+
+        List<Document> result = new ArrayList<>();
+        SortedLongArray shortest = lists[0];
+        outer:
+        for (int i = 0; i < shortest.size(); i++) {
+            long id = shortest.get(i);
+            for (int j = 1; j < lists.length; j++) {
+                if (!lists[j].contains(id)) {
+                    continue outer;
+                }
+            }
+            result.add(documents.get(id));
+        }
+        return result;
+    }
+
+    /**
+     * 文档的BM25F文本得分
+     */
+    private static double textScore(Document document, String keyword, List<String> queryGrams, double[] idf,
+                                    double[] fieldWeights, double[] averageLengths) {
+        if (queryGrams.isEmpty()) {
+            return 0;
+        }
+        double score = 0;
+        for (int i = 0; i < queryGrams.size(); i++) {
+            String gram = queryGrams.get(i);
+            double tf = 0;
+            for (int f = 0; f < document.fields.length && f < fieldWeights.length; f++) {
+                String field = document.fields[f];
+                int count = occurrences(field, gram);
+                if (count > 0) {
+                    double average = f < averageLengths.length ? averageLengths[f] : 1;
+                    tf += fieldWeights[f] * count / (1 - B + B * field.length() / average);
+                }
+            }
+            score += idf[i] * tf * (K1 + 1) / (tf + K1);
+        }
+        if (document.fields.length > 0) {
+            String first = document.fields[0];
+            if (first.equals(keyword)) {
+                score *= 1 + EXACT_BONUS;
+            } else if (first.startsWith(keyword)) {
+                score *= 1 + PREFIX_BONUS;
+            }
+        }
+        return score;
+    }
+
+    private static int occurrences(String text, String gram) {
+        int count = 0;
+        int from = text.indexOf(gram);
+        while (from >= 0) {
+            count++;
+            from = text.indexOf(gram, from + 1);
+        }
+        return count;
+    }
+
+    /**
+     * 累加（sign=1）或扣除（sign=-1）各字段的长度（需持有写锁）
+     */
+    private void addFieldLengths(String[] fields, int sign) {
+        if (fieldLengths.length < fields.length) {
+            fieldLengths = Arrays.copyOf(fieldLengths, fields.length);
+        }
+        for (int i = 0; i < fields.length; i++) {
+            fieldLengths[i] += sign * fields[i].length();
+        }
+    }
+
+    /**
+     * 排在最前的 limit 个文档的ID；匹配数量超过 limit 时用有界大顶堆选择，不对全部匹配结果排序
+     */
+    private static List<Long> sortedIds(List<Document> matched, int limit) {
+        if (matched.size() > limit) {
+            PriorityQueue<Document> heap = new PriorityQueue<>(Math.max(limit, 1) + 1, Collections.reverseOrder(ORDER));
+            for (Document document : matched) {
+                if (heap.size() < limit) {
+                    heap.add(document);
+                } else if (limit > 0 && ORDER.compare(document, heap.peek()) < 0) {
+                    heap.poll();
+                    heap.add(document);
+                }
+            }
+            matched = new ArrayList<>(heap);
+        }
+        matched.sort(ORDER);
+        List<Long> ids = new ArrayList<>(matched.size());
+        for (Document document : matched) {
+            ids.add(document.id);
+        }
+        return ids;
+    }
+
+    /**
+     * 从状态的有序集合中移除文档（需持有写锁）
+     */
+    private void removeOrdered(Document document) {
+        TreeSet<Document> ordered = byStatus.get(document.status);
+        if (ordered != null && ordered.remove(document) && ordered.isEmpty()) {
+            byStatus.remove(document.status);
+        }
+    }
+
+    private static boolean isBefore(Document document, long beforeSortKey, long beforeId) {
+        return document.sortKey < beforeSortKey
+                || (document.sortKey == beforeSortKey && document.id < beforeId);
+    }
+
+    /**
+     * 文档的所有gram：单字 + 相邻两字
+     */
+    private static Set<String> grams(String[] fields) {
+        Set<String> grams = new LinkedHashSet<>();
+        for (String field : fields) {
+            for (int i = 0; i < field.length(); i++) {
+                grams.add(field.substring(i, i + 1));
+                if (i + 1 < field.length()) {
+                    grams.add(field.substring(i, i + 2));
+                }
+            }
+        }
+        return grams;
+    }
+
+    /**
+     * 查询词的gram：单字直接查单字倒排表，多字查所有相邻两字
+     */
+    private static List<String> queryGrams(String term) {
+        if (term.isEmpty()) {
+            return List.of();
+        }
+        if (term.length() == 1) {
+            return List.of(term);
+        }
+        List<String> grams = new ArrayList<>(term.length() - 1);
+        for (int i = 0; i + 1 < term.length(); i++) {
+            grams.add(term.substring(i, i + 2));
+        }
+        return grams;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 归并遍历时一个状态的当前文档和迭代器
+     */
+    private static final class Head {
+        private Document document;
+        private final Iterator<Document> iterator;
+
+        private Head(Document document, Iterator<Document> iterator) {
+            this.document = document;
+            this.iterator = iterator;
+        }
+    }
+
+    /**
+     * 带得分的文档ID
+     */
+    private static final class Scored {
+        private final long id;
+        private final double score;
+
+        private Scored(long id, double score) {
+            this.id = id;
+            this.score = score;
+        }
+    }
+
+    /**
+     * 被索引的文档
+     */
+    private static final class Document {
+        private final long id;
+        private final int status;
+        private final long sortKey;
+        private final double boost;
+        private final String[] fields;
+
+        private Document(long id, int status, long sortKey, double boost, String[] fields) {
+            this.id = id;
+            this.status = status;
+            this.sortKey = sortKey;
+            this.boost = boost;
+            this.fields = fields;
+        }
+
+        private boolean matches(String keyword, String[] fieldTerms) {
+            if (!keyword.isEmpty()) {
+                boolean any = false;
+                for (String field : fields) {
+                    if (field.contains(keyword)) {
+                        any = true;
+                        break;
+                    }
+                }
+                if (!any) {
+                    return false;
+                }
+            }
+            for (int i = 0; i < fieldTerms.length && i < fields.length; i++) {
+                if (!fieldTerms[i].isEmpty() && !fields[i].contains(fieldTerms[i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
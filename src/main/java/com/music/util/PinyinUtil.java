@@ -0,0 +1,184 @@
+package com.music.util;
+
+import net.sourceforge.pinyin4j.PinyinHelper;
+import net.sourceforge.pinyin4j.format.HanyuPinyinCaseType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinOutputFormat;
+import net.sourceforge.pinyin4j.format.HanyuPinyinToneType;
+import net.sourceforge.pinyin4j.format.HanyuPinyinVCharType;
+import net.sourceforge.pinyin4j.format.exception.BadHanyuPinyinOutputFormatCombination;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 拼音工具类
+ * 汉字转为不带声调的小写拼音（ü写作v），多音字默认取第一个读音；单字的读音缓存在内存中。
+ */
+public final class PinyinUtil {
+
+    private static final HanyuPinyinOutputFormat FORMAT = new HanyuPinyinOutputFormat();
+
+    private static final Map<Character, List<String>> CACHE = new ConcurrentHashMap<>();
+
+    static {
+        FORMAT.setCaseType(HanyuPinyinCaseType.LOWERCASE);
+        FORMAT.setToneType(HanyuPinyinToneType.WITHOUT_TONE);
+        FORMAT.setVCharType(HanyuPinyinVCharType.WITH_V);
+    }
+
+    private PinyinUtil() {
+    }
+
+    /**
+     * 判断文本是否包含汉字
+     *
+     * @param text 文本
+     * @return 是否包含汉字
+     */
+    public static boolean containsHan(String text) {
+        if (text == null) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (isHan(text.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 把文本切分为音节：每个汉字一个拼音音节，连续的字母数字作为一个音节，其他字符作为分隔
+     * 例如 "周杰伦 Jay" 切分为 [zhou, jie, lun, jay]
+     *
+     * @param text 文本
+     * @return 音节列表
+     */
+    public static List<String> syllables(String text) {
+        List<String> syllables = new ArrayList<>();
+        if (text == null) {
+            return syllables;
+        }
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c) && !isHan(c)) {
+                word.append(Character.toLowerCase(c));
+                continue;
+            }
+            if (word.length() > 0) {
+                syllables.add(word.toString());
+                word.setLength(0);
+            }
+            if (isHan(c)) {
+                String pinyin = toPinyin(c);
+                if (pinyin != null) {
+                    syllables.add(pinyin);
+                }
+            }
+        }
+        if (word.length() > 0) {
+            syllables.add(word.toString());
+        }
+        return syllables;
+    }
+
+    /**
+     * 切分音节并展开多音字的其他读音，最多返回maxVariants种组合（第一种与 syllables 相同）
+     * 例如 "长城" 返回 [[zhang, cheng], [chang, cheng]]
+     *
+     * @param text        文本
+     * @param maxVariants 最多组合数
+     * @return 音节列表的各种组合
+     */
+    public static List<List<String>> syllableVariants(String text, int maxVariants) {
+        List<List<String>> variants = new ArrayList<>();
+        variants.add(syllables(text));
+        if (text == null) {
+            return variants;
+        }
+        int index = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c) && !isHan(c)) {
+                // 连续的字母数字只占一个音节
+                if (i + 1 == text.length() || !Character.isLetterOrDigit(text.charAt(i + 1))
+                        || isHan(text.charAt(i + 1))) {
+                    index++;
+                }
+                continue;
+            }
+            if (!isHan(c) || toPinyin(c) == null) {
+                continue;
+            }
+            List<String> readings = readings(c);
+            int size = variants.size();
+            for (int r = 1; r < readings.size(); r++) {
+                for (int v = 0; v < size && variants.size() < maxVariants; v++) {
+                    List<String> variant = new ArrayList<>(variants.get(v));
+                    variant.set(index, readings.get(r));
+                    variants.add(variant);
+                }
+            }
+            index++;
+        }
+        return variants;
+    }
+
+    /**
+     * 判断查询词是否可能是拼音（只包含字母、数字和空格）
+     *
+     * @param text 查询词
+     * @return 是否可能是拼音
+     */
+    public static boolean isPinyinQuery(String text) {
+        if (text == null || text.isBlank()) {
+            return false;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        for (int i = 0; i < lower.length(); i++) {
+            char c = lower.charAt(i);
+            if (!(c >= 'a' && c <= 'z') && !(c >= '0' && c <= '9') && c != ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isHan(char c) {
+        return Character.UnicodeScript.of(c) == Character.UnicodeScript.HAN;
+    }
+
+    /**
+     * 汉字的所有读音（去掉声调后去重），不是汉字时返回空列表
+     */
+    private static List<String> readings(char c) {
+        List<String> cached = CACHE.get(c);
+        if (cached != null) {
+            return cached;
+        }
+        List<String> readings = new ArrayList<>();
+        try {
+            String[] values = PinyinHelper.toHanyuPinyinStringArray(c, FORMAT);
+            if (values != null) {
+                for (String value : values) {
+                    if (!value.isEmpty() && !readings.contains(value)) {
+                        readings.add(value);
+                    }
+                }
+            }
+        } catch (BadHanyuPinyinOutputFormatCombination e) {
+            // 输出格式固定，不会出现
+        }
+        CACHE.put(c, readings);
+        return readings;
+    }
+
+    private static String toPinyin(char c) {
+        List<String> readings = readings(c);
+        return readings.isEmpty() ? null : readings.get(0);
+    }
+}
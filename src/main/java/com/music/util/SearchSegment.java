@@ -0,0 +1,341 @@
+package com.music.util;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * 搜索索引快照文件（段文件）
+ * 文件写入完成后不再修改，读取时整体映射到内存（mmap），加载索引时顺序解析，不复制整个文件到堆内。
+ * 文件头记录生成快照时的曲库变更序号（t_music_change 的最大seq）及读取该序号的时间，加载后只需回放该序号之后的变更。
+ * 序号较小但在读取序号之后才提交的变更按读取时间向前留出的安全窗口回放，因此记录的是读取时间而不是文件写完的时间
+ * （全量扫描可能持续数分钟）。
+ * <p>
+ * 文件格式：文件头（魔数、格式版本、变更序号、序号读取时间、文档数、数据区CRC32），
+ * 之后是按音乐ID升序排列的文档（ID、状态、创建时间、播放量、评分人数、平均分、名称、艺术家、专辑）。
+ * 写入时先写临时文件，补写文件头并刷盘后再原子重命名，进程中途退出不会留下不完整的段文件。
+ */
+public final class SearchSegment {
+
+    /** 段文件名前缀和后缀 */
+    public static final String FILE_PREFIX = "segment-";
+    public static final String FILE_SUFFIX = ".seg";
+
+    /** 魔数 "MSEG" */
+    private static final int MAGIC = 0x4D534547;
+
+    /** 版本2起文件头记录序号读取时间（版本1记录的是写完文件的时间，不再加载） */
+    private static final int FORMAT_VERSION = 2;
+
+    /** 文件头：魔数(4) + 格式版本(4) + 变更序号(8) + 序号读取时间(8) + 文档数(4) + 数据区CRC32(8) */
+    private static final int HEADER_SIZE = 36;
+
+    /** 创建时间为空时写入的值 */
+    private static final long NULL_TIME = Long.MIN_VALUE;
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+    private final long sequence;
+    private final long sequenceTime;
+    private final int size;
+
+    private SearchSegment(Path path, MappedByteBuffer buffer, long sequence, long sequenceTime, int size) {
+        this.path = path;
+        this.buffer = buffer;
+        this.sequence = sequence;
+        this.sequenceTime = sequenceTime;
+        this.size = size;
+    }
+
+    /**
+     * 映射并校验段文件
+     *
+     * @param path 段文件路径
+     * @return 段文件
+     * @throws IOException 文件不存在、格式不正确或校验和不一致
+     */
+    public static SearchSegment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE || fileSize > Integer.MAX_VALUE) {
+                throw new IOException("段文件大小不正确: " + fileSize);
+            }
+            // 映射在通道关闭后仍然有效
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+                throw new IOException("段文件格式不正确");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate().position(HEADER_SIZE));
+            if (crc.getValue() != buffer.getLong(28)) {
+                throw new IOException("段文件校验和不一致");
+            }
+            return new SearchSegment(path, buffer, buffer.getLong(8), buffer.getLong(16), buffer.getInt(24));
+        }
+    }
+
+    /**
+     * 创建新的段文件
+     *
+     * @param dir      段文件目录
+     * @param sequence     快照包含的变更序号
+     * @param sequenceTime 读取变更序号的时间（毫秒时间戳，在读取序号之前取得）
+     * @return 写入器，add 全部文档后调用 commit
+     * @throws IOException 目录或临时文件创建失败
+     */
+    public static Writer create(Path dir, long sequence, long sequenceTime) throws IOException {
+        return new Writer(dir, sequence, sequenceTime);
+    }
+
+    /**
+     * 段文件名（按变更序号、序号读取时间排序即为新旧顺序）
+     */
+    public static String fileName(long sequence, long sequenceTime) {
+        return String.format("%s%020d-%013d%s", FILE_PREFIX, sequence, sequenceTime, FILE_SUFFIX);
+    }
+
+    /**
+     * 按音乐ID升序遍历文档
+     *
+     * @param consumer 文档处理器
+     */
+    public void forEach(Consumer<Entry> consumer) {
+        ByteBuffer data = buffer.duplicate().position(HEADER_SIZE);
+        for (int i = 0; i < size; i++) {
+            long id = data.getLong();
+            int status = data.getInt();
+            long time = data.getLong();
+            long playCount = data.getLong();
+            int ratingCount = data.getInt();
+            double ratingAverage = data.getDouble();
+            String musicName = readString(data);
+            String artist = readString(data);
+            String album = readString(data);
+            consumer.accept(new Entry(id, status, time != NULL_TIME ? time : null, playCount,
+                    ratingCount, ratingAverage, musicName, artist, album));
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * 快照包含的变更序号
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * 读取变更序号的时间（毫秒时间戳），回放变更的安全窗口以此为准
+     */
+    public long getSequenceTime() {
+        return sequenceTime;
+    }
+
+    /**
+     * 文档数
+     */
+    public int size() {
+        return size;
+    }
+
+    private static String readString(ByteBuffer data) {
+        int length = data.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 段文件中的一个文档
+     */
+    public static final class Entry {
+        private final long id;
+        private final int status;
+        private final Long createTime;
+        private final long playCount;
+        private final int ratingCount;
+        private final double ratingAverage;
+        private final String musicName;
+        private final String artist;
+        private final String album;
+
+        public Entry(long id, int status, Long createTime, long playCount, int ratingCount, double ratingAverage,
+                     String musicName, String artist, String album) {
+            this.id = id;
+            this.status = status;
+            this.createTime = createTime;
+            this.playCount = playCount;
+            this.ratingCount = ratingCount;
+            this.ratingAverage = ratingAverage;
+            this.musicName = musicName;
+            this.artist = artist;
+            this.album = album;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public int getStatus() {
+            return status;
+        }
+
+        /**
+         * 创建时间（毫秒时间戳，可能为null）
+         */
+        public Long getCreateTime() {
+            return createTime;
+        }
+
+        public long getPlayCount() {
+            return playCount;
+        }
+
+        public int getRatingCount() {
+            return ratingCount;
+        }
+
+        public double getRatingAverage() {
+            return ratingAverage;
+        }
+
+        public String getMusicName() {
+            return musicName;
+        }
+
+        public String getArtist() {
+            return artist;
+        }
+
+        public String getAlbum() {
+            return album;
+        }
+    }
+
+    /**
+     * 段文件写入器（非线程安全）
+     * 写入失败时记录第一个异常并忽略之后的文档，在 commit 时抛出，调用方不必在遍历数据的回调中处理IO异常。
+     */
+    public static final class Writer implements Closeable {
+        private final Path dir;
+        private final Path temp;
+        private final long sequence;
+        private final long sequenceTime;
+        private final FileChannel channel;
+        private final CRC32 crc = new CRC32();
+        private final DataOutputStream out;
+        private int count;
+        private IOException failure;
+        private boolean closed;
+
+        private Writer(Path dir, long sequence, long sequenceTime) throws IOException {
+            Files.createDirectories(dir);
+            this.dir = dir;
+            this.sequence = sequence;
+            this.sequenceTime = sequenceTime;
+            this.temp = Files.createTempFile(dir, FILE_PREFIX, ".tmp");
+            this.channel = FileChannel.open(temp, StandardOpenOption.WRITE);
+            channel.position(HEADER_SIZE);
+            this.out = new DataOutputStream(new BufferedOutputStream(
+                    new CheckedOutputStream(Channels.newOutputStream(channel), crc), 1 << 16));
+        }
+
+        /**
+         * 追加文档（调用方保证按音乐ID升序）
+         */
+        public void add(Entry entry) {
+            if (failure != null) {
+                return;
+            }
+            try {
+                out.writeLong(entry.id);
+                out.writeInt(entry.status);
+                out.writeLong(entry.createTime != null ? entry.createTime : NULL_TIME);
+                out.writeLong(entry.playCount);
+                out.writeInt(entry.ratingCount);
+                out.writeDouble(entry.ratingAverage);
+                writeString(entry.musicName);
+                writeString(entry.artist);
+                writeString(entry.album);
+                count++;
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        /**
+         * 补写文件头、刷盘并重命名为正式的段文件
+         *
+         * @return 段文件路径
+         * @throws IOException 写入过程中出现过异常，或刷盘、重命名失败
+         */
+        public Path commit() throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+            out.flush();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC)
+                    .putInt(FORMAT_VERSION)
+                    .putLong(sequence)
+                    .putLong(sequenceTime)
+                    .putInt(count)
+                    .putLong(crc.getValue())
+                    .flip();
+            while (header.hasRemaining()) {
+                channel.write(header, HEADER_SIZE - header.remaining());
+            }
+            channel.force(true);
+            closed = true;
+            out.close();
+            Path target = dir.resolve(fileName(sequence, sequenceTime));
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            return target;
+        }
+
+        /**
+         * 未提交时删除临时文件
+         */
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                out.close();
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        }
+
+        private void writeString(String value) throws IOException {
+            if (value == null) {
+                out.writeInt(-1);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+    }
+}
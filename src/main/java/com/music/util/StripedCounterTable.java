@@ -0,0 +1,312 @@
+package com.music.util;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 分段计数表（线程安全）
+ * 按long类型的key累加计数，同时可为每个key记录成员（如播放音乐的用户ID，段内去重）。
+ * 表分为若干段，每段是一个独立加锁的开放寻址哈希表（long数组，不装箱）；线程按线程ID选择起始段，
+ * 该段正被其他线程占用时依次尝试后面的段，都被占用时才阻塞等待，与 LongAdder 的分段思路相同。
+ * 同一个key可能分布在多个段中，取出时合并。累加时除扩容外不分配对象，
+ * 取出（{@link #drain()}）时各段清空但保留数组容量，下一轮累加直接复用。
+ */
+public class StripedCounterTable {
+
+    /** 不记录成员（如游客播放） */
+    public static final long NO_MEMBER = Long.MIN_VALUE;
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private final Stripe[] stripes;
+
+    private final int mask;
+
+    /**
+     * @param stripes         段数（向上取整为2的幂）
+     * @param initialCapacity 每段的初始容量
+     */
+    public StripedCounterTable(int stripes, int initialCapacity) {
+        int n = Integer.highestOneBit(Math.max(1, stripes - 1) << 1);
+        this.stripes = new Stripe[n];
+        this.mask = n - 1;
+        int capacity = Integer.highestOneBit(Math.max(2, initialCapacity - 1) << 1);
+        for (int i = 0; i < n; i++) {
+            this.stripes[i] = new Stripe(capacity);
+        }
+    }
+
+    /**
+     * 累加计数并记录成员
+     *
+     * @param key    key（不能为 Long.MIN_VALUE）
+     * @param delta  增量（0表示只记录成员）
+     * @param member 成员，{@link #NO_MEMBER} 表示不记录
+     */
+    public void add(long key, long delta, long member) {
+        int start = (int) mix(Thread.currentThread().getId()) & mask;
+        for (int i = 0; i <= mask; i++) {
+            Stripe stripe = stripes[(start + i) & mask];
+            if (stripe.lock.tryLock()) {
+                try {
+                    stripe.add(key, delta, member);
+                } finally {
+                    stripe.lock.unlock();
+                }
+                return;
+            }
+        }
+        Stripe stripe = stripes[start];
+        stripe.lock.lock();
+        try {
+            stripe.add(key, delta, member);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * 取出所有计数并清空（各段依次加锁，取出期间其他段仍可累加）
+     *
+     * @return 合并后的计数和成员
+     */
+    public Snapshot drain() {
+        Snapshot snapshot = new Snapshot();
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                stripe.drainTo(snapshot);
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return snapshot;
+    }
+
+    private static long mix(long x) {
+        x = (x ^ (x >>> 33)) * 0xff51afd7ed558ccdL;
+        x = (x ^ (x >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return x ^ (x >>> 33);
+    }
+
+    /**
+     * 一段：key -> 计数 的哈希表，加上 (key, 成员) 的去重集合
+     */
+    private static final class Stripe {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private long[] keys;
+        private long[] counts;
+        private int size;
+
+        private long[] pairKeys;
+        private long[] pairMembers;
+        private int pairSize;
+
+        Stripe(int capacity) {
+            keys = newTable(capacity);
+            counts = new long[capacity];
+            pairKeys = newTable(capacity);
+            pairMembers = new long[capacity];
+        }
+
+        void add(long key, long delta, long member) {
+            if (delta != 0) {
+                if ((size + 1) * 4 > keys.length * 3) {
+                    resizeCounts();
+                }
+                int slot = slot(keys, key);
+                if (keys[slot] == EMPTY) {
+                    keys[slot] = key;
+                    size++;
+                }
+                counts[slot] += delta;
+            }
+            if (member != NO_MEMBER) {
+                if ((pairSize + 1) * 4 > pairKeys.length * 3) {
+                    resizePairs();
+                }
+                int m = pairKeys.length - 1;
+                int slot = (int) mix(key * 31 + member) & m;
+                while (pairKeys[slot] != EMPTY) {
+                    if (pairKeys[slot] == key && pairMembers[slot] == member) {
+                        return;
+                    }
+                    slot = (slot + 1) & m;
+                }
+                pairKeys[slot] = key;
+                pairMembers[slot] = member;
+                pairSize++;
+            }
+        }
+
+        void drainTo(Snapshot snapshot) {
+            if (size > 0) {
+                for (int i = 0; i < keys.length; i++) {
+                    if (keys[i] != EMPTY) {
+                        snapshot.addCount(keys[i], counts[i]);
+                    }
+                }
+                Arrays.fill(keys, EMPTY);
+                Arrays.fill(counts, 0);
+                size = 0;
+            }
+            if (pairSize > 0) {
+                for (int i = 0; i < pairKeys.length; i++) {
+                    if (pairKeys[i] != EMPTY) {
+                        snapshot.addMember(pairKeys[i], pairMembers[i]);
+                    }
+                }
+                Arrays.fill(pairKeys, EMPTY);
+                pairSize = 0;
+            }
+        }
+
+        private void resizeCounts() {
+            long[] oldKeys = keys;
+            long[] oldCounts = counts;
+            keys = newTable(oldKeys.length << 1);
+            counts = new long[oldKeys.length << 1];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = slot(keys, oldKeys[i]);
+                    keys[slot] = oldKeys[i];
+                    counts[slot] = oldCounts[i];
+                }
+            }
+        }
+
+        private void resizePairs() {
+            long[] oldKeys = pairKeys;
+            long[] oldMembers = pairMembers;
+            pairKeys = newTable(oldKeys.length << 1);
+            pairMembers = new long[oldKeys.length << 1];
+            int m = pairKeys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int slot = (int) mix(oldKeys[i] * 31 + oldMembers[i]) & m;
+                    while (pairKeys[slot] != EMPTY) {
+                        slot = (slot + 1) & m;
+                    }
+                    pairKeys[slot] = oldKeys[i];
+                    pairMembers[slot] = oldMembers[i];
+                }
+            }
+        }
+
+        private static int slot(long[] table, long key) {
+            int m = table.length - 1;
+            int slot = (int) mix(key) & m;
+            while (table[slot] != EMPTY && table[slot] != key) {
+                slot = (slot + 1) & m;
+            }
+            return slot;
+        }
+
+        private static long[] newTable(int capacity) {
+            long[] table = new long[capacity];
+            Arrays.fill(table, EMPTY);
+            return table;
+        }
+    }
+
+    /**
+     * 取出的计数：每个key一项，包含合并后的计数和成员（段内已去重，同一成员出现在多个段中时会重复）
+     */
+    public static final class Snapshot {
+
+        private long[] keys = new long[16];
+        private long[] counts = new long[16];
+        private long[][] members = new long[16][];
+        private int[] memberCounts = new int[16];
+        private int size;
+
+        /** key -> 下标，仅在取出时使用 */
+        private long[] indexKeys = newIndex(32);
+        private int[] indexSlots = new int[32];
+
+        public int size() {
+            return size;
+        }
+
+        public long getKey(int i) {
+            return keys[i];
+        }
+
+        public long getCount(int i) {
+            return counts[i];
+        }
+
+        public int getMemberCount(int i) {
+            return memberCounts[i];
+        }
+
+        public long getMember(int i, int j) {
+            return members[i][j];
+        }
+
+        void addCount(long key, long delta) {
+            int i = indexOf(key);
+            counts[i] += delta;
+        }
+
+        void addMember(long key, long member) {
+            int i = indexOf(key);
+            long[] list = members[i];
+            if (list == null) {
+                list = members[i] = new long[4];
+            } else if (memberCounts[i] == list.length) {
+                list = members[i] = Arrays.copyOf(list, list.length << 1);
+            }
+            list[memberCounts[i]++] = member;
+        }
+
+        private int indexOf(long key) {
+            int m = indexKeys.length - 1;
+            int slot = (int) mix(key) & m;
+            while (indexKeys[slot] != EMPTY) {
+                if (indexKeys[slot] == key) {
+                    return indexSlots[slot];
+                }
+                slot = (slot + 1) & m;
+            }
+            if (size == keys.length) {
+                int capacity = size << 1;
+                keys = Arrays.copyOf(keys, capacity);
+                counts = Arrays.copyOf(counts, capacity);
+                members = Arrays.copyOf(members, capacity);
+                memberCounts = Arrays.copyOf(memberCounts, capacity);
+            }
+            int i = size++;
+            keys[i] = key;
+            if (size * 2 > indexKeys.length) {
+                rehash();
+            } else {
+                indexKeys[slot] = key;
+                indexSlots[slot] = i;
+            }
+            return i;
+        }
+
+        private void rehash() {
+            indexKeys = newIndex(indexKeys.length << 1);
+            indexSlots = new int[indexKeys.length];
+            int m = indexKeys.length - 1;
+            for (int i = 0; i < size; i++) {
+                int slot = (int) mix(keys[i]) & m;
+                while (indexKeys[slot] != EMPTY) {
+                    slot = (slot + 1) & m;
+                }
+                indexKeys[slot] = keys[i];
+                indexSlots[slot] = i;
+            }
+        }
+
+        private static long[] newIndex(int capacity) {
+            long[] table = new long[capacity];
+            Arrays.fill(table, EMPTY);
+            return table;
+        }
+    }
+}
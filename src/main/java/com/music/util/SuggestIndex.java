@@ -0,0 +1,601 @@
+package com.music.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 输入联想索引（线程安全）
+ * 名称、艺术家、专辑作为联想词，按权重（播放量之和）排序；联想词的key放入压缩字典树（radix tree），
+ * 每个节点缓存子树中权重最高的topK个联想词，查询只需沿前缀走到对应节点，耗时与目录规模无关。
+ * key包括小写的原文、英文中每个单词开头的后缀（"ed sheeran" 也能由 "sheeran" 联想到），
+ * 含汉字时还包括全拼和首字母（"zhoujie"、"zjl" 都能联想到 "周杰伦"）。
+ * 联想词的权重增加时只需把它插入路径上各节点的topK；权重降低或被删除时，
+ * 只重新计算topK中包含它的节点（由深到浅，从子节点的topK合并）。
+ */
+public class SuggestIndex {
+
+    /** 联想词类型：音乐名称 */
+    public static final String TYPE_MUSIC = "music";
+
+    /** 联想词类型：艺术家 */
+    public static final String TYPE_ARTIST = "artist";
+
+    /** 联想词类型：专辑 */
+    public static final String TYPE_ALBUM = "album";
+
+    /** key的最大长度，更长的部分不参与联想 */
+    private static final int MAX_KEY_LENGTH = 24;
+
+    /** 英文联想词最多从前几个单词处生成key */
+    private static final int MAX_WORD_STARTS = 4;
+
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    private static final Node[] NO_CHILDREN = new Node[0];
+
+    /** 权重倒序，权重相同时短的词在前 */
+    private static final Comparator<Entry> ORDER = Comparator.comparingLong((Entry e) -> -e.weight)
+            .thenComparingInt(e -> e.text.length())
+            .thenComparing(e -> e.text)
+            .thenComparing(e -> e.type);
+
+    private final Node root = new Node("");
+
+    /** 类型 + 小写文本 -> 联想词 */
+    private final Map<String, Entry> entries = new HashMap<>();
+
+    /** 文档ID -> 文档，更新和删除时据此扣除原有的权重 */
+    private final Map<Long, Document> documents = new HashMap<>();
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final int topK;
+
+    /**
+     * 构造函数
+     *
+     * @param topK 每个节点缓存的联想词数量（即单次查询最多返回的数量）
+     */
+    public SuggestIndex(int topK) {
+        this.topK = topK;
+    }
+
+    /**
+     * 添加或替换文档
+     *
+     * @param id     文档ID
+     * @param weight 权重（播放量）
+     * @param name   名称
+     * @param artist 艺术家
+     * @param album  专辑
+     */
+    public void put(long id, long weight, String name, String artist, String album) {
+        Document document = new Document(Math.max(weight, 0), name, artist, album);
+        lock.writeLock().lock();
+        try {
+            Document old = documents.put(id, document);
+            if (old != null && old.sameFields(document)) {
+                // 字段未变时只调整权重，不必删除再插入key
+                adjust(old, document.weight - old.weight);
+                return;
+            }
+            if (old != null) {
+                contribute(old, -1);
+            }
+            contribute(document, 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 删除文档
+     *
+     * @param id 文档ID
+     */
+    public void remove(long id) {
+        lock.writeLock().lock();
+        try {
+            Document old = documents.remove(id);
+            if (old != null) {
+                contribute(old, -1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 查询前缀对应的联想词
+     *
+     * @param prefix 前缀
+     * @param limit  最多返回数量（不超过topK）
+     * @return 按权重倒序排列的联想词
+     */
+    public List<Suggestion> suggest(String prefix, int limit) {
+        List<Suggestion> result = new ArrayList<>();
+        String key = normalize(prefix);
+        if (key.isEmpty() || limit <= 0) {
+            return result;
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            key = key.substring(0, MAX_KEY_LENGTH);
+        }
+
+        lock.readLock().lock();
+        try {
+            Node node = root;
+            int i = 0;
+            while (i < key.length()) {
+                Node child = node.child(key.charAt(i));
+                if (child == null) {
+                    return result;
+                }
+                int common = commonPrefix(child.label, key, i);
+                // 前缀在边的中间结束时，该子节点的子树就是所有匹配的key
+                if (common < child.label.length() && i + common < key.length()) {
+                    return result;
+                }
+                node = child;
+                i += common;
+            }
+            for (int j = 0; j < node.top.length && j < limit; j++) {
+                Entry entry = node.top[j];
+                result.add(new Suggestion(entry.text, entry.type, entry.weight));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return result;
+    }
+
+    /**
+     * 联想词数量
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 文档的各字段计入（sign=1）或扣除（sign=-1）对应联想词的权重（需持有写锁）
+     */
+    private void contribute(Document document, int sign) {
+        contribute(TYPE_MUSIC, document.name, document.weight, sign);
+        contribute(TYPE_ARTIST, document.artist, document.weight, sign);
+        contribute(TYPE_ALBUM, document.album, document.weight, sign);
+    }
+
+    private void contribute(String type, String text, long weight, int sign) {
+        if (text == null || text.isBlank()) {
+            return;
+        }
+        String display = text.trim();
+        String id = type + '\u0000' + display.toLowerCase(Locale.ROOT);
+        Entry entry = entries.get(id);
+        if (sign > 0) {
+            if (entry == null) {
+                entry = new Entry(display, type, keysOf(display));
+                entries.put(id, entry);
+                for (String key : entry.keys) {
+                    insert(key, entry);
+                }
+            }
+            entry.refs++;
+            entry.weight += weight;
+            increased(entry);
+            return;
+        }
+        if (entry == null) {
+            return;
+        }
+        entry.refs--;
+        entry.weight -= weight;
+        if (entry.refs > 0) {
+            if (weight > 0) {
+                decreased(entry, false);
+            }
+            return;
+        }
+        entries.remove(id);
+        decreased(entry, true);
+    }
+
+    /**
+     * 字段未变的文档调整各联想词的权重（需持有写锁）
+     */
+    private void adjust(Document document, long delta) {
+        if (delta == 0) {
+            return;
+        }
+        for (String[] field : new String[][]{{TYPE_MUSIC, document.name}, {TYPE_ARTIST, document.artist},
+                {TYPE_ALBUM, document.album}}) {
+            if (field[1] == null || field[1].isBlank()) {
+                continue;
+            }
+            Entry entry = entries.get(field[0] + '\u0000' + field[1].trim().toLowerCase(Locale.ROOT));
+            if (entry == null) {
+                continue;
+            }
+            entry.weight += delta;
+            if (delta > 0) {
+                increased(entry);
+            } else {
+                decreased(entry, false);
+            }
+        }
+    }
+
+    /**
+     * 联想词的key：小写原文、英文单词开头的后缀；含汉字时加上全拼和首字母
+     */
+    private static Set<String> keysOf(String text) {
+        Set<String> keys = new LinkedHashSet<>();
+        String normalized = normalize(text);
+        addKey(keys, normalized);
+        if (PinyinUtil.containsHan(normalized)) {
+            List<String> syllables = PinyinUtil.syllables(normalized);
+            StringBuilder initials = new StringBuilder();
+            for (String syllable : syllables) {
+                initials.append(syllable.charAt(0));
+            }
+            addKey(keys, String.join("", syllables));
+            if (initials.length() >= 2) {
+                addKey(keys, initials.toString());
+            }
+            return keys;
+        }
+        int starts = 0;
+        for (int i = 1; i < normalized.length() && starts < MAX_WORD_STARTS; i++) {
+            if (normalized.charAt(i - 1) == ' ' && normalized.charAt(i) != ' ') {
+                addKey(keys, normalized.substring(i));
+                starts++;
+            }
+        }
+        return keys;
+    }
+
+    private static void addKey(Set<String> keys, String key) {
+        if (!key.isEmpty()) {
+            keys.add(key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key);
+        }
+    }
+
+    /**
+     * 插入key（需持有写锁），topK在之后的 increased 中更新
+     */
+    private void insert(String key, Entry entry) {
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            Node child = node.child(key.charAt(i));
+            if (child == null) {
+                child = new Node(key.substring(i));
+                node.addChild(child);
+                node = child;
+                break;
+            }
+            int common = commonPrefix(child.label, key, i);
+            if (common < child.label.length()) {
+                // 在边的中间分裂出新节点，新节点的子树与原子节点相同，topK也相同
+                Node middle = new Node(child.label.substring(0, common));
+                middle.top = child.top;
+                node.replaceChild(middle);
+                child.label = child.label.substring(common);
+                middle.addChild(child);
+                child = middle;
+            }
+            node = child;
+            i += common;
+        }
+        if (!contains(node.entries, entry)) {
+            node.entries = append(node.entries, entry);
+        }
+    }
+
+    /**
+     * 权重增加或新增联想词后，把它放入各条key路径上节点的topK（需持有写锁）
+     */
+    private void increased(Entry entry) {
+        for (String key : entry.keys) {
+            for (Node node : path(key)) {
+                offer(node, entry);
+            }
+        }
+    }
+
+    /**
+     * 权重降低或联想词被删除后，由深到浅重新计算topK中包含它的节点（需持有写锁）
+     * 节点的topK只依赖自身的联想词和子节点的topK，按深度倒序处理可保证子节点先更新
+     */
+    private void decreased(Entry entry, boolean removed) {
+        Map<Node, Integer> affected = new IdentityHashMap<>();
+        for (String key : entry.keys) {
+            int depth = 0;
+            List<Node> path = path(key);
+            for (Node node : path) {
+                depth += node.label.length();
+                affected.put(node, depth);
+            }
+            if (removed && !path.isEmpty()) {
+                Node terminal = path.get(path.size() - 1);
+                terminal.entries = without(terminal.entries, entry);
+            }
+        }
+        List<Map.Entry<Node, Integer>> nodes = new ArrayList<>(affected.entrySet());
+        nodes.sort((a, b) -> Integer.compare(b.getValue(), a.getValue()));
+        for (Map.Entry<Node, Integer> item : nodes) {
+            if (contains(item.getKey().top, entry)) {
+                recompute(item.getKey());
+            }
+        }
+        if (removed) {
+            for (String key : entry.keys) {
+                prune(key);
+            }
+        }
+    }
+
+    /**
+     * 根节点到key终点的路径（不含根节点；key不存在时返回已走过的部分）
+     */
+    private List<Node> path(String key) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            Node child = node.child(key.charAt(i));
+            if (child == null || !key.startsWith(child.label, i)) {
+                break;
+            }
+            path.add(child);
+            node = child;
+            i += child.label.length();
+        }
+        return path;
+    }
+
+    /**
+     * 删除key路径上已经没有联想词的节点，只剩一个子节点的节点与子节点合并（需持有写锁）
+     */
+    private void prune(String key) {
+        List<Node> path = path(key);
+        for (int i = path.size() - 1; i >= 0; i--) {
+            Node node = path.get(i);
+            Node parent = i > 0 ? path.get(i - 1) : root;
+            if (node.entries.length > 0) {
+                return;
+            }
+            if (node.children.length == 0) {
+                parent.removeChild(node);
+            } else if (node.children.length == 1) {
+                Node child = node.children[0];
+                child.label = node.label + child.label;
+                parent.replaceChild(child);
+                return;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 把联想词放入节点的topK（已在其中时重新排序）
+     */
+    private void offer(Node node, Entry entry) {
+        Entry[] top = node.top;
+        if (contains(top, entry)) {
+            top = top.clone();
+            Arrays.sort(top, ORDER);
+            node.top = top;
+            return;
+        }
+        if (top.length >= topK && ORDER.compare(entry, top[top.length - 1]) >= 0) {
+            return;
+        }
+        Entry[] next = Arrays.copyOf(top, Math.min(top.length + 1, topK));
+        int position = top.length;
+        while (position > 0 && ORDER.compare(entry, top[position - 1]) < 0) {
+            position--;
+        }
+        System.arraycopy(top, position, next, position + 1, next.length - position - 1);
+        next[position] = entry;
+        node.top = next;
+    }
+
+    /**
+     * 由节点自身的联想词和子节点的topK重新计算topK
+     */
+    private void recompute(Node node) {
+        Set<Entry> candidates = new LinkedHashSet<>(Arrays.asList(node.entries));
+        for (Node child : node.children) {
+            candidates.addAll(Arrays.asList(child.top));
+        }
+        Entry[] top = candidates.toArray(NO_ENTRIES);
+        Arrays.sort(top, ORDER);
+        node.top = top.length > topK ? Arrays.copyOf(top, topK) : top;
+    }
+
+    private static int commonPrefix(String label, String key, int offset) {
+        int n = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < n && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean contains(Entry[] array, Entry entry) {
+        for (Entry item : array) {
+            if (item == entry) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Entry[] append(Entry[] array, Entry entry) {
+        Entry[] next = Arrays.copyOf(array, array.length + 1);
+        next[array.length] = entry;
+        return next;
+    }
+
+    private static Entry[] without(Entry[] array, Entry entry) {
+        if (!contains(array, entry)) {
+            return array;
+        }
+        Entry[] next = new Entry[array.length - 1];
+        int n = 0;
+        for (Entry item : array) {
+            if (item != entry) {
+                next[n++] = item;
+            }
+        }
+        return next;
+    }
+
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * 联想结果
+     */
+    public static final class Suggestion {
+        private final String text;
+        private final String type;
+        private final long weight;
+
+        private Suggestion(String text, String type, long weight) {
+            this.text = text;
+            this.type = type;
+            this.weight = weight;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public String getType() {
+            return type;
+        }
+
+        public long getWeight() {
+            return weight;
+        }
+    }
+
+    /**
+     * 联想词（同类型、同文本的字段合并为一个，权重为各文档权重之和）
+     */
+    private static final class Entry {
+        private final String text;
+        private final String type;
+        private final Set<String> keys;
+        private long weight;
+        private int refs;
+
+        private Entry(String text, String type, Set<String> keys) {
+            this.text = text;
+            this.type = type;
+            this.keys = keys;
+        }
+    }
+
+    /**
+     * 被索引的文档
+     */
+    private static final class Document {
+        private final long weight;
+        private final String name;
+        private final String artist;
+        private final String album;
+
+        private Document(long weight, String name, String artist, String album) {
+            this.weight = weight;
+            this.name = name;
+            this.artist = artist;
+            this.album = album;
+        }
+
+        private boolean sameFields(Document other) {
+            return Objects.equals(name, other.name)
+                    && Objects.equals(artist, other.artist)
+                    && Objects.equals(album, other.album);
+        }
+    }
+
+    /**
+     * 字典树节点，子节点按边的首字符有序保存
+     */
+    private static final class Node {
+        private String label;
+        private Node[] children = NO_CHILDREN;
+        private Entry[] entries = NO_ENTRIES;
+        private Entry[] top = NO_ENTRIES;
+
+        private Node(String label) {
+            this.label = label;
+        }
+
+        private Node child(char c) {
+            int index = indexOf(c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        private void addChild(Node child) {
+            int index = -indexOf(child.label.charAt(0)) - 1;
+            Node[] next = new Node[children.length + 1];
+            System.arraycopy(children, 0, next, 0, index);
+            System.arraycopy(children, index, next, index + 1, children.length - index);
+            next[index] = child;
+            children = next;
+        }
+
+        /**
+         * 替换首字符相同的子节点
+         */
+        private void replaceChild(Node child) {
+            children[indexOf(child.label.charAt(0))] = child;
+        }
+
+        private void removeChild(Node child) {
+            int index = indexOf(child.label.charAt(0));
+            Node[] next = new Node[children.length - 1];
+            System.arraycopy(children, 0, next, 0, index);
+            System.arraycopy(children, index + 1, next, index, children.length - index - 1);
+            children = next;
+        }
+
+        private int indexOf(char c) {
+            int lo = 0;
+            int hi = children.length - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                char value = children[mid].label.charAt(0);
+                if (value < c) {
+                    lo = mid + 1;
+                } else if (value > c) {
+                    hi = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(lo + 1);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.music.vo;
+
+import lombok.Data;
+
+@Data
+public class FacetVO {
+    private String value;   // 取值（艺术家、专辑名称或状态码）
+    private Integer count;  // 搜索结果中该取值的音乐数量
+}
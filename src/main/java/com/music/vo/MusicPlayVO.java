@@ -0,0 +1,16 @@
+package com.music.vo;
+
+import lombok.Data;
+
+/**
+ * 音乐播放信息（播放接口的缓存内容，不直接返回给前端）
+ */
+@Data
+public class MusicPlayVO {
+    private Integer status;
+    private String filePath;
+    private Integer duration;
+    private String musicName;
+    private String artist;
+    private String coverUrl;
+}
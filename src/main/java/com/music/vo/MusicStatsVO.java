@@ -9,4 +9,5 @@ public class MusicStatsVO {
     private Long favoriteCount;  // 收藏量 (来自 t_favorite)
     private Double avgScore;     // 平均评分
     private Integer totalRatings;// 评分人数
+    private Long uniqueListeners;// 独立听众数 (来自Redis HyperLogLog，估算值)
 }
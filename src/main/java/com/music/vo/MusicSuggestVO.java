@@ -0,0 +1,9 @@
+package com.music.vo;
+
+import lombok.Data;
+
+@Data
+public class MusicSuggestVO {
+    private String text;    // 联想词（原文）
+    private String type;    // 类型：music / artist / album
+}
@@ -0,0 +1,72 @@
+package com.music.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.music.service.CatalogVersionService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+
+class AnonymousResponseCacheFilterTests {
+
+    private static final String BODY = "{\"code\":200,\"message\":\"success\",\"data\":{\"id\":1,\"musicName\":\""
+            + "晴天".repeat(100) + "\"}}";
+
+    @Test
+    void cachedResponseKeepsBothVaryFields() throws Exception {
+        AnonymousResponseCacheFilter filter = new AnonymousResponseCacheFilter(
+                mock(CatalogVersionService.class), new ObjectMapper(), 100, 60);
+        ReflectionTestUtils.setField(filter, "enabled", true);
+
+        AtomicInteger calls = new AtomicInteger();
+        // 模拟控制器：用 setHeader 写入 Vary（最坏情况，会覆盖过滤器先写入的值）
+        FilterChain controller = (request, response) -> {
+            calls.incrementAndGet();
+            HttpServletResponse http = (HttpServletResponse) response;
+            http.setHeader(HttpHeaders.VARY, HttpHeaders.AUTHORIZATION);
+            http.setHeader(HttpHeaders.ETAG, "\"v1\"");
+            http.setHeader(HttpHeaders.CACHE_CONTROL, "public, max-age=60");
+            response.setContentType("application/json;charset=UTF-8");
+            response.getOutputStream().write(BODY.getBytes(StandardCharsets.UTF_8));
+        };
+
+        MockHttpServletResponse miss = new MockHttpServletResponse();
+        filter.doFilter(request(), miss, controller);
+        assertVary(miss);
+
+        MockHttpServletResponse hit = new MockHttpServletResponse();
+        filter.doFilter(request(), hit, controller);
+        assertEquals(1, calls.get());
+        assertEquals("gzip", hit.getHeader(HttpHeaders.CONTENT_ENCODING));
+        assertEquals("public, max-age=60", hit.getHeader(HttpHeaders.CACHE_CONTROL));
+        assertVary(hit);
+    }
+
+    private static MockHttpServletRequest request() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/music/detail/1");
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+        return request;
+    }
+
+    private static void assertVary(MockHttpServletResponse response) {
+        List<String> fields = response.getHeaders(HttpHeaders.VARY).stream()
+                .flatMap(value -> Arrays.stream(value.split(",")))
+                .map(String::trim)
+                .toList();
+        assertTrue(fields.contains(HttpHeaders.ACCEPT_ENCODING), "Vary=" + fields);
+        assertTrue(fields.contains(HttpHeaders.AUTHORIZATION), "Vary=" + fields);
+        assertEquals(fields.size(), fields.stream().distinct().count(), "Vary=" + fields);
+    }
+}
@@ -0,0 +1,154 @@
+package com.music.config;
+
+import com.music.common.PageResult;
+import com.music.vo.MusicDetailVO;
+import com.music.vo.MusicVO;
+import com.music.vo.UserVO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactRedisSerializerTests {
+
+    /** 防止基准循环被JIT优化掉 */
+    private static volatile long blackhole;
+
+    /**
+     * 引入Smile之前（GenericJackson2JsonRedisSerializer + 带类型信息的ObjectMapper）写入的 musicDetail(2L)，
+     * 从当时的序列化器原样截取，不随当前的ObjectMapper配置变化
+     */
+    private static final String LEGACY_JSON = "{\"@class\":\"com.music.vo.MusicDetailVO\",\"id\":[\"java.lang.Long\",2],"
+            + "\"musicName\":\"晴天\",\"artist\":\"周杰伦\",\"album\":\"叶惠美\",\"duration\":269,"
+            + "\"coverUrl\":\"http://localhost:8080/files/images/3f2a9c1e-cover.jpg\",\"status\":1,"
+            + "\"description\":\"2003年发行的专辑《叶惠美》中的歌曲\",\"playCount\":[\"java.lang.Long\",123456],"
+            + "\"uploadUserId\":[\"java.lang.Long\",7],\"uploadUsername\":\"actor01\",\"remark\":null,"
+            + "\"createTime\":[\"java.time.LocalDateTime\",\"2024-05-01T12:30:15\"],"
+            + "\"updateTime\":[\"java.time.LocalDateTime\",\"2024-06-02T08:00:00\"],\"isFavorite\":null,"
+            + "\"fileUuid\":\"3f2a9c1e-5b7d-4e8f-9a0b-1c2d3e4f5a6b\",\"fileSize\":[\"java.lang.Long\",8765432]}";
+
+    private final CompactRedisSerializer json = new CompactRedisSerializer(false);
+    private final CompactRedisSerializer smile = new CompactRedisSerializer(true);
+
+    /** 仅用于基准对比：原序列化器的编解码开销 */
+    private final GenericJackson2JsonRedisSerializer legacy =
+            new GenericJackson2JsonRedisSerializer(RedisConfig.createObjectMapper());
+
+    @Test
+    void smileRoundTripAndSmallerPayload() {
+        MusicDetailVO detail = musicDetail(1L);
+        byte[] bytes = smile.serialize(detail);
+
+        assertEquals(detail, smile.deserialize(bytes));
+        assertTrue(bytes.length < json.serialize(detail).length);
+        assertArrayEquals(new long[]{1, 2, 3}, (long[]) smile.deserialize(smile.serialize(new long[]{1, 2, 3})));
+        assertNull(smile.deserialize(smile.serialize(null)));
+    }
+
+    @Test
+    void readsLegacyJsonEntries() {
+        MusicDetailVO detail = musicDetail(2L);
+        byte[] legacyBytes = LEGACY_JSON.getBytes(StandardCharsets.UTF_8);
+
+        // json格式写入与原有缓存逐字节一致（未升级的节点照常读取），切换为smile后仍能读取原有的JSON缓存
+        assertArrayEquals(legacyBytes, json.serialize(detail));
+        assertEquals(detail, json.deserialize(legacyBytes));
+        assertEquals(detail, smile.deserialize(legacyBytes));
+    }
+
+    /**
+     * 序列化基准：mvn test -Dtest=CompactRedisSerializerTests -Dbenchmark=true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmark() {
+        List<Object> samples = List.of(musicDetail(3L), user(), page());
+        System.out.printf("%-16s %-6s %8s %14s %14s%n", "value", "format", "bytes", "write ns/op", "read ns/op");
+        for (Object sample : samples) {
+            run(sample, "legacy", legacy::serialize, legacy::deserialize);
+            run(sample, "json", json::serialize, json::deserialize);
+            run(sample, "smile", smile::serialize, smile::deserialize);
+        }
+    }
+
+    private static void run(Object value, String format,
+                            Function<Object, byte[]> writer,
+                            Function<byte[], Object> reader) {
+        int warmUp = 20_000;
+        int iterations = 200_000;
+        byte[] bytes = writer.apply(value);
+        long sink = 0;
+        for (int i = 0; i < warmUp; i++) {
+            sink += writer.apply(value).length;
+            sink += reader.apply(bytes).hashCode();
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += writer.apply(value).length;
+        }
+        long writeNs = (System.nanoTime() - start) / iterations;
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink += reader.apply(bytes).hashCode();
+        }
+        long readNs = (System.nanoTime() - start) / iterations;
+
+        blackhole = sink;
+        System.out.printf("%-16s %-6s %8d %14d %14d%n", value.getClass().getSimpleName(), format,
+                bytes.length, writeNs, readNs);
+    }
+
+    private static MusicDetailVO musicDetail(Long id) {
+        MusicDetailVO vo = new MusicDetailVO();
+        vo.setId(id);
+        vo.setMusicName("晴天");
+        vo.setArtist("周杰伦");
+        vo.setAlbum("叶惠美");
+        vo.setDuration(269);
+        vo.setCoverUrl("http://localhost:8080/files/images/3f2a9c1e-cover.jpg");
+        vo.setStatus(1);
+        vo.setDescription("2003年发行的专辑《叶惠美》中的歌曲");
+        vo.setPlayCount(123456L);
+        vo.setUploadUserId(7L);
+        vo.setUploadUsername("actor01");
+        vo.setCreateTime(LocalDateTime.of(2024, 5, 1, 12, 30, 15));
+        vo.setUpdateTime(LocalDateTime.of(2024, 6, 2, 8, 0, 0));
+        vo.setFileUuid("3f2a9c1e-5b7d-4e8f-9a0b-1c2d3e4f5a6b");
+        vo.setFileSize(8_765_432L);
+        return vo;
+    }
+
+    private static UserVO user() {
+        UserVO vo = new UserVO();
+        vo.setId(7L);
+        vo.setUsername("actor01");
+        vo.setNickname("actor01");
+        vo.setEmail("actor01@example.com");
+        vo.setPhone("13800000000");
+        vo.setRole("actor");
+        vo.setStatus(1);
+        vo.setCreateTime(LocalDateTime.of(2024, 1, 1, 0, 0, 0));
+        vo.setUpdateTime(LocalDateTime.of(2024, 1, 2, 0, 0, 0));
+        return vo;
+    }
+
+    private static PageResult<MusicVO> page() {
+        List<MusicVO> list = new ArrayList<>();
+        for (long i = 1; i <= 10; i++) {
+            list.add(musicDetail(i));
+        }
+        return PageResult.of(100L, 1, 10, list);
+    }
+}
@@ -0,0 +1,122 @@
+package com.music.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PlayCountServiceTests {
+
+    private static final int THREADS = 32;
+    private static final int PLAYS_PER_THREAD = 5_000;
+    private static final int MUSIC_COUNT = 1_000;
+
+    /**
+     * 播放记录基准（需要本地Redis，使用15号库并在结束时清空）：
+     * mvn test -Dtest=PlayCountServiceTests -Dbenchmark=true [-Dredis.host=localhost -Dredis.port=6379]
+     * <p>
+     * commands：计数、待刷新集合、独立听众各一条命令（3次往返）；
+     * script：每次播放执行一次脚本（1次往返）；
+     * striped：record() 累加到内存计数表，写入线程每秒把每首歌的累计值通过一次管道写入。
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    void benchmark() throws Exception {
+        RedisStandaloneConfiguration config = new RedisStandaloneConfiguration(
+                System.getProperty("redis.host", "localhost"), Integer.getInteger("redis.port", 6379));
+        config.setDatabase(15);
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(config);
+        factory.afterPropertiesSet();
+        StringRedisTemplate redis = new StringRedisTemplate(factory);
+        redis.afterPropertiesSet();
+
+        PlayCountService service = new PlayCountService();
+        ReflectionTestUtils.setField(service, "stringRedisTemplate", redis);
+        ReflectionTestUtils.setField(service, "drainMillis", 1000L);
+        service.init();
+        try {
+            System.out.printf("%-10s %10s %14s%n", "mode", "plays", "plays/sec");
+            for (int round = 0; round < 2; round++) {
+                run(redis, "commands", (musicId, userId) -> {
+                    redis.opsForValue().increment(PlayCountService.COUNT_PREFIX + musicId);
+                    redis.opsForSet().add("music:play:dirty", String.valueOf(musicId));
+                    redis.opsForHyperLogLog().add("music:play:listeners:" + musicId, String.valueOf(userId));
+                });
+                run(redis, "script", (musicId, userId) -> redis.execute(PlayCountService.RECORD_SCRIPT,
+                        List.of(PlayCountService.COUNT_PREFIX + musicId, "music:play:dirty", "music:play:listeners:" + musicId),
+                        String.valueOf(musicId), "1", String.valueOf(userId)));
+                run(redis, "striped", service::record);
+            }
+        } finally {
+            service.shutdown();
+            redis.execute((RedisCallback<Object>) connection -> {
+                connection.serverCommands().flushDb();
+                return null;
+            });
+            factory.destroy();
+        }
+    }
+
+    private static void run(StringRedisTemplate redis, String mode, BiConsumer<Long, Long> play) throws Exception {
+        redis.execute((RedisCallback<Object>) connection -> {
+            connection.serverCommands().flushDb();
+            return null;
+        });
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(THREADS);
+        for (int t = 0; t < THREADS; t++) {
+            long userId = t;
+            pool.execute(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < PLAYS_PER_THREAD; i++) {
+                        play.accept((long) ((userId * PLAYS_PER_THREAD + i) % MUSIC_COUNT), userId);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        long expected = (long) THREADS * PLAYS_PER_THREAD;
+        // striped 模式需等待计数全部写入Redis（最多一个写入间隔）
+        while (total(redis) < expected) {
+            Thread.sleep(1);
+        }
+        long elapsed = System.nanoTime() - begin;
+        pool.shutdown();
+        assertEquals(expected, total(redis));
+        System.out.printf("%-10s %10d %14.0f%n", mode, expected, expected * 1e9 / elapsed);
+    }
+
+    private static long total(StringRedisTemplate redis) {
+        List<String> keys = new ArrayList<>(MUSIC_COUNT);
+        for (int i = 0; i < MUSIC_COUNT; i++) {
+            keys.add(PlayCountService.COUNT_PREFIX + i);
+        }
+        long sum = 0;
+        for (String value : redis.opsForValue().multiGet(keys)) {
+            if (value != null) {
+                sum += Long.parseLong(value);
+            }
+        }
+        return sum;
+    }
+}
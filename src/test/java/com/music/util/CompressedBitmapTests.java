@@ -0,0 +1,82 @@
+package com.music.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CompressedBitmapTests {
+
+    @Test
+    void andCardinalityMatchesHashSet() {
+        Random random = new Random(42);
+        // 稀疏（数组桶）、稠密（位图桶）和两者混合的集合
+        int[] sizes = {10, 3000, 20_000, 60_000};
+        for (int round = 0; round < 40; round++) {
+            Set<Integer> left = new HashSet<>();
+            Set<Integer> right = new HashSet<>();
+            CompressedBitmap a = build(random, sizes[random.nextInt(sizes.length)], left);
+            CompressedBitmap b = build(random, sizes[random.nextInt(sizes.length)], right);
+
+            Set<Integer> common = new HashSet<>(left);
+            common.retainAll(right);
+            assertEquals(left.size(), a.cardinality());
+            assertEquals(right.size(), b.cardinality());
+            assertEquals(common.size(), a.andCardinality(b));
+            assertEquals(common.size(), b.andCardinality(a));
+            for (int i = 0; i < 1000; i++) {
+                int value = random.nextInt(3 << 16);
+                assertEquals(left.contains(value), a.contains(value));
+            }
+        }
+    }
+
+    @Test
+    void bucketsConvertBackAfterRemoval() {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        Set<Integer> expected = new HashSet<>();
+        for (int value = 0; value < 10_000; value += 2) {
+            bitmap.add(value);
+            expected.add(value);
+        }
+        for (int value = 0; value < 10_000; value += 4) {
+            assertEquals(true, bitmap.remove(value));
+            expected.remove(value);
+        }
+        assertEquals(false, bitmap.remove(0));
+        assertEquals(expected.size(), bitmap.cardinality());
+
+        int[] values = expected.stream().mapToInt(Integer::intValue).toArray();
+        CompressedBitmap copy = CompressedBitmap.of(values, values.length);
+        assertEquals(expected.size(), copy.andCardinality(bitmap));
+        for (int value = 0; value < 10_000; value++) {
+            assertEquals(expected.contains(value), bitmap.contains(value));
+        }
+        for (int value : values) {
+            bitmap.remove(value);
+        }
+        assertEquals(true, bitmap.isEmpty());
+        assertEquals(0, bitmap.andCardinality(copy));
+    }
+
+    /**
+     * 在前三个桶中随机取值，桶内密度随size变化
+     */
+    private static CompressedBitmap build(Random random, int size, Set<Integer> values) {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        int bound = random.nextBoolean() ? 3 << 16 : 1 << 16;
+        for (int i = 0; i < size; i++) {
+            int value = random.nextInt(bound);
+            assertEquals(values.add(value), bitmap.add(value));
+        }
+        // 删除一部分，覆盖位图桶转回数组桶
+        for (int i = 0; i < size / 2; i++) {
+            int value = random.nextInt(bound);
+            assertEquals(values.remove(value), bitmap.remove(value));
+        }
+        return bitmap;
+    }
+}
@@ -0,0 +1,86 @@
+package com.music.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FacetIndexTests {
+
+    private static final String[] NAMES = {"artist", "album", "status"};
+
+    @Test
+    void countMatchesBruteForce() {
+        Random random = new Random(42);
+        FacetIndex index = new FacetIndex(NAMES);
+        Map<Long, String[]> documents = new HashMap<>();
+        for (int op = 0; op < 20_000; op++) {
+            long id = random.nextInt(8000);
+            if (random.nextInt(10) == 0) {
+                index.remove(id);
+                documents.remove(id);
+                continue;
+            }
+            // 取值分布不均匀：少数艺术家占大部分文档
+            String[] values = {
+                    "artist" + (random.nextBoolean() ? random.nextInt(5) : random.nextInt(300)),
+                    random.nextInt(5) == 0 ? null : "album" + random.nextInt(1000),
+                    String.valueOf(random.nextInt(2))};
+            index.put(id, values);
+            documents.put(id, values);
+        }
+        assertEquals(documents.size(), index.size());
+
+        for (int i = 0; i < 50; i++) {
+            // 少量结果走逐个累加，大量结果走位图交集
+            int size = i % 2 == 0 ? random.nextInt(50) : random.nextInt(8000);
+            List<Long> ids = new ArrayList<>();
+            for (int j = 0; j < size; j++) {
+                ids.add((long) random.nextInt(9000));
+            }
+            ids = new ArrayList<>(new LinkedHashSet<>(ids));
+            int limit = 1 + random.nextInt(10);
+
+            Map<String, List<FacetIndex.FacetCount>> actual = index.count(ids, limit);
+            for (int d = 0; d < NAMES.length; d++) {
+                assertEquals(bruteForce(documents, ids, d, limit), describe(actual.get(NAMES[d])),
+                        "dimension=" + NAMES[d] + ", size=" + ids.size());
+            }
+        }
+    }
+
+    private static List<String> bruteForce(Map<Long, String[]> documents, List<Long> ids, int dimension, int limit) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Long id : ids) {
+            String[] values = documents.get(id);
+            if (values != null && values[dimension] != null) {
+                counts.merge(values[dimension], 1, Integer::sum);
+            }
+        }
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(counts.entrySet());
+        entries.sort(Comparator.comparing((Map.Entry<String, Integer> e) -> -e.getValue())
+                .thenComparing(Map.Entry::getKey));
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < entries.size() && i < limit; i++) {
+            result.add(entries.get(i).getKey() + "=" + entries.get(i).getValue());
+        }
+        return result;
+    }
+
+    private static List<String> describe(List<FacetIndex.FacetCount> counts) {
+        List<String> result = new ArrayList<>();
+        if (counts != null) {
+            for (FacetIndex.FacetCount count : counts) {
+                result.add(count.getValue() + "=" + count.getCount());
+            }
+        }
+        return result;
+    }
+}
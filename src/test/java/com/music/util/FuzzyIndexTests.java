@@ -0,0 +1,46 @@
+package com.music.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FuzzyIndexTests {
+
+    @Test
+    void pinyinSyllables() {
+        assertEquals(List.of("zhou", "jie", "lun", "jay"), PinyinUtil.syllables("周杰伦 Jay"));
+        assertTrue(PinyinUtil.syllableVariants("长城", 4).contains(List.of("chang", "cheng")));
+        assertTrue(PinyinUtil.isPinyinQuery("zhou jie"));
+        assertFalse(PinyinUtil.isPinyinQuery("周杰"));
+    }
+
+    @Test
+    void searchByPinyinAndTypos() {
+        FuzzyIndex index = new FuzzyIndex(Integer.MAX_VALUE, Integer.MAX_VALUE);
+        index.put(1L, "晴天", "周杰伦", "叶惠美");
+        index.put(2L, "Yesterday", "The Beatles", "Help");
+        index.put(3L, "长城", "群星", null);
+
+        // 全拼前缀、中间音节起始、首字母
+        assertEquals(Set.of(1L), index.search("zhoujie"));
+        assertEquals(Set.of(1L), index.search("jielun"));
+        assertEquals(Set.of(1L), index.search("zjl"));
+        // 同音错别字、多音字的其他读音
+        assertEquals(Set.of(1L), index.search("周杰轮"));
+        assertEquals(Set.of(3L), index.search("changcheng"));
+        // 英文错别字（8个字母以上允许2处编辑）
+        assertEquals(Set.of(2L), index.search("yesturdey"));
+        assertEquals(Set.of(2L), index.search("beetles"));
+
+        index.put(1L, "稻香", "周杰伦", "魔杰座");
+        assertTrue(index.search("qingtian").isEmpty());
+        index.remove(2L);
+        assertTrue(index.search("yesturdey").isEmpty());
+        assertEquals(2, index.size());
+    }
+}
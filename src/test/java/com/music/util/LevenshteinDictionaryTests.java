@@ -0,0 +1,96 @@
+package com.music.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LevenshteinDictionaryTests {
+
+    /** 小字母表（含汉字），随机词之间容易出现距离1~2的近邻 */
+    private static final String ALPHABET = "abcde周杰伦晴天";
+
+    @Test
+    void searchMatchesNaiveDistance() {
+        Random random = new Random(42);
+        // 超过缓冲区大小，覆盖有序数组和缓冲区两部分
+        Set<String> terms = new LinkedHashSet<>();
+        while (terms.size() < 6000) {
+            terms.add(randomWord(random, 0, 7));
+        }
+        LevenshteinDictionary dictionary = new LevenshteinDictionary();
+        terms.forEach(dictionary::add);
+
+        List<String> removed = new ArrayList<>();
+        for (String term : terms) {
+            if (random.nextInt(10) == 0) {
+                removed.add(term);
+            }
+        }
+        removed.forEach(dictionary::remove);
+        removed.forEach(terms::remove);
+        assertEquals(terms.size(), dictionary.size());
+
+        for (int i = 0; i < 300; i++) {
+            String query = randomWord(random, 0, 8);
+            int maxDistance = random.nextInt(3);
+            Set<String> expected = new HashSet<>();
+            for (String term : terms) {
+                if (naiveDistance(term, query) <= maxDistance) {
+                    expected.add(term);
+                }
+            }
+            List<String> actual = dictionary.search(query, maxDistance, Integer.MAX_VALUE);
+            assertEquals(expected, new HashSet<>(actual), "query=" + query + ", maxDistance=" + maxDistance);
+            assertEquals(actual.size(), new HashSet<>(actual).size(), "duplicate results for " + query);
+        }
+    }
+
+    @Test
+    void searchStopsAtVisitBudget() {
+        LevenshteinDictionary dictionary = new LevenshteinDictionary();
+        Random random = new Random(7);
+        Set<String> terms = new LinkedHashSet<>();
+        while (terms.size() < 5000) {
+            terms.add(randomWord(random, 1, 7));
+        }
+        terms.forEach(dictionary::add);
+
+        List<String> all = dictionary.search("abcd", 2, Integer.MAX_VALUE);
+        List<String> limited = dictionary.search("abcd", 2, 10);
+        assertEquals(true, all.containsAll(limited));
+        assertEquals(true, limited.size() < all.size());
+    }
+
+    private static String randomWord(Random random, int minLength, int maxLength) {
+        int length = minLength + random.nextInt(maxLength - minLength + 1);
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return word.toString();
+    }
+
+    private static int naiveDistance(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            d[i][0] = i;
+        }
+        for (int j = 0; j <= b.length(); j++) {
+            d[0][j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+            }
+        }
+        return d[a.length()][b.length()];
+    }
+}
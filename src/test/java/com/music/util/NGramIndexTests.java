@@ -0,0 +1,130 @@
+package com.music.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NGramIndexTests {
+
+    private static final String ALPHABET = "abc晴天周";
+
+    private static final double[] FIELD_WEIGHTS = {3.0, 2.0, 1.0};
+
+    @Test
+    void topMatchesFullRanking() {
+        Random random = new Random(42);
+        NGramIndex index = new NGramIndex();
+        List<Long> ids = new ArrayList<>();
+        for (long id = 1; id <= 2000; id++) {
+            // boost取整数，制造大量同分文档，检验同分时按ID倒序
+            index.put(id, random.nextInt(2), random.nextInt(1000), random.nextInt(3),
+                    randomText(random, 1, 6), randomText(random, 0, 4), randomText(random, 0, 8));
+            ids.add(id);
+        }
+
+        for (int i = 0; i < 200; i++) {
+            String keyword = i % 10 == 0 ? "" : randomText(random, 1, 3);
+            double recencyWeight = random.nextBoolean() ? 0 : 2.0;
+            List<Long> candidates = ids.subList(0, 1 + random.nextInt(ids.size()));
+            List<Long> full = index.top(candidates, keyword, FIELD_WEIGHTS, candidates.size(), 1000,
+                    recencyWeight, 300);
+            for (int limit : new int[]{1, 10, 50}) {
+                List<Long> top = index.top(candidates, keyword, FIELD_WEIGHTS, limit, 1000, recencyWeight, 300);
+                assertEquals(full.subList(0, Math.min(limit, full.size())), top,
+                        "keyword=" + keyword + ", limit=" + limit);
+            }
+        }
+    }
+
+    @Test
+    void searchMatchesSubstringScan() {
+        Random random = new Random(7);
+        NGramIndex index = new NGramIndex();
+        Map<Long, Object[]> documents = new HashMap<>();
+        for (int op = 0; op < 3000; op++) {
+            long id = 1 + random.nextInt(800);
+            if (random.nextInt(8) == 0) {
+                index.remove(id);
+                documents.remove(id);
+                continue;
+            }
+            int status = random.nextInt(2);
+            long sortKey = random.nextInt(50);
+            String[] fields = {randomText(random, 1, 5), randomText(random, 0, 4), randomText(random, 0, 6)};
+            index.put(id, status, sortKey, fields);
+            documents.put(id, new Object[]{status, sortKey, fields});
+        }
+
+        for (int i = 0; i < 300; i++) {
+            Integer status = random.nextInt(3) == 0 ? null : random.nextInt(2);
+            String keyword = random.nextInt(4) == 0 ? null : randomText(random, 1, 3);
+            String[] fieldTerms = {null, random.nextInt(4) == 0 ? randomText(random, 1, 2) : null, null};
+            long beforeSortKey = random.nextBoolean() ? Long.MAX_VALUE : random.nextInt(50);
+            long beforeId = random.nextInt(800);
+            int limit = 1 + random.nextInt(100);
+
+            List<Long> expected = scan(documents, status, keyword, fieldTerms, beforeSortKey, beforeId);
+            assertEquals(expected.subList(0, Math.min(limit, expected.size())),
+                    index.search(status, keyword, fieldTerms, beforeSortKey, beforeId, limit),
+                    "status=" + status + ", keyword=" + keyword + ", field=" + fieldTerms[1]);
+
+            List<Long> all = scan(documents, status, null, new String[3], beforeSortKey, beforeId);
+            int offset = random.nextInt(20);
+            assertEquals(all.subList(Math.min(offset, all.size()), Math.min(offset + limit, all.size())),
+                    index.latest(status, beforeSortKey, beforeId, offset, limit));
+            assertEquals(scan(documents, status, null, new String[3], Long.MAX_VALUE, 0).size(), index.count(status));
+        }
+    }
+
+    /**
+     * 逐个文档校验子串包含关系，按排序键倒序、ID倒序排列
+     */
+    private static List<Long> scan(Map<Long, Object[]> documents, Integer status, String keyword,
+                                   String[] fieldTerms, long beforeSortKey, long beforeId) {
+        List<Long> result = new ArrayList<>();
+        for (Map.Entry<Long, Object[]> entry : documents.entrySet()) {
+            long id = entry.getKey();
+            int docStatus = (int) entry.getValue()[0];
+            long sortKey = (long) entry.getValue()[1];
+            String[] fields = (String[]) entry.getValue()[2];
+            if (status != null && docStatus != status) {
+                continue;
+            }
+            if (sortKey > beforeSortKey || (sortKey == beforeSortKey && id >= beforeId)) {
+                continue;
+            }
+            if (keyword != null && !keyword.isEmpty()
+                    && !fields[0].contains(keyword) && !fields[1].contains(keyword) && !fields[2].contains(keyword)) {
+                continue;
+            }
+            boolean matched = true;
+            for (int f = 0; f < fieldTerms.length; f++) {
+                if (fieldTerms[f] != null && !fields[f].contains(fieldTerms[f])) {
+                    matched = false;
+                }
+            }
+            if (matched) {
+                result.add(id);
+            }
+        }
+        result.sort(Comparator.comparingLong((Long id) -> -(long) documents.get(id)[1])
+                .thenComparing(Comparator.reverseOrder()));
+        return result;
+    }
+
+    private static String randomText(Random random, int minLength, int maxLength) {
+        int length = minLength + random.nextInt(maxLength - minLength + 1);
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,117 @@
+package com.music.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class StripedCounterTableTests {
+
+    private static final int THREADS = 8;
+
+    private static final int ADDS_PER_THREAD = 200_000;
+
+    private static final int KEYS = 5000;
+
+    private static final int MEMBERS = 50;
+
+    @Test
+    void drainTotalsUnderConcurrency() throws Exception {
+        // 初始容量很小，累加期间各段反复扩容
+        StripedCounterTable table = new StripedCounterTable(4, 2);
+        Map<Long, Long> totals = new HashMap<>();
+        Map<Long, Set<Long>> members = new HashMap<>();
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        try {
+            Future<?>[] writers = new Future<?>[THREADS];
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                writers[t] = executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < ADDS_PER_THREAD; i++) {
+                        long key = (i * 31L + thread) % KEYS;
+                        long member = i % 3 == 0 ? StripedCounterTable.NO_MEMBER : (i + thread) % MEMBERS;
+                        table.add(key, 1 + thread, member);
+                    }
+                    return null;
+                });
+            }
+            // 累加期间反复取出，取出的计数之和应等于全部增量
+            Future<?> drainer = executor.submit(() -> {
+                start.await();
+                while (running.get()) {
+                    merge(table.drain(), totals, members);
+                }
+                return null;
+            });
+
+            start.countDown();
+            for (Future<?> writer : writers) {
+                writer.get(60, TimeUnit.SECONDS);
+            }
+            running.set(false);
+            drainer.get(60, TimeUnit.SECONDS);
+        } finally {
+            executor.shutdownNow();
+        }
+        merge(table.drain(), totals, members);
+
+        Map<Long, Long> expectedTotals = new HashMap<>();
+        Map<Long, Set<Long>> expectedMembers = new HashMap<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            for (int i = 0; i < ADDS_PER_THREAD; i++) {
+                long key = (i * 31L + thread) % KEYS;
+                expectedTotals.merge(key, 1L + thread, Long::sum);
+                if (i % 3 != 0) {
+                    expectedMembers.computeIfAbsent(key, k -> new HashSet<>()).add((long) (i + thread) % MEMBERS);
+                }
+            }
+        }
+        assertEquals(expectedTotals, totals);
+        assertEquals(expectedMembers, members);
+        assertEquals(0, table.drain().size());
+    }
+
+    @Test
+    void memberOnlyAddsAreDeduplicatedWithinDrain() {
+        StripedCounterTable table = new StripedCounterTable(1, 4);
+        for (int i = 0; i < 100; i++) {
+            table.add(7L, 0, 42L);
+        }
+        table.add(7L, 5, StripedCounterTable.NO_MEMBER);
+
+        StripedCounterTable.Snapshot snapshot = table.drain();
+        assertEquals(1, snapshot.size());
+        assertEquals(7L, snapshot.getKey(0));
+        assertEquals(5L, snapshot.getCount(0));
+        assertEquals(1, snapshot.getMemberCount(0));
+        assertEquals(42L, snapshot.getMember(0, 0));
+        assertEquals(0, table.drain().size());
+    }
+
+    private static void merge(StripedCounterTable.Snapshot snapshot, Map<Long, Long> totals,
+                              Map<Long, Set<Long>> members) {
+        for (int i = 0; i < snapshot.size(); i++) {
+            long key = snapshot.getKey(i);
+            if (snapshot.getCount(i) != 0) {
+                totals.merge(key, snapshot.getCount(i), Long::sum);
+            }
+            for (int j = 0; j < snapshot.getMemberCount(i); j++) {
+                members.computeIfAbsent(key, k -> new HashSet<>()).add(snapshot.getMember(i, j));
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.music.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SuggestIndexTests {
+
+    private static final int TOP_K = 5;
+
+    @Test
+    void suggestMatchesBruteForce() {
+        Random random = new Random(42);
+        SuggestIndex index = new SuggestIndex(TOP_K);
+        Map<Long, String[]> documents = new HashMap<>();
+        Map<Long, Long> weights = new HashMap<>();
+
+        for (int round = 0; round < 200; round++) {
+            for (int op = 0; op < 20; op++) {
+                long id = random.nextInt(60);
+                int kind = random.nextInt(10);
+                if (kind == 0) {
+                    index.remove(id);
+                    documents.remove(id);
+                    weights.remove(id);
+                } else if (kind < 5 && documents.containsKey(id)) {
+                    // 字段不变只改权重（包括降低权重）
+                    String[] fields = documents.get(id);
+                    long weight = random.nextInt(1000);
+                    index.put(id, weight, fields[0], fields[1], fields[2]);
+                    weights.put(id, weight);
+                } else {
+                    String[] fields = {randomText(random), randomText(random), random.nextBoolean() ? randomText(random) : null};
+                    long weight = random.nextInt(1000);
+                    index.put(id, weight, fields[0], fields[1], fields[2]);
+                    documents.put(id, fields);
+                    weights.put(id, weight);
+                }
+            }
+            for (String prefix : prefixes()) {
+                assertEquals(bruteForce(documents, weights, prefix), describe(index.suggest(prefix, TOP_K)),
+                        "round=" + round + ", prefix=" + prefix);
+            }
+        }
+    }
+
+    @Test
+    void suggestByPinyinAndWordStart() {
+        SuggestIndex index = new SuggestIndex(TOP_K);
+        index.put(1L, 100, "晴天", "周杰伦", "叶惠美");
+        index.put(2L, 50, "Shape of You", "Ed Sheeran", "Divide");
+        index.put(3L, 80, "稻香", "周杰伦", "魔杰座");
+
+        assertEquals(List.of("artist:周杰伦:180"), describe(index.suggest("zjl", TOP_K)));
+        assertEquals(List.of("artist:周杰伦:180"), describe(index.suggest("zhoujie", TOP_K)));
+        assertEquals(List.of("artist:Ed Sheeran:50"), describe(index.suggest("sheer", TOP_K)));
+        assertEquals(List.of("music:晴天:100"), describe(index.suggest("qing", TOP_K)));
+    }
+
+    /**
+     * 所有联想词中key以prefix开头的，按权重倒序、短词优先、文本、类型排序后取前TOP_K个
+     */
+    private static List<String> bruteForce(Map<Long, String[]> documents, Map<Long, Long> weights, String prefix) {
+        String[] types = {SuggestIndex.TYPE_MUSIC, SuggestIndex.TYPE_ARTIST, SuggestIndex.TYPE_ALBUM};
+        Map<String, long[]> totals = new HashMap<>();
+        for (Map.Entry<Long, String[]> document : documents.entrySet()) {
+            for (int i = 0; i < types.length; i++) {
+                String text = document.getValue()[i];
+                if (text != null) {
+                    totals.computeIfAbsent(types[i] + ":" + text, k -> new long[1])[0] += weights.get(document.getKey());
+                }
+            }
+        }
+        List<Map.Entry<String, long[]>> matched = new ArrayList<>();
+        for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+            String text = entry.getKey().substring(entry.getKey().indexOf(':') + 1);
+            if (keysOf(text).stream().anyMatch(key -> key.startsWith(prefix))) {
+                matched.add(entry);
+            }
+        }
+        matched.sort(Comparator.comparingLong((Map.Entry<String, long[]> e) -> -e.getValue()[0])
+                .thenComparingInt(e -> text(e).length())
+                .thenComparing(SuggestIndexTests::text)
+                .thenComparing(e -> e.getKey().substring(0, e.getKey().indexOf(':'))));
+        List<String> result = new ArrayList<>();
+        for (int i = 0; i < matched.size() && i < TOP_K; i++) {
+            result.add(matched.get(i).getKey() + ":" + matched.get(i).getValue()[0]);
+        }
+        return result;
+    }
+
+    private static String text(Map.Entry<String, long[]> entry) {
+        return entry.getKey().substring(entry.getKey().indexOf(':') + 1);
+    }
+
+    /**
+     * 英文联想词的key：全文和每个单词开头的后缀
+     */
+    private static Set<String> keysOf(String text) {
+        Set<String> keys = new LinkedHashSet<>();
+        keys.add(text);
+        for (int i = 1; i < text.length(); i++) {
+            if (text.charAt(i - 1) == ' ') {
+                keys.add(text.substring(i));
+            }
+        }
+        return keys;
+    }
+
+    private static List<String> describe(List<SuggestIndex.Suggestion> suggestions) {
+        List<String> result = new ArrayList<>();
+        for (SuggestIndex.Suggestion suggestion : suggestions) {
+            result.add(suggestion.getType() + ":" + suggestion.getText() + ":" + suggestion.getWeight());
+        }
+        return result;
+    }
+
+    /**
+     * 小字母表上的一到两个单词，联想词之间大量共享前缀
+     */
+    private static String randomText(Random random) {
+        StringBuilder text = new StringBuilder(randomWord(random));
+        if (random.nextBoolean()) {
+            text.append(' ').append(randomWord(random));
+        }
+        return text.toString();
+    }
+
+    private static String randomWord(Random random) {
+        int length = 1 + random.nextInt(3);
+        StringBuilder word = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            word.append((char) ('a' + random.nextInt(3)));
+        }
+        return word.toString();
+    }
+
+    private static List<String> prefixes() {
+        List<String> prefixes = new ArrayList<>();
+        for (char a = 'a'; a <= 'c'; a++) {
+            prefixes.add(String.valueOf(a));
+            for (char b = 'a'; b <= 'c'; b++) {
+                prefixes.add("" + a + b);
+                prefixes.add(a + " " + b);
+                for (char c = 'a'; c <= 'c'; c++) {
+                    prefixes.add("" + a + b + c);
+                }
+            }
+        }
+        return prefixes;
+    }
+}